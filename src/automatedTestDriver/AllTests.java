@@ -6,6 +6,7 @@ import automatedTestDriver.Data.AllDataTest;
 import automatedTestDriver.GoogleIntegration.GoogleAPIConnectorTest;
 import automatedTestDriver.IntegratedController.AllIntegratedControllerTest;
 import automatedTestDriver.Parser.AllParserTest;
+import automatedTestDriver.Storage.KeyValueStorageTest;
 import automatedTestDriver.Storage.StorageTest;
 
 //@author A0128620M
@@ -15,7 +16,7 @@ import automatedTestDriver.Storage.StorageTest;
 
 @RunWith(Suite.class)
 @SuiteClasses({ AllParserTest.class, AllDataTest.class,
-    GoogleAPIConnectorTest.class, StorageTest.class,
+    GoogleAPIConnectorTest.class, StorageTest.class, KeyValueStorageTest.class,
     AllIntegratedControllerTest.class })
 public class AllTests {
 }
\ No newline at end of file
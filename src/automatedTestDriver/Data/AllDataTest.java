@@ -20,7 +20,16 @@ import org.junit.runners.Suite.SuiteClasses;
 	UpdateInternalTest.class,
 	AddGoogleTest.class,
 	DeleteGoogleTest.class,
-	UpdateGoogleTest.class
+	UpdateGoogleTest.class,
+	PagingTest.class,
+	PartitionTest.class,
+	IndexTest.class,
+	SortTest.class,
+	SearchTest.class,
+	FilterTest.class,
+	QueryTest.class,
+	SnapshotTest.class,
+	ColumnsTest.class
 })
 
 public class AllDataTest {
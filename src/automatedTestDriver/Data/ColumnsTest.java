@@ -0,0 +1,154 @@
+package automatedTestDriver.Data;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.google.api.client.util.DateTime;
+import com.taskcommander.DeadlineTask;
+import com.taskcommander.FloatingTask;
+import com.taskcommander.Task;
+import com.taskcommander.TaskColumns;
+import com.taskcommander.TaskPager;
+import com.taskcommander.TaskQuery;
+import com.taskcommander.TimedTask;
+
+//@author A0112828H
+/**
+ * Test for keeping paged tasks in the columns of TaskColumns, as done by
+ * TaskPager.
+ *
+ */
+public class ColumnsTest {
+
+	@Test
+	public void rowTest() {
+		TaskColumns columns = new TaskColumns();
+		FloatingTask floatingTask = new FloatingTask("Café Über");
+		floatingTask.setId("abc");
+		floatingTask.markDone();
+		floatingTask.setUpdated(new DateTime(false, 5000, 60));
+		TimedTask timedTask = new TimedTask("Timed", new Date(1000), new Date(2999));
+		timedTask.setEdited(false);
+		columns.add(floatingTask);
+		columns.add(timedTask);
+
+		Task task = columns.get(0);
+		assertEquals("Café Über", task.getName());
+		assertEquals("abc", task.getId());
+		assertTrue(task.isDone());
+		assertTrue(task.isEdited());
+		assertEquals(floatingTask.getUpdated(), task.getUpdated());
+
+		task = columns.get(1);
+		assertEquals("Timed", task.getName());
+		assertNull(task.getId());
+		assertFalse(task.isDone());
+		assertFalse(task.isEdited());
+		assertNull(task.getUpdated());
+		assertEquals(new Date(2999), ((TimedTask) task).getEndDate());
+		assertEquals(timedTask.getLocalId(), task.getLocalId());
+
+		assertEquals(1, columns.indexOf(task));
+		assertEquals(-1, columns.indexOf(new FloatingTask("Café Über")));
+		columns.remove(0);
+		assertEquals(1, columns.size());
+		assertEquals(-1, columns.indexOf(floatingTask));
+	}
+
+	@Test
+	public void scanTest() {
+		TaskColumns columns = new TaskColumns();
+		columns.add(new FloatingTask("Buy milk"));
+		columns.add(new DeadlineTask("Über report", new Date(2000)));
+		columns.add(new TimedTask("Meet Tommy", new Date(1000), new Date(3000)));
+		FloatingTask doneTask = new FloatingTask("Buy bread");
+		doneTask.markDone();
+		columns.add(doneTask);
+
+		assertRows(columns.getRowsMatching(TaskQuery.ALL), 0, 1, 2, 3);
+		assertRows(columns.getRowsMatching(TaskQuery.ALL.restrictStatus(true)), 3);
+		assertRows(columns.getRowsMatching(TaskQuery.ALL.restrictTypes(true, false, true)
+				.restrictStatus(false)), 0, 2);
+		assertRows(columns.getRowsMatching(TaskQuery.ALL.restrictDates(null, new Date(2000))), 1);
+		assertRows(columns.getRowsMatching(TaskQuery.ALL.restrictWords(
+				Arrays.asList("Buy", "ilk"))), 0);
+		assertRows(columns.getRowsMatching(TaskQuery.ALL.restrictWords(
+				Arrays.asList("Über r"))), 1);
+		assertRows(columns.getRowsOverlapping(new Date(2500), null), 2);
+		assertRows(columns.getRowsOverlapping(null, new Date(500)));
+
+		columns.remove(3);
+		assertRows(columns.getRowsMatching(TaskQuery.ALL.restrictStatus(true)));
+	}
+
+	@Test
+	public void compactionTest() {
+		TaskColumns columns = new TaskColumns();
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		for (int i = 0; i < 100; i++) {
+			Task task = new DeadlineTask("Deadline " + i, new Date(i * 1000 - 50500));
+			task.setId(i % 2 == 0 ? "id " + i : null);
+			tasks.add(task);
+			columns.add(task);
+		}
+		for (int i = 0; i < 100; i++) {
+			if (i % 3 != 0) {
+				columns.remove(columns.indexOf(tasks.get(i)));
+			}
+		}
+		assertEquals(34, columns.size());
+		assertEquals(50, columns.getRowCount());
+		for (int i = 0; i < 100; i++) {
+			int row = columns.indexOf(tasks.get(i));
+			if (i % 3 != 0) {
+				assertEquals(-1, row);
+			} else {
+				Task task = columns.get(row);
+				assertEquals(tasks.get(i).getName(), task.getName());
+				assertEquals(tasks.get(i).getId(), task.getId());
+				assertEquals(tasks.get(i).getLocalId(), task.getLocalId());
+				assertEquals(new Date(i * 1000 - 50500), ((DeadlineTask) task).getEndDate());
+			}
+		}
+		assertRows(columns.getRowsMatching(TaskQuery.ALL.restrictWords(Arrays.asList("Deadline 4"))),
+				columns.indexOf(tasks.get(42)), columns.indexOf(tasks.get(45)),
+				columns.indexOf(tasks.get(48)));
+	}
+
+	@Test
+	public void pagerTest() {
+		TaskPager pager = new TaskPager();
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		for (int i = 0; i < 5; i++) {
+			tasks.add(new DeadlineTask("Deadline " + i, new Date(i * 1000)));
+		}
+		pager.pageOut(tasks, new int[] { 0, 2, 3, 5, 6 });
+		assertEquals(1, pager.getStoredIndex(0));
+		assertEquals(4, pager.getStoredIndex(1));
+		assertEquals(7, pager.getStoredIndex(2));
+		assertEquals(3, pager.getStoredIndexOf(pager.indexOf(tasks.get(2))));
+		assertEquals("Deadline 2", pager.pageIn(pager.indexOf(tasks.get(2))).getName());
+		assertEquals(5, pager.getStoredIndexOf(pager.indexOf(tasks.get(4))));
+
+		assertEquals(4, pager.size());
+		assertEquals(-1, pager.indexOf(tasks.get(2)));
+		ArrayList<Task> pagedTasks = pager.readAll();
+		tasks.remove(2);
+		assertEquals(tasks, pagedTasks);
+		pager.clear();
+		assertEquals(0, pager.size());
+	}
+
+	private void assertRows(BitSet rows, int... expectedRows) {
+		assertEquals(expectedRows.length, rows.cardinality());
+		for (int row : expectedRows) {
+			assertTrue(rows.get(row));
+		}
+	}
+}
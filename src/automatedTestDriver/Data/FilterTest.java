@@ -0,0 +1,87 @@
+package automatedTestDriver.Data;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.taskcommander.Data;
+import com.taskcommander.Task;
+
+//@author A0112828H
+/**
+ * Test for restricting displayed tasks by type and status through the
+ * bitmaps of the tasks list.
+ *
+ */
+public class FilterTest {
+	Data tester;
+
+	public FilterTest() {
+		tester = Data.getInstance();
+		tester.clearTasks();
+		tester.clearOperationHistory();
+	}
+
+	@After
+	public void clearTasks() {
+		tester.clearTasks();
+	}
+
+	@Test
+	public void typeTest() {
+		addTasks();
+		assertNames(display(true, true, false, false, false, false), "a", "b");
+		assertNames(display(true, false, true, true, false, false), "Timed 1", "Deadline 2");
+		assertNames(display(true, false, false, false, false, false));
+
+		tester.updateToDeadlineTask(0, "Deadline 3", new Date(3000));
+		assertNames(display(true, true, false, false, false, false), "a");
+		assertNames(display(true, false, true, false, false, false), "Deadline 2", "Deadline 3");
+	}
+
+	@Test
+	public void statusTest() {
+		addTasks();
+		tester.done(1);
+		tester.done(3);
+		assertNames(display(false, false, false, false, true, true), "a", "Deadline 2");
+		assertNames(display(true, true, false, false, true, false), "b");
+
+		tester.open(3);
+		tester.deleteTask(0);
+		assertNames(display(false, false, false, false, true, true), "Deadline 2");
+		tester.undo();
+		tester.undo();
+		assertNames(display(false, false, false, false, true, true), "a", "Deadline 2");
+		assertNames(display(false, false, false, false, true, false), "b", "Timed 1");
+	}
+
+	// Adds tasks "b", "Deadline 2", "Timed 1" and "a" in this order.
+	private void addTasks() {
+		tester.addFloatingTask("b");
+		tester.addDeadlineTask("Deadline 2", new Date(2000));
+		tester.addTimedTask("Timed 1", new Date(1000), new Date(1500));
+		tester.addFloatingTask("a");
+	}
+
+	private ArrayList<Task> display(boolean isTaskTypeRestricted,
+			boolean areFloatingTasksDisplayed, boolean areDeadlineTasksDisplayed,
+			boolean areTimedTasksDisplayed, boolean isStatusRestricted,
+			boolean areDoneTasksDisplayed) {
+		return tester.getTasks(false, null, null, isTaskTypeRestricted,
+				areFloatingTasksDisplayed, areDeadlineTasksDisplayed,
+				areTimedTasksDisplayed, isStatusRestricted, areDoneTasksDisplayed,
+				!areDoneTasksDisplayed, false, null);
+	}
+
+	private void assertNames(ArrayList<Task> tasks, String... names) {
+		assertEquals(names.length, tasks.size());
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(names[i], tasks.get(i).getName());
+		}
+	}
+}
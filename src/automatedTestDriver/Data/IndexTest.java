@@ -0,0 +1,102 @@
+package automatedTestDriver.Data;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.taskcommander.Data;
+import com.taskcommander.FloatingTask;
+import com.taskcommander.Task;
+import com.taskcommander.TaskList;
+
+//@author A0112828H
+/**
+ * Test for finding tasks by their local ID and Google ID.
+ *
+ */
+public class IndexTest {
+	Data tester;
+
+	public IndexTest() {
+		tester = Data.getInstance();
+		tester.clearTasks();
+		tester.clearOperationHistory();
+	}
+
+	@After
+	public void clearTasks() {
+		tester.clearTasks();
+	}
+
+	@Test
+	public void copyTest() {
+		tester.addFloatingTask("Task 1");
+		tester.addFloatingTask("Task 2");
+		tester.addFloatingTask("Task 2");
+		ArrayList<Task> copies = tester.getTasks();
+		assertEquals(0, tester.getIndexOf(copies.get(0)));
+		assertEquals(1, tester.getIndexOf(copies.get(1)));
+		assertEquals(2, tester.getIndexOf(copies.get(2)));
+
+		tester.deleteTask(0);
+		assertEquals(1, tester.getIndexOf(copies.get(2)));
+		tester.updateToFloatingTask(1, "Task 3");
+		assertEquals(0, tester.getIndexOf(copies.get(1)));
+		assertEquals("Should find an equal task.", 0, tester.getIndexOf(copies.get(2)));
+	}
+
+	@Test
+	public void googleIdTest() {
+		tester.addTask(new FloatingTask("Task 1", "id1"));
+		tester.addTask(new FloatingTask("Task 2", "id2"));
+		tester.addFloatingTask("Task 3");
+		assertEquals(1, tester.getIndexOfId("id2"));
+		assertEquals(-1, tester.getIndexOfId("id3"));
+		assertEquals(-1, tester.getIndexOfId(null));
+
+		Task task = tester.getAllTasks().get(2);
+		Task syncedTask = Data.copyOf(task);
+		syncedTask.setId("id3");
+		assertTrue(tester.replaceTask(task, syncedTask));
+		assertNull(task.getId());
+		assertFalse(tester.replaceTask(task, syncedTask));
+		assertEquals(2, tester.getIndexOfId("id3"));
+		tester.deleteFromGoogle(0);
+		assertEquals(0, tester.getIndexOfId("id2"));
+		assertEquals(-1, tester.getIndexOfId("id1"));
+		tester.updateToFloatingTask(0, new FloatingTask("Task 2 changed", "id2"));
+		assertEquals(0, tester.getIndexOfId("id2"));
+	}
+
+	@Test
+	public void movedPositionsTest() {
+		TaskList tasks = new TaskList();
+		for (int i = 0; i < 10; i++) {
+			FloatingTask task = new FloatingTask("Task " + i, "id" + i);
+			task.setDone(i % 2 == 0);
+			tasks.add(task);
+		}
+		Task removedTask = tasks.get(3);
+		tasks.indexOfId("id0");
+		tasks.remove(3);
+		tasks.add(5, removedTask);
+		tasks.remove(0);
+		tasks.add(0, new FloatingTask("Task 10", "id10"));
+
+		TaskList rebuiltTasks = new TaskList(tasks);
+		for (int i = 0; i < tasks.size(); i++) {
+			assertEquals(i, tasks.indexOfLocalId(tasks.get(i)));
+			assertEquals(i, tasks.indexOfId(tasks.get(i).getId()));
+		}
+		assertEquals(-1, tasks.indexOfId("id0"));
+		BitSet donePositions = tasks.getPositionsMatching(false, false, false, false, true, true);
+		assertEquals(rebuiltTasks.getPositionsMatching(false, false, false, false, true, true),
+				donePositions);
+		assertEquals(rebuiltTasks.getPositionsMatching(true, true, false, false, false, false),
+				tasks.getPositionsMatching(true, true, false, false, false, false));
+	}
+}
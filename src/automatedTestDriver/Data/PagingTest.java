@@ -0,0 +1,172 @@
+package automatedTestDriver.Data;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.taskcommander.Data;
+import com.taskcommander.FloatingTask;
+import com.taskcommander.Global;
+import com.taskcommander.Task;
+import com.taskcommander.TaskCommander;
+
+//@author A0112828H
+/**
+ * Test for paging tasks out of memory once the memory budget is exceeded.
+ *
+ */
+public class PagingTest {
+	Data tester;
+	Date start;
+	Date end;
+
+	public PagingTest() {
+		tester = Data.getInstance();
+		tester.clearTasks();
+		tester.clearOperationHistory();
+		Calendar cal = Calendar.getInstance();
+		cal.set(2014, Calendar.NOVEMBER, 10, 15, 00);
+		start = cal.getTime();
+		cal.set(2014, Calendar.NOVEMBER, 10, 16, 00);
+		end = cal.getTime();
+	}
+
+	@After
+	public void resetBudget() {
+		Global.MEMORY_BUDGET = Integer.MAX_VALUE;
+		tester.clearTasks();
+	}
+
+	@Test
+	public void displayTest() {
+		addTasks(20);
+		Global.MEMORY_BUDGET = 10;
+		assertEquals(20, tester.getTasks().size());
+		assertEquals(20, tester.getTasks(false, null, null, false, false,
+				false, false, false, false, false, true, words("Task 1")).size() + 9);
+		assertEquals(20, tester.getAllTasks().size());
+	}
+
+	@Test
+	public void restrictionTest() {
+		addTasks(20);
+		tester.addDeadlineTask("Deadline", end);
+		tester.done(20);
+		tester.addTimedTask("Timed", start, end);
+		Global.MEMORY_BUDGET = 5;
+		tester.getTasks();
+
+		ArrayList<Task> doneTasks = tester.getTasks(false, null, null,
+				false, false, false, false, true, true, false, false, null);
+		assertEquals(1, doneTasks.size());
+		assertEquals("Deadline", doneTasks.get(0).getName());
+
+		ArrayList<Task> timedTasks = tester.getTasks(true, start, end,
+				true, false, false, true, false, false, false, false, null);
+		assertEquals(1, timedTasks.size());
+		assertEquals("Timed", timedTasks.get(0).getName());
+	}
+
+	@Test
+	public void commandTest() {
+		addTasks(20);
+		Global.MEMORY_BUDGET = 10;
+		ArrayList<Task> displayedTasks = tester.getTasks();
+		for (Task task : displayedTasks) {
+			int index = tester.getIndexOf(task);
+			assertTrue(index != -1);
+			assertEquals("Done: \"" + task.getName() + "\"", tester.done(index));
+		}
+		for (Task task : tester.getAllTasks()) {
+			assertTrue(task.isDone());
+		}
+	}
+
+	@Test
+	public void undoTest() {
+		addTasks(20);
+		tester.done(0);
+		Global.MEMORY_BUDGET = 10;
+		tester.getTasks();
+		tester.getTasks();
+		assertEquals("Undone latest command: DONE.", tester.undo());
+		for (Task task : tester.getAllTasks()) {
+			assertFalse(task.isDone());
+		}
+	}
+
+	@Test
+	public void storageTest() {
+		addTasks(20);
+		Global.MEMORY_BUDGET = 10;
+		tester.getTasks();
+		tester.addFloatingTask("Task 20");
+		tester.addFloatingTask("Task 21");
+		ArrayList<Task> displayedTasks = tester.getTasks();
+		tester.deleteTask(tester.getIndexOf(displayedTasks.get(displayedTasks.size() - 1)));
+
+		ArrayList<Task> storedTasks = TaskCommander.storage.readFromFile();
+		TaskCommander.storage.replayJournal(storedTasks);
+		assertEquals(21, storedTasks.size());
+
+		tester.loadFromPermanentStorage();
+		Global.MEMORY_BUDGET = Integer.MAX_VALUE;
+		assertEquals(21, tester.getAllTasks().size());
+	}
+
+	@Test
+	public void journalTest() {
+		addTasks(20);
+		Global.MEMORY_BUDGET = 10;
+		ArrayList<Task> displayedTasks = tester.getTasks();
+		tester.saveToPermanentStorage();
+		for (int i = 0; i < 20; i += 4) {
+			tester.done(tester.getIndexOf(displayedTasks.get(i)));
+		}
+		tester.deleteTask(tester.getIndexOf(displayedTasks.get(6)));
+		tester.addFloatingTask("Task 20");
+		assertTrue("Should journal while tasks are paged.",
+				TaskCommander.storage.getJournalSize() > 0);
+
+		ArrayList<Task> storedTasks = TaskCommander.storage.readFromFile();
+		TaskCommander.storage.replayJournal(storedTasks);
+		ArrayList<Task> tasks = tester.getAllTasks();
+		assertEquals(20, storedTasks.size());
+		for (int i = 0; i < tasks.size(); i++) {
+			assertEquals(tasks.get(i).getName(), storedTasks.get(i).getName());
+			assertEquals(tasks.get(i).isDone(), storedTasks.get(i).isDone());
+		}
+	}
+
+	@Test
+	public void googleIdTest() {
+		for (int i = 0; i < 20; i++) {
+			tester.addTask(new FloatingTask("Task " + i, "id" + i));
+		}
+		Global.MEMORY_BUDGET = 10;
+		tester.getTasks();
+		for (int i = 0; i < 20; i++) {
+			int index = tester.getIndexOfId("id" + i);
+			assertEquals("Done: \"Task " + i + "\"", tester.done(index));
+		}
+		assertEquals(-1, tester.getIndexOfId("id20"));
+		assertEquals(20, tester.getAllTasks().size());
+	}
+
+		private void addTasks(int number) {
+		for (int i = 0; i < number; i++) {
+			tester.addFloatingTask("Task " + i);
+		}
+	}
+
+	private ArrayList<String> words(String word) {
+		ArrayList<String> words = new ArrayList<String>();
+		words.add(word);
+		return words;
+	}
+}
@@ -0,0 +1,118 @@
+package automatedTestDriver.Data;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.taskcommander.Data;
+import com.taskcommander.Global;
+import com.taskcommander.Task;
+import com.taskcommander.TaskCommander;
+
+//@author A0112828H
+/**
+ * Test for storing tasks in partitions and loading only the partitions needed.
+ *
+ */
+public class PartitionTest {
+	Data tester;
+
+	public PartitionTest() {
+		tester = Data.getInstance();
+		tester.clearTasks();
+		tester.clearOperationHistory();
+		Global.partitioning = true;
+	}
+
+	@After
+	public void resetPartitioning() {
+		tester.clearTasks();
+		tester.saveToPermanentStorage();
+		Global.partitioning = false;
+		TaskCommander.storage.clearPartitions();
+		tester.saveToPermanentStorage();
+	}
+
+	@Test
+	public void writeTest() {
+		tester.addFloatingTask("Floating");
+		tester.addDeadlineTask("November", date(2014, Calendar.NOVEMBER, 10));
+		tester.addTimedTask("December", date(2014, Calendar.DECEMBER, 1),
+				date(2014, Calendar.DECEMBER, 2));
+		tester.addDeadlineTask("November again", date(2014, Calendar.NOVEMBER, 20));
+		tester.saveToPermanentStorage();
+
+		assertEquals(3, TaskCommander.storage.getPartitions().size());
+		assertTrue(TaskCommander.storage.hasPartition("2014-11"));
+		assertTrue(TaskCommander.storage.hasPartition("2014-12"));
+		assertTrue(TaskCommander.storage.hasPartition("floating"));
+	}
+
+	@Test
+	public void defaultDisplayTest() {
+		Calendar calendar = Calendar.getInstance();
+		calendar.add(Calendar.YEAR, -2);
+		for (int i = 0; i < 12; i++) {
+			tester.addDeadlineTask("Old " + i, calendar.getTime());
+			tester.done(tester.getAllTasks().size() - 1);
+			calendar.add(Calendar.MONTH, 1);
+		}
+		tester.addFloatingTask("Floating");
+		tester.addDeadlineTask("Overdue", daysFromNow(-1));
+		tester.addDeadlineTask("Soon", daysFromNow(1));
+		tester.addDeadlineTask("Later", daysFromNow(100));
+		tester.prepareForExit();
+		tester.loadFromPermanentStorage();
+		assertEquals(0, tester.getLoadedPartitions().size());
+
+		ArrayList<Task> displayedTasks = tester.getTasks(true, null,
+				daysFromNow(7), false, false, false, false, true, false, true,
+				false, null);
+		assertEquals(2, displayedTasks.size());
+		assertTrue(tester.getLoadedPartitions().size() <= 2);
+
+		assertEquals(16, tester.getTasks().size());
+		assertEquals(TaskCommander.storage.getPartitions().size(),
+				tester.getLoadedPartitions().size());
+	}
+
+	@Test
+	public void journalTest() {
+		tester.addDeadlineTask("November", date(2014, Calendar.NOVEMBER, 10));
+		tester.addDeadlineTask("December", date(2014, Calendar.DECEMBER, 10));
+		tester.prepareForExit();
+		tester.loadFromPermanentStorage();
+
+		// Loads November only, then changes it without writing the partitions.
+		tester.getTasks(true, date(2014, Calendar.NOVEMBER, 1),
+				date(2014, Calendar.NOVEMBER, 30), false, false, false, false,
+				false, false, false, false, null);
+		tester.addDeadlineTask("January", date(2015, Calendar.JANUARY, 10));
+		tester.done(0);
+		TaskCommander.storage.flush();
+		tester.loadFromPermanentStorage();
+
+		ArrayList<Task> tasks = tester.getTasks();
+		assertEquals(3, tasks.size());
+		assertEquals("November", tasks.get(0).getName());
+		assertTrue(tasks.get(0).isDone());
+		assertEquals("January", tasks.get(2).getName());
+	}
+
+	private Date date(int year, int month, int day) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(year, month, day, 12, 0, 0);
+		return calendar.getTime();
+	}
+
+	private Date daysFromNow(int days) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.add(Calendar.DAY_OF_YEAR, days);
+		return calendar.getTime();
+	}
+}
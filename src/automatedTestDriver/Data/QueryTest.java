@@ -0,0 +1,134 @@
+package automatedTestDriver.Data;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.taskcommander.Data;
+import com.taskcommander.QueryPlan;
+import com.taskcommander.Task;
+import com.taskcommander.TaskQuery;
+
+//@author A0112828H
+/**
+ * Test for answering task queries through the access path chosen by the
+ * query planner of Data, and for the version of the tasks the answers are
+ * cached for.
+ *
+ */
+public class QueryTest {
+	Data tester;
+
+	public QueryTest() {
+		tester = Data.getInstance();
+		tester.clearTasks();
+		tester.clearOperationHistory();
+	}
+
+	@After
+	public void clearTasks() {
+		tester.clearTasks();
+	}
+
+	@Test
+	public void accessPathTest() {
+		for (int i = 0; i < 100; i++) {
+			tester.addFloatingTask("Task " + i);
+			tester.addDeadlineTask("Deadline " + i, new Date(i * 1000));
+		}
+		tester.done(0);
+
+		assertPath(QueryPlan.AccessPath.SORTED_SCAN, TaskQuery.ALL.restrictStatus(false));
+		assertPath(QueryPlan.AccessPath.TYPE_STATUS_BITMAP, TaskQuery.ALL.restrictStatus(true));
+		assertPath(QueryPlan.AccessPath.DATE_INDEX,
+				TaskQuery.ALL.restrictDates(new Date(1000), new Date(3000)));
+		assertPath(QueryPlan.AccessPath.SEARCH_INDEX,
+				TaskQuery.ALL.restrictWords(Arrays.asList("Task 42")));
+		assertPath(QueryPlan.AccessPath.SORTED_SCAN,
+				TaskQuery.ALL.restrictWords(Arrays.asList("a")));
+	}
+
+	@Test
+	public void intervalTreeTest() {
+		for (int i = 0; i < 5; i++) {
+			tester.addDeadlineTask("Deadline " + i, new Date(i * 1000));
+			tester.addTimedTask("Timed " + i, new Date(i * 1000), new Date(i * 1000 + 500));
+		}
+
+		TaskQuery query = TaskQuery.ALL.restrictTypes(false, false, true)
+				.restrictDates(new Date(1000), new Date(3000));
+		assertPath(QueryPlan.AccessPath.INTERVAL_TREE, query);
+		assertNames(tester.getTasks(query), "Timed 1", "Timed 2");
+		assertPath(QueryPlan.AccessPath.DATE_INDEX, TaskQuery.ALL.restrictTypes(false, true, true)
+				.restrictDates(new Date(1000), new Date(3000)));
+	}
+
+	@Test
+	public void resultTest() {
+		tester.addFloatingTask("b");
+		tester.addDeadlineTask("Deadline 2", new Date(2000));
+		tester.addTimedTask("Timed 1", new Date(1000), new Date(1500));
+		tester.addFloatingTask("a");
+		tester.done(1);
+
+		TaskQuery query = TaskQuery.ALL.restrictStatus(false).restrictTypes(true, false, true);
+		assertNames(tester.getTasks(query), "a", "b", "Timed 1");
+		assertNames(tester.getTasks(query.restrictDates(null, new Date(2000))), "Timed 1");
+		assertNames(tester.getTasks(TaskQuery.ALL.restrictStatus(true)
+				.restrictWords(Arrays.asList("line"))), "Deadline 2");
+	}
+
+	@Test
+	public void equalityTest() {
+		TaskQuery query = TaskQuery.ALL.restrictDates(null, new Date(2000));
+		assertEquals(query, TaskQuery.ALL.restrictDates(null, new Date(2000)));
+		assertEquals(query.hashCode(), TaskQuery.ALL.restrictDates(null, new Date(2000)).hashCode());
+		assertFalse(query.equals(query.restrictStatus(true)));
+		assertFalse(TaskQuery.ALL.isRestricted());
+
+		ArrayList<String> words = new ArrayList<String>(Arrays.asList("a"));
+		TaskQuery searchQuery = TaskQuery.ALL.restrictWords(words);
+		words.add("b");
+		assertEquals(Arrays.asList("a"), searchQuery.getSearchedWords());
+	}
+
+	@Test
+	public void versionTest() {
+		long version = tester.getVersion();
+		tester.addFloatingTask("a");
+		assertTrue(tester.getVersion() > version);
+
+		version = tester.getVersion();
+		tester.getTasks(TaskQuery.ALL.restrictStatus(false));
+		tester.getTasks();
+		assertEquals(version, tester.getVersion());
+
+		tester.done(0);
+		assertTrue(tester.getVersion() > version);
+		version = tester.getVersion();
+		tester.updateToFloatingTask(0, "b");
+		assertTrue(tester.getVersion() > version);
+		version = tester.getVersion();
+		tester.undo();
+		assertTrue(tester.getVersion() > version);
+		version = tester.getVersion();
+		tester.clearTasks();
+		assertTrue(tester.getVersion() > version);
+	}
+
+	private void assertPath(QueryPlan.AccessPath accessPath, TaskQuery query) {
+		assertEquals(query.toString(), accessPath, tester.explain(query).getAccessPath());
+	}
+
+	private void assertNames(ArrayList<Task> tasks, String... names) {
+		assertEquals(names.length, tasks.size());
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(names[i], tasks.get(i).getName());
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package automatedTestDriver.Data;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.taskcommander.Data;
+import com.taskcommander.FloatingTask;
+import com.taskcommander.Task;
+
+//@author A0112828H
+/**
+ * Test for searching tasks through the words of their names.
+ *
+ */
+public class SearchTest {
+	Data tester;
+
+	public SearchTest() {
+		tester = Data.getInstance();
+		tester.clearTasks();
+		tester.clearOperationHistory();
+	}
+
+	@After
+	public void clearTasks() {
+		tester.clearTasks();
+	}
+
+	@Test
+	public void wordTest() {
+		tester.addFloatingTask("Buy milk");
+		tester.addFloatingTask("Buy bread and milk");
+		tester.addDeadlineTask("Submit report", new Date(1000));
+		assertNames(search("milk"), "Buy bread and milk", "Buy milk");
+		assertNames(search("milk", "bread"), "Buy bread and milk");
+		assertNames(search("report"), "Submit report");
+		assertNames(search("cheese"));
+	}
+
+	@Test
+	public void partialWordTest() {
+		tester.addFloatingTask("Buy milk");
+		tester.addFloatingTask("Meet Tommy");
+		assertNames(search("Tom"), "Meet Tommy");
+		assertNames(search("y m"), "Buy milk");
+		assertNames(search("uy milk"), "Buy milk");
+		assertNames(search("y"), "Buy milk", "Meet Tommy");
+		assertNames(search(" "), "Buy milk", "Meet Tommy");
+	}
+
+	@Test
+	public void substringTest() {
+		tester.addFloatingTask("CS2103 project");
+		tester.addFloatingTask("CS2010 tutorial");
+		tester.addFloatingTask("MA1521 tutorial");
+		assertNames(search("CS21"), "CS2103 project");
+		assertNames(search("S2"), "CS2010 tutorial", "CS2103 project");
+		assertNames(search("521 tut"), "MA1521 tutorial");
+		assertNames(search("utori"), "CS2010 tutorial", "MA1521 tutorial");
+		assertNames(search("cs21"));
+		assertNames(search("CS2x"));
+	}
+
+	@Test
+	public void changeTest() {
+		tester.addFloatingTask("Buy milk");
+		tester.addFloatingTask("Buy milk");
+		assertNames(search("milk"), "Buy milk", "Buy milk");
+
+		tester.updateToFloatingTask(0, "Buy bread");
+		tester.deleteTask(1);
+		assertNames(search("milk"));
+		assertNames(search("bread"), "Buy bread");
+
+		tester.undo();
+		assertNames(search("milk"), "Buy milk");
+		tester.updateToFloatingTask(0, new FloatingTask("Call mom"));
+		assertNames(search("mom"), "Call mom");
+		assertNames(search("bread"));
+	}
+
+	private ArrayList<Task> search(String... words) {
+		return tester.getTasks(false, null, null, false, false, false, false,
+				false, false, false, true, new ArrayList<String>(Arrays.asList(words)));
+	}
+
+	private void assertNames(ArrayList<Task> tasks, String... names) {
+		assertEquals(names.length, tasks.size());
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(names[i], tasks.get(i).getName());
+		}
+	}
+}
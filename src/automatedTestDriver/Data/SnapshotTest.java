@@ -0,0 +1,111 @@
+package automatedTestDriver.Data;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.taskcommander.Data;
+import com.taskcommander.DeadlineTask;
+import com.taskcommander.Task;
+import com.taskcommander.TaskQuery;
+
+//@author A0112828H
+/**
+ * Test for displayed tasks sharing the tasks of Data, which stay as they
+ * were displayed while the tasks change.
+ *
+ */
+public class SnapshotTest {
+	Data tester;
+
+	public SnapshotTest() {
+		tester = Data.getInstance();
+		tester.clearTasks();
+		tester.clearOperationHistory();
+	}
+
+	@After
+	public void clearTasks() {
+		tester.clearTasks();
+	}
+
+	@Test
+	public void sharingTest() {
+		tester.addFloatingTask("a");
+		tester.addDeadlineTask("Deadline 1", new Date(1000));
+		ArrayList<Task> displayed = tester.getTasks();
+		ArrayList<Task> displayedAgain = tester.getTasks();
+		assertFalse(displayed == displayedAgain);
+		for (int i = 0; i < displayed.size(); i++) {
+			assertSame(displayed.get(i), displayedAgain.get(i));
+		}
+		assertSame(displayed.get(1),
+				tester.getTasks(TaskQuery.ALL.restrictStatus(false)).get(1));
+		assertSame(displayed.get(1), tester.getTasks(
+				TaskQuery.ALL.restrictDates(null, new Date(2000))).get(0));
+	}
+
+	@Test
+	public void statusTest() {
+		tester.addFloatingTask("a");
+		ArrayList<Task> displayed = tester.getTasks();
+		Task displayedTask = displayed.get(0);
+
+		tester.done(tester.getIndexOf(displayedTask));
+		assertFalse(displayedTask.isDone());
+		Task doneTask = tester.getTasks().get(0);
+		assertTrue(doneTask.isDone());
+		assertEquals(displayedTask.getLocalId(), doneTask.getLocalId());
+
+		tester.undo();
+		assertTrue(doneTask.isDone());
+		assertFalse(tester.getTasks().get(0).isDone());
+	}
+
+	@Test
+	public void deleteTest() {
+		tester.addFloatingTask("a");
+		tester.addFloatingTask("b");
+		for (Task task : tester.getAllTasks()) {
+			Task syncedTask = Data.copyOf(task);
+			syncedTask.setId("id " + task.getName());
+			syncedTask.setEdited(false);
+			assertTrue(tester.replaceTask(task, syncedTask));
+		}
+		Task displayedTask = tester.getTasks().get(0);
+		assertEquals("id a", displayedTask.getId());
+
+		tester.deleteTask(tester.getIndexOf(displayedTask));
+		assertFalse(displayedTask.isEdited());
+		ArrayList<Task> deletedTasks = tester.getDeletedTasks();
+		assertTrue(deletedTasks.get(deletedTasks.size() - 1).isEdited());
+
+		displayedTask = tester.getTasks().get(0);
+		tester.clearTasks();
+		assertFalse(displayedTask.isEdited());
+		Task clearedTask = tester.getClearedTasks().peek().get(0);
+		assertTrue(clearedTask.isEdited());
+		tester.undo();
+		assertFalse(tester.getTasks().get(0) == clearedTask);
+	}
+
+	@Test
+	public void syncUpdateTest() {
+		tester.addDeadlineTask("Deadline 1", new Date(1000));
+		Task displayedTask = tester.getTasks().get(0);
+
+		tester.updateToDeadlineTask(0, new DeadlineTask("Deadline 2", new Date(2000)));
+		assertEquals("Deadline 1", displayedTask.getName());
+		assertEquals(new Date(1000), ((DeadlineTask) displayedTask).getEndDate());
+
+		Task updatedTask = tester.getTasks().get(0);
+		assertEquals("Deadline 2", updatedTask.getName());
+		assertEquals(displayedTask.getLocalId(), updatedTask.getLocalId());
+		assertEquals(1, tester.getTasks(TaskQuery.ALL.restrictDates(
+				new Date(1500), new Date(2500))).size());
+	}
+}
@@ -0,0 +1,146 @@
+package automatedTestDriver.Data;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.taskcommander.Data;
+import com.taskcommander.IntervalTree;
+import com.taskcommander.Task;
+import com.taskcommander.TimedTask;
+
+//@author A0112828H
+/**
+ * Test for the tasks kept sorted by the tasks list while tasks are added,
+ * updated and deleted, and for finding overlapping timed tasks.
+ *
+ */
+public class SortTest {
+	Data tester;
+
+	public SortTest() {
+		tester = Data.getInstance();
+		tester.clearTasks();
+		tester.clearOperationHistory();
+	}
+
+	@After
+	public void clearTasks() {
+		tester.clearTasks();
+	}
+
+	@Test
+	public void changeTest() {
+		tester.addFloatingTask("b");
+		tester.addDeadlineTask("Deadline 3", new Date(3000));
+		tester.addFloatingTask("a");
+		assertNames(tester.getTasks(), "a", "b", "Deadline 3");
+
+		tester.addTimedTask("Timed 1", new Date(1000), new Date(2000));
+		tester.addFloatingTask("c");
+		assertNames(tester.getTasks(), "a", "b", "c", "Timed 1", "Deadline 3");
+
+		tester.updateToDeadlineTask(0, "Deadline 2", new Date(2000));
+		tester.deleteTask(1);
+		assertNames(tester.getTasks(), "a", "c", "Timed 1", "Deadline 2");
+
+		tester.undo();
+		assertNames(tester.getTasks(), "a", "c", "Timed 1", "Deadline 2", "Deadline 3");
+	}
+
+	@Test
+	public void equalDatesTest() {
+		tester.addDeadlineTask("Deadline 1", new Date(1000));
+		tester.addDeadlineTask("Deadline 2", new Date(1000));
+		tester.addFloatingTask("a");
+		tester.addFloatingTask("a");
+		assertNames(tester.getTasks(), "a", "a", "Deadline 1", "Deadline 2");
+
+		tester.deleteTask(0);
+		tester.addDeadlineTask("Deadline 3", new Date(1000));
+		assertNames(tester.getTasks(), "a", "a", "Deadline 2", "Deadline 3");
+	}
+
+	@Test
+	public void dateRestrictionTest() {
+		tester.addTimedTask("Timed 1", new Date(1000), new Date(5000));
+		tester.addDeadlineTask("Deadline 4", new Date(4000));
+		tester.addDeadlineTask("Deadline 2", new Date(2000));
+		tester.addTimedTask("Timed 3", new Date(3000), new Date(3500));
+		tester.addFloatingTask("a");
+
+		ArrayList<Task> restrictedTasks = tester.getTasks(true, new Date(2000),
+				new Date(4000), false, false, false, false, false, false, false, false, null);
+		assertNames(restrictedTasks, "Deadline 2", "Timed 3", "Deadline 4");
+
+		restrictedTasks = tester.getTasks(true, null, new Date(4500), false, false,
+				false, false, false, false, false, false, null);
+		assertNames(restrictedTasks, "Deadline 2", "Timed 3", "Deadline 4");
+
+		restrictedTasks = tester.getTasks(true, new Date(4000), new Date(2000), false,
+				false, false, false, false, false, false, false, null);
+		assertNames(restrictedTasks);
+	}
+
+	@Test
+	public void overlapTest() {
+		tester.addTimedTask("Timed 1", new Date(1000), new Date(5000));
+		tester.addTimedTask("Timed 2", new Date(2000), new Date(3000));
+		tester.addDeadlineTask("Deadline 2", new Date(2000));
+		tester.addTimedTask("Timed 6", new Date(6000), new Date(7000));
+		assertNames(tester.getTimedTasks(new Date(3000), new Date(4000)), "Timed 1", "Timed 2");
+		assertNames(tester.getTimedTasks(new Date(5500), new Date(5800)));
+		assertNames(tester.getTimedTasks(new Date(5000), null), "Timed 1", "Timed 6");
+
+		tester.updateToTimedTask(1, "Timed 4", new Date(4000), new Date(4500));
+		tester.deleteTask(0);
+		assertNames(tester.getTimedTasks(new Date(3000), new Date(4000)), "Timed 4");
+	}
+
+	@Test
+	public void intervalTreeTest() {
+		IntervalTree tree = new IntervalTree();
+		ArrayList<TimedTask> tasks = new ArrayList<TimedTask>();
+		Random random = new Random(0);
+		for (int i = 0; i < 500; i++) {
+			long start = random.nextInt(10000);
+			TimedTask task = new TimedTask("Timed " + i, new Date(start),
+					new Date(start + random.nextInt(500)));
+			tasks.add(task);
+			tree.add(task);
+			if (random.nextInt(3) == 0) {
+				assertTrue(tree.remove(tasks.remove(random.nextInt(tasks.size()))));
+			}
+		}
+		assertEquals(tasks.size(), tree.size());
+
+		for (int i = 0; i < 100; i++) {
+			Date startDate = new Date(random.nextInt(10000));
+			Date endDate = new Date(startDate.getTime() + random.nextInt(1000));
+			ArrayList<TimedTask> expected = new ArrayList<TimedTask>();
+			for (TimedTask task : tasks) {
+				if (!task.getEndDate().before(startDate) && !task.getStartDate().after(endDate)) {
+					expected.add(task);
+				}
+			}
+			ArrayList<TimedTask> found = tree.getOverlappingTasks(startDate, endDate);
+			assertEquals(expected.size(), found.size());
+			assertTrue(found.containsAll(expected));
+			for (int j = 1; j < found.size(); j++) {
+				assertFalse(found.get(j).getStartDate().before(found.get(j - 1).getStartDate()));
+			}
+		}
+	}
+
+	private void assertNames(ArrayList<Task> tasks, String... names) {
+		assertEquals(names.length, tasks.size());
+		for (int i = 0; i < names.length; i++) {
+			assertEquals(names[i], tasks.get(i).getName());
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package automatedTestDriver.Storage;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.taskcommander.Data;
+import com.taskcommander.DeadlineTask;
+import com.taskcommander.FloatingTask;
+import com.taskcommander.Global;
+import com.taskcommander.KeyValueStorage;
+import com.taskcommander.Storage;
+import com.taskcommander.Task;
+import com.taskcommander.TaskCommander;
+import com.taskcommander.TimedTask;
+
+//@author A0112828H
+/**
+ * Tests reading and writing tasks to and from the log of the key-value storage backend.
+ * Deletes the log after running.
+ */
+public class KeyValueStorageTest {
+	KeyValueStorage tester = TaskCommander.keyValueStorage;
+
+	@After
+	public void deleteFile() {
+		tester.close();
+		new File(Global.KEY_VALUE_FILENAME).delete();
+		new File(Global.KEY_VALUE_FILENAME + Global.TEMP_FILE_SUFFIX).delete();
+		Global.STORAGE_BACKEND = Global.StorageBackendType.FILE;
+	}
+
+	@Test
+	public void testReadingWrittenTasks() {
+		tester.writeToFile(createTasks());
+		ArrayList<Task> readTasks = tester.readFromFile();
+		assertEquals("Should read 3 tasks.", 3, readTasks.size());
+		assertEquals("Should have same task name.", "Test Task 1", readTasks.get(0).getName());
+		assertEquals("Should have same ID.", "googleId", readTasks.get(0).getId());
+		assertEquals("Should have same end date.", new Date(1415602800123L),
+				((DeadlineTask) readTasks.get(1)).getEndDate());
+		assertEquals("Should have same end date.", new Date(1415606400000L),
+				((TimedTask) readTasks.get(2)).getEndDate());
+		assertEquals("Should have no superseded entries.", 0, tester.getJournalSize());
+	}
+
+	@Test
+	public void testReadingAppendedOperations() {
+		tester.writeToFile(createTasks());
+		ArrayList<Task> tasks = tester.readFromFile();
+		tasks.get(1).setDone(true);
+		tester.appendToJournal(Storage.Operation.SET, 1, tasks.get(1));
+		tester.appendToJournal(Storage.Operation.REMOVE, 0, null);
+		tester.appendToJournal(Storage.Operation.ADD, 2, new FloatingTask("Test Task 4"));
+		assertEquals("Should count superseded entries.", 3, tester.getJournalSize());
+
+		ArrayList<Task> readTasks = tester.readFromFile();
+		assertEquals("Should read 3 tasks.", 3, readTasks.size());
+		assertEquals("Should keep order of tasks.", "Test Task 2", readTasks.get(0).getName());
+		assertTrue("Should be done.", readTasks.get(0).isDone());
+		assertEquals("Should add task at the end.", "Test Task 4", readTasks.get(2).getName());
+		assertEquals("Should count superseded entries.", 3, tester.getJournalSize());
+
+		tester.writeToFile(readTasks);
+		assertEquals("Should keep the tasks when compacting.", 3, tester.readFromFile().size());
+		assertEquals("Should have no superseded entries.", 0, tester.getJournalSize());
+	}
+
+	@Test
+	public void testReadingLogWithCutOffEntry() throws IOException {
+		tester.writeToFile(createTasks());
+		tester.readFromFile();
+		tester.appendToJournal(Storage.Operation.ADD, 3, new FloatingTask("Test Task 4"));
+		tester.close();
+		RandomAccessFile file = new RandomAccessFile(Global.KEY_VALUE_FILENAME, "rw");
+		file.setLength(file.length() - 3);
+		file.close();
+
+		assertEquals("Should drop cut off entry.", 3, tester.readFromFile().size());
+		tester.appendToJournal(Storage.Operation.ADD, 3, new FloatingTask("Test Task 5"));
+		ArrayList<Task> readTasks = tester.readFromFile();
+		assertEquals("Should append after the last valid entry.", 4, readTasks.size());
+		assertEquals("Should have same task name.", "Test Task 5", readTasks.get(3).getName());
+	}
+
+	@Test
+	public void testKeepingKeysWhenCompacting() throws IOException {
+		tester.writeToFile(createTasks());
+		ArrayList<Task> tasks = tester.readFromFile();
+		tasks.remove(0);
+		tester.appendToJournal(Storage.Operation.REMOVE, 0, null);
+		tasks.add(new FloatingTask("Test Task 4"));
+		tester.appendToJournal(Storage.Operation.ADD, 2, tasks.get(2));
+		tester.writeToFile(tasks);
+		assertEquals("Should keep the key of every task.", "[1, 2, 3]", readKeys().toString());
+
+		tasks.add(0, tasks.remove(2));
+		tester.writeToFile(tasks);
+		assertEquals("Should only give the moved task a new key.", "[0, 1, 2]",
+				readKeys().toString());
+		tasks.add(tasks.remove(0));
+		tester.writeToFile(tasks);
+		assertEquals("Should give the moved task a key above the others.", "[1, 2, 3]",
+				readKeys().toString());
+		tasks.add(1, new FloatingTask("Test Task 5"));
+		tester.writeToFile(tasks);
+		assertEquals("Should move the next key up if no key is left.", "[1, 2, 3, 4]",
+				readKeys().toString());
+		ArrayList<Task> readTasks = tester.readFromFile();
+		assertEquals("Should keep order of tasks.", "Test Task 5", readTasks.get(1).getName());
+		assertEquals("Should keep order of tasks.", "Test Task 4", readTasks.get(3).getName());
+	}
+
+	@Test
+	public void testStoringDataInKeyValueBackend() {
+		Global.STORAGE_BACKEND = Global.StorageBackendType.KEY_VALUE;
+		Data data = Data.getInstance();
+		data.loadFromPermanentStorage();
+		data.clearTasks();
+		data.addFloatingTask("Test Task 1");
+		data.addDeadlineTask("Test Task 2", new Date(1415602800000L));
+		data.done(0);
+		data.prepareForExit();
+
+		data.loadFromPermanentStorage();
+		ArrayList<Task> tasks = data.getAllTasks();
+		assertEquals("Should load 2 tasks.", 2, tasks.size());
+		assertTrue("Should be done.", tasks.get(0).isDone());
+		assertEquals("Should have same task name.", "Test Task 2", tasks.get(1).getName());
+
+		Global.STORAGE_BACKEND = Global.StorageBackendType.FILE;
+		data.loadFromPermanentStorage();
+	}
+
+	// Returns the keys of the entries of the log.
+	private ArrayList<Long> readKeys() throws IOException {
+		tester.close();
+		ArrayList<Long> keys = new ArrayList<Long>();
+		DataInputStream in = new DataInputStream(new FileInputStream(Global.KEY_VALUE_FILENAME));
+		try {
+			in.skipBytes(KeyValueStorage.MAGIC.length + 1);
+			while (in.available() > 0) {
+				in.readByte();
+				keys.add(in.readLong());
+				in.skipBytes(in.readInt() + 4);
+			}
+		} finally {
+			in.close();
+		}
+		return keys;
+	}
+
+	private ArrayList<Task> createTasks() {
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		tasks.add(new FloatingTask("Test Task 1", "googleId"));
+		tasks.add(new DeadlineTask("Test Task 2", new Date(1415602800123L)));
+		tasks.add(new TimedTask("Test Task 3", new Date(1415602800000L), new Date(1415606400000L)));
+		return tasks;
+	}
+}
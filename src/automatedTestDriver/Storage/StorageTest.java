@@ -9,17 +9,32 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.Random;
+import java.util.zip.CRC32;
 
 import org.junit.Test;
 
+import com.google.api.client.util.DateTime;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.taskcommander.BlockCompression;
+import com.taskcommander.Data;
+import com.taskcommander.DeadlineTask;
 import com.taskcommander.FloatingTask;
 import com.taskcommander.Global;
+import com.taskcommander.RecordFile;
+import com.taskcommander.Storage;
+import com.taskcommander.StorageChange;
+import com.taskcommander.StorageChecksum;
 import com.taskcommander.Task;
 import com.taskcommander.TaskAdapter;
 import com.taskcommander.TaskCommander;
+import com.taskcommander.TimedTask;
 
 //@author A0112828H
 /**
@@ -95,6 +110,639 @@ public class StorageTest {
 		clearFile();
 	}
 
+	@Test
+	public void testReplayingJournal() {
+		clearFile();
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		tasks.add(new FloatingTask("Test Task 1"));
+		tasks.add(new FloatingTask("Test Task 2"));
+		TaskCommander.storage.writeToFile(tasks);
+		TaskCommander.storage.appendToJournal(Storage.Operation.ADD, 2, new FloatingTask("Test Task 3"));
+		TaskCommander.storage.appendToJournal(Storage.Operation.SET, 0, new FloatingTask("Test Task 4"));
+		TaskCommander.storage.appendToJournal(Storage.Operation.REMOVE, 1, null);
+
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		assertEquals("Storage file should be unchanged.", 2, readTasks.size());
+		TaskCommander.storage.replayJournal(readTasks);
+		assertEquals("Should replay 3 records.", 3, TaskCommander.storage.getJournalSize());
+		assertEquals("Should have 2 tasks after replay.", 2, readTasks.size());
+		assertEquals("Should have updated task name.", "Test Task 4", readTasks.get(0).getName());
+		assertEquals("Should have added task name.", "Test Task 3", readTasks.get(1).getName());
+		clearFile();
+	}
+
+	@Test
+	public void testReplayingJournalWithCutOffRecord() {
+		clearFile();
+		TaskCommander.storage.appendToJournal(Storage.Operation.ADD, 0, new FloatingTask("Test Task 1"));
+		TaskCommander.storage.flush();
+		appendLineToJournal("ADD\t1\t{\"taskType\":\"0\",\"_na");
+		TaskCommander.storage.appendToJournal(Storage.Operation.ADD, 2, new FloatingTask("Test Task 3"));
+
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		TaskCommander.storage.replayJournal(readTasks);
+		assertEquals("Should stop at the cut off record.", 1, readTasks.size());
+		clearFile();
+	}
+
+	@Test
+	public void testAppendingAfterCutOffRecord() {
+		clearFile();
+		TaskCommander.storage.appendToJournal(Storage.Operation.ADD, 0, new FloatingTask("Test Task 1"));
+		TaskCommander.storage.flush();
+		appendLineToJournal("ADD\t1\t{\"taskType\":\"0\",\"_na");
+
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		TaskCommander.storage.replayJournal(readTasks);
+		assertEquals("Should stop at the cut off record.", 1, readTasks.size());
+		TaskCommander.storage.appendToJournal(Storage.Operation.ADD, 1, new FloatingTask("Test Task 2"));
+		TaskCommander.storage.flush();
+
+		readTasks = TaskCommander.storage.readFromFile();
+		TaskCommander.storage.replayJournal(readTasks);
+		assertEquals("Should replay the record appended after reloading.", 2, readTasks.size());
+		assertEquals("Should have same task name.", "Test Task 2", readTasks.get(1).getName());
+		clearFile();
+	}
+
+	@Test
+	public void testWritingClearsJournal() {
+		clearFile();
+		TaskCommander.storage.appendToJournal(Storage.Operation.ADD, 0, new FloatingTask("Test Task 1"));
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		tasks.add(new FloatingTask("Test Task 1"));
+		TaskCommander.storage.writeToFile(tasks);
+		assertEquals("Journal should be empty after writing.", 0, TaskCommander.storage.getJournalSize());
+		assertFalse("Journal file should be deleted.", new File(Global.JOURNAL_FILENAME).exists());
+
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		TaskCommander.storage.replayJournal(readTasks);
+		assertEquals("Should not replay written records.", 1, readTasks.size());
+		clearFile();
+	}
+
+	@Test
+	public void testWritingAndReadingBinaryFile() {
+		clearFile();
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		FloatingTask floatingTask = new FloatingTask("Test Task 1", "googleId");
+		floatingTask.setDone(true);
+		floatingTask.setUpdated(new DateTime(false, 1415602800000L, 480));
+		tasks.add(floatingTask);
+		tasks.add(new DeadlineTask("Test Task 2 \u00e4\u00f6\u00fc", new Date(1415602800123L)));
+		TimedTask timedTask = new TimedTask("Test Task 3", new Date(1415602800000L), new Date(1415606400000L));
+		timedTask.setEdited(false);
+		tasks.add(timedTask);
+
+		Global.STORAGE_FORMAT = Global.StorageFormat.BINARY;
+		TaskCommander.storage.writeToFile(tasks);
+		Global.STORAGE_FORMAT = Global.StorageFormat.JSON;
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+
+		assertEquals("Should read 3 tasks.", 3, readTasks.size());
+		assertEquals("Should have same ID.", "googleId", readTasks.get(0).getId());
+		assertTrue("Should be done.", readTasks.get(0).isDone());
+		assertEquals("Should have same updated time.", floatingTask.getUpdated(), readTasks.get(0).getUpdated());
+		assertEquals("Should have same task name.", "Test Task 2 \u00e4\u00f6\u00fc", readTasks.get(1).getName());
+		assertEquals("Should keep milliseconds.", new Date(1415602800123L), ((DeadlineTask) readTasks.get(1)).getEndDate());
+		assertFalse("Should not be edited.", readTasks.get(2).isEdited());
+		assertEquals("Should have same end date.", new Date(1415606400000L), ((TimedTask) readTasks.get(2)).getEndDate());
+		clearFile();
+	}
+
+	@Test
+	public void testConvertingFile() {
+		clearFile();
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		tasks.add(new FloatingTask("Test Task 1"));
+		tasks.add(new DeadlineTask("Test Task 2", new Date(1415602800000L)));
+		TaskCommander.storage.writeToFile(tasks);
+
+		String binaryFileName = Global.FILENAME + ".bin";
+		assertTrue(TaskCommander.storage.convertFile(Global.FILENAME, binaryFileName, Global.StorageFormat.BINARY));
+		clearFile();
+		assertTrue(TaskCommander.storage.convertFile(binaryFileName, Global.FILENAME, Global.StorageFormat.JSON));
+		new File(binaryFileName).delete();
+
+		assertEquals("Make sure there are 2 lines", 2, countLinesInFile());
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		assertEquals("Should have same task name.", "Test Task 1", readTasks.get(0).getName());
+		assertEquals("Should have same end date.", new Date(1415602800000L), ((DeadlineTask) readTasks.get(1)).getEndDate());
+		clearFile();
+	}
+
+	@Test
+	public void testWritingAndReadingCompressedFile() throws IOException {
+		clearFile();
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		for (int i = 0; i < 20000; i++) {
+			tasks.add(new DeadlineTask("Test Task " + i, new Date(1415602800000L + i * 1000L)));
+		}
+
+		Global.compressing = true;
+		Global.StorageFormat[] formats = { Global.StorageFormat.JSON, Global.StorageFormat.BINARY };
+		for (Global.StorageFormat format : formats) {
+			Global.STORAGE_FORMAT = format;
+			TaskCommander.storage.writeToFile(tasks);
+			RandomAccessFile file = new RandomAccessFile(Global.FILENAME, "r");
+			byte[] header = new byte[5];
+			file.readFully(header);
+			file.close();
+			assertTrue("File should be compressed.", BlockCompression.isHeader(header, header.length));
+
+			ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+			assertEquals("Should read all tasks.", 20000, readTasks.size());
+			assertEquals("Should have same task name.", "Test Task 19999", readTasks.get(19999).getName());
+			assertEquals("Should have same end date.", new Date(1415602800000L + 19999 * 1000L),
+					((DeadlineTask) readTasks.get(19999)).getEndDate());
+		}
+		Global.compressing = false;
+		Global.STORAGE_FORMAT = Global.StorageFormat.JSON;
+		clearFile();
+	}
+
+	@Test
+	public void testUpdatingRecordFileInPlace() {
+		clearFile();
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		tasks.add(new FloatingTask("Test Task 1"));
+		tasks.add(new DeadlineTask("Test Task 2", new Date(1415602800123L)));
+		tasks.add(new TimedTask("Test Task 3", new Date(1415602800000L), new Date(1415606400000L)));
+
+		Global.STORAGE_FORMAT = Global.StorageFormat.RECORDS;
+		TaskCommander.storage.writeToFile(tasks);
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		assertEquals("Should read 3 tasks.", 3, readTasks.size());
+		long length = new File(Global.FILENAME).length();
+
+		readTasks.get(1).setDone(true);
+		TaskCommander.storage.appendToJournal(Storage.Operation.SET, 1, readTasks.get(1));
+		readTasks.get(0).setName("Test Task 1 renamed");
+		readTasks.get(0).setId("googleId");
+		TaskCommander.storage.appendToJournal(Storage.Operation.SET, 0, readTasks.get(0));
+		TaskCommander.storage.appendToJournal(Storage.Operation.REMOVE, 2, null);
+		TaskCommander.storage.appendToJournal(Storage.Operation.ADD, 2, new FloatingTask("Test Task 4"));
+		TaskCommander.storage.flush();
+		assertFalse("Should not write the journal.", new File(Global.JOURNAL_FILENAME).exists());
+		assertEquals("Should reuse the slot of the removed task.", length, new File(Global.FILENAME).length());
+
+		readTasks = TaskCommander.storage.readFromFile();
+		TaskCommander.storage.replayJournal(readTasks);
+		assertEquals("Should read 3 tasks.", 3, readTasks.size());
+		assertEquals("Should have changed task name.", "Test Task 1 renamed", readTasks.get(0).getName());
+		assertEquals("Should have assigned ID.", "googleId", readTasks.get(0).getId());
+		assertTrue("Should be done.", readTasks.get(1).isDone());
+		assertEquals("Should keep milliseconds.", new Date(1415602800123L), ((DeadlineTask) readTasks.get(1)).getEndDate());
+		assertEquals("Should have added task.", "Test Task 4", readTasks.get(2).getName());
+
+		Global.STORAGE_FORMAT = Global.StorageFormat.JSON;
+		RecordFile.deleteHeaps(Global.FILENAME);
+		clearFile();
+	}
+
+	@Test
+	public void testKeepingRecordFileInListOrder() {
+		clearFile();
+		Global.STORAGE_FORMAT = Global.StorageFormat.RECORDS;
+		writeTasksNamed("Test Task");
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		readTasks.get(2).setName("Last Task");
+		TaskCommander.storage.appendToJournal(Storage.Operation.SET, 2, readTasks.get(2));
+		TaskCommander.storage.appendToJournal(Storage.Operation.REMOVE, 0, null);
+		TaskCommander.storage.appendToJournal(Storage.Operation.ADD, 2, new FloatingTask("Added Task"));
+		TaskCommander.storage.flush();
+
+		readTasks = TaskCommander.storage.readFromFile();
+		TaskCommander.storage.replayJournal(readTasks);
+		assertEquals("Should read 3 tasks.", 3, readTasks.size());
+		assertEquals("Should keep the order of the tasks.", "Last Task", readTasks.get(1).getName());
+		assertEquals("Should keep added task last.", "Added Task", readTasks.get(2).getName());
+
+		Global.STORAGE_FORMAT = Global.StorageFormat.JSON;
+		RecordFile.deleteHeaps(Global.FILENAME);
+		clearFile();
+	}
+
+	@Test
+	public void testLoadingLastGoodCopyOfDamagedRecordFile() throws IOException {
+		clearFile();
+		Global.STORAGE_FORMAT = Global.StorageFormat.RECORDS;
+		writeTasksNamed("Old Task");
+		writeTasksNamed("New Task");
+		String backupFileName = Global.FILENAME + Global.BACKUP_FILE_SUFFIX;
+		RandomAccessFile file = new RandomAccessFile(backupFileName, "rw");
+		file.seek(file.length());
+		file.write(new byte[RecordFile.RECORD_SIZE / 2]);
+		file.close();
+		long backupLength = new File(backupFileName).length();
+
+		file = new RandomAccessFile(Global.FILENAME, "rw");
+		file.seek(RecordFile.HEADER_SIZE + 1);
+		file.write(9);
+		file.close();
+		assertFalse("Damaged file should not be read.", RecordFile.verify(Global.FILENAME));
+
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		assertEquals("Should load all tasks of the last good copy.", 3, readTasks.size());
+		assertEquals("Should load the last good copy.", "Old Task", readTasks.get(0).getName());
+		assertEquals("Should leave the last good copy as it is.", backupLength,
+				new File(backupFileName).length());
+
+		Global.STORAGE_FORMAT = Global.StorageFormat.JSON;
+		RecordFile.deleteHeaps(Global.FILENAME);
+		clearFile();
+	}
+
+	@Test
+	public void testWritingLargeFileInParallel() throws IOException {
+		clearFile();
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		for (int i = 0; i < 60000; i++) {
+			tasks.add(new DeadlineTask("Test Task " + i, new Date(1415602800000L + i * 1000L)));
+		}
+		TaskCommander.storage.writeToFile(tasks);
+		assertFalse("Written task should not be dirty.", tasks.get(59999).isDirty());
+		assertTrue("Written file should match its checksums.", StorageChecksum.verify(Global.FILENAME));
+		assertEquals("Make sure there are 60000 lines", 60000, countLinesInFile());
+
+		tasks.get(30000).setName("Test Task changed");
+		Global.compressing = true;
+		TaskCommander.storage.writeToFile(tasks);
+		Global.compressing = false;
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		assertEquals("Should read all tasks.", 60000, readTasks.size());
+		assertEquals("Should keep order of tasks.", "Test Task 29999", readTasks.get(29999).getName());
+		assertEquals("Should write changed task name.", "Test Task changed", readTasks.get(30000).getName());
+		assertEquals("Should have same end date.", new Date(1415602800000L + 59999 * 1000L),
+				((DeadlineTask) readTasks.get(59999)).getEndDate());
+		clearFile();
+	}
+
+	@Test
+	public void testReadingFileChangedByOtherProgram() throws IOException {
+		clearFile();
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		tasks.add(new FloatingTask("Test Task 1"));
+		tasks.add(new FloatingTask("Test Task 2"));
+		tasks.add(new FloatingTask("Test Task 3"));
+		TaskCommander.storage.writeToFile(tasks);
+		assertNull("Should not read own changes.", TaskCommander.storage.readChangedFile());
+
+		GsonBuilder gsonBuilder = new GsonBuilder();
+		gsonBuilder.registerTypeAdapter(Task.class, new TaskAdapter());
+		Gson gson = gsonBuilder.create();
+		BufferedWriter bw = new BufferedWriter(new FileWriter(new File(Global.FILENAME), false));
+		bw.write(gson.toJson(tasks.get(0), Task.class));
+		bw.newLine();
+		bw.write(gson.toJson(new FloatingTask("Test Task 2 changed"), Task.class));
+		bw.newLine();
+		bw.write(gson.toJson(new FloatingTask("Test Task 4"), Task.class));
+		bw.newLine();
+		bw.close();
+
+		StorageChange change = TaskCommander.storage.readChangedFile();
+		assertNotNull("Should read the change.", change);
+		assertEquals("Should read 3 tasks.", 3, change.getTasks().size());
+		assertSame("Should keep the unchanged task.", tasks.get(0), change.getTasks().get(0));
+		assertEquals("Should add 2 tasks.", 2, change.getAddedTasks().size());
+		assertEquals("Should remove 2 tasks.", 2, change.getRemovedTasks().size());
+		assertEquals("Should keep order of tasks.", "Test Task 4", change.getTasks().get(2).getName());
+		assertTrue("Should be current.", TaskCommander.storage.isCurrent(change));
+		clearFile();
+	}
+
+	@Test
+	public void testApplyingFileChangedByOtherProgram() throws IOException {
+		clearFile();
+		Data data = Data.getInstance();
+		data.loadFromPermanentStorage();
+		data.addFloatingTask("Test Task 1");
+		data.addFloatingTask("Test Task 2");
+		data.saveToPermanentStorage();
+		data.addFloatingTask("Test Task 3");
+
+		BufferedWriter bw = new BufferedWriter(new FileWriter(new File(Global.FILENAME), true));
+		GsonBuilder gsonBuilder = new GsonBuilder();
+		gsonBuilder.registerTypeAdapter(Task.class, new TaskAdapter());
+		bw.write(gsonBuilder.create().toJson(new FloatingTask("Test Task 4"), Task.class));
+		bw.newLine();
+		bw.close();
+
+		StorageChange change = TaskCommander.storage.readChangedFile();
+		assertNotNull("Should read the change.", change);
+		assertNotNull("Should apply the change.", data.applyStorageChange(change));
+		ArrayList<Task> mergedTasks = data.getAllTasks();
+		assertEquals("Should keep pending and added tasks.", 4, mergedTasks.size());
+		assertEquals("Should add task of the file.", "Test Task 4", mergedTasks.get(2).getName());
+		assertEquals("Should keep pending task.", "Test Task 3", mergedTasks.get(3).getName());
+
+		data.loadFromPermanentStorage();
+		assertEquals("Should write merged tasks.", 4, data.getAllTasks().size());
+		assertNull("Should not read own changes.", TaskCommander.storage.readChangedFile());
+		clearFile();
+		data.loadFromPermanentStorage();
+	}
+
+	@Test
+	public void testFollowingWriterWhenReadOnly() {
+		clearFile();
+		Storage writer = TaskCommander.storage;
+		ArrayList<Task> writerTasks = writer.readFromFile();
+		writerTasks.add(new FloatingTask("Test Task 1"));
+		writerTasks.add(new FloatingTask("Test Task 2"));
+		writer.writeToFile(writerTasks);
+
+		Storage reader = new Storage();
+		ArrayList<Task> tasks = reader.readFromFile();
+		reader.replayJournal(tasks);
+		assertFalse("First Storage should write.", writer.isReadOnly());
+		assertTrue("Second Storage should be read-only.", reader.isReadOnly());
+		assertEquals("Should read 2 tasks.", 2, tasks.size());
+
+		writer.appendToJournal(Storage.Operation.ADD, 2, new FloatingTask("Test Task 3"));
+		writer.appendToJournal(Storage.Operation.SET, 0, new FloatingTask("Test Task 1 changed"));
+		writer.flush();
+		assertEquals("Should read appended records.", 2, reader.tailJournal(tasks));
+		assertEquals("Should read 3 tasks.", 3, tasks.size());
+		assertEquals("Should read changed task.", "Test Task 1 changed", tasks.get(0).getName());
+		assertEquals("Should read records once.", 0, reader.tailJournal(tasks));
+
+		long length = new File(Global.FILENAME).length();
+		reader.writeToFile(new ArrayList<Task>());
+		assertEquals("Read-only Storage should not write.", length, new File(Global.FILENAME).length());
+
+		writerTasks = writer.readFromFile();
+		writer.replayJournal(writerTasks);
+		writer.writeToFile(writerTasks);
+		assertEquals("Should wait for the rewritten file.", 0, reader.tailJournal(tasks));
+		assertNull("Rewritten file should hold the tasks read.", reader.readChangedFile());
+		writer.appendToJournal(Storage.Operation.REMOVE, 1, null);
+		writer.flush();
+		assertEquals("Should read the new journal.", 1, reader.tailJournal(tasks));
+		assertEquals("Should keep order of tasks.", "Test Task 3", tasks.get(1).getName());
+
+		reader.close();
+		clearFile();
+	}
+
+	@Test
+	public void testWritingOnlyChangedTasksAgain() {
+		clearFile();
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		FloatingTask floatingTask = new FloatingTask("Test Task 1");
+		tasks.add(floatingTask);
+		tasks.add(new FloatingTask("Test Task 2"));
+		assertTrue("New task should be dirty.", floatingTask.isDirty());
+
+		TaskCommander.storage.writeToFile(tasks);
+		assertFalse("Written task should not be dirty.", floatingTask.isDirty());
+
+		floatingTask.setName("Test Task 3");
+		assertTrue("Changed task should be dirty.", floatingTask.isDirty());
+		TaskCommander.storage.writeToFile(tasks);
+
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		assertEquals("Should read 2 tasks.", 2, readTasks.size());
+		assertEquals("Should write changed task name.", "Test Task 3", readTasks.get(0).getName());
+		assertEquals("Should keep unchanged task.", "Test Task 2", readTasks.get(1).getName());
+		assertFalse("Read task should not be dirty.", readTasks.get(0).isDirty());
+		clearFile();
+	}
+
+	@Test
+	public void testNotKeepingLinesBeyondMemoryBudget() throws IOException {
+		clearFile();
+		Global.MEMORY_BUDGET = 2;
+		writeTasksNamed("Test Task");
+		Global.MEMORY_BUDGET = Integer.MAX_VALUE;
+
+		GsonBuilder gsonBuilder = new GsonBuilder();
+		gsonBuilder.registerTypeAdapter(Task.class, new TaskAdapter());
+		BufferedWriter bw = new BufferedWriter(new FileWriter(new File(Global.FILENAME), true));
+		bw.write(gsonBuilder.create().toJson(new FloatingTask("Test Task 4"), Task.class));
+		bw.newLine();
+		bw.close();
+		assertNull("Should not keep the lines of more tasks than the budget.",
+				TaskCommander.storage.readChangedFile());
+		clearFile();
+	}
+
+	@Test
+	public void testWritingJournalOnFlushOnly() {
+		clearFile();
+		Global.DURABILITY = Global.Durability.ON_EXIT;
+		TaskCommander.storage.appendToJournal(Storage.Operation.ADD, 0, new FloatingTask("Test Task 1"));
+		TaskCommander.storage.appendToJournal(Storage.Operation.ADD, 1, new FloatingTask("Test Task 2"));
+		assertFalse("Journal should not be written before flushing.", new File(Global.JOURNAL_FILENAME).exists());
+
+		TaskCommander.storage.flush();
+		Global.DURABILITY = Global.Durability.EVERY_COMMAND;
+		assertTrue("Journal should be written after flushing.", new File(Global.JOURNAL_FILENAME).exists());
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		TaskCommander.storage.replayJournal(readTasks);
+		assertEquals("Should replay 2 records.", 2, readTasks.size());
+		clearFile();
+	}
+
+	@Test
+	public void testWritingDiscardsUnwrittenJournalRecords() {
+		clearFile();
+		Global.DURABILITY = Global.Durability.ON_EXIT;
+		TaskCommander.storage.appendToJournal(Storage.Operation.ADD, 0, new FloatingTask("Test Task 1"));
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		tasks.add(new FloatingTask("Test Task 1"));
+		TaskCommander.storage.writeToFile(tasks);
+		TaskCommander.storage.flush();
+		Global.DURABILITY = Global.Durability.EVERY_COMMAND;
+
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		TaskCommander.storage.replayJournal(readTasks);
+		assertEquals("Should not replay records contained in the file.", 1, readTasks.size());
+		clearFile();
+	}
+
+	@Test
+	public void testWritingJournalBeforeCommandReturns() {
+		clearFile();
+		Data data = Data.getInstance();
+		data.loadFromPermanentStorage();
+		Global.DURABILITY = Global.Durability.EVERY_COMMAND;
+		data.addFloatingTask("Test Task 1");
+		assertTrue("Journal should be written when the command returns.",
+				new File(Global.JOURNAL_FILENAME).length() > 0);
+		clearFile();
+		data.loadFromPermanentStorage();
+	}
+
+	@Test
+	public void testLoadingLastGoodCopyOfDamagedFile() throws IOException {
+		clearFile();
+		writeTasksNamed("Old Task");
+		writeTasksNamed("New Task");
+		assertTrue("Written file should match its checksums.", StorageChecksum.verify(Global.FILENAME));
+
+		RandomAccessFile file = new RandomAccessFile(Global.FILENAME, "rw");
+		file.seek(20);
+		file.write('X');
+		file.close();
+		assertFalse("Damaged file should not match its checksums.", StorageChecksum.verify(Global.FILENAME));
+
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		assertEquals("Should load the last good copy.", "Old Task", readTasks.get(0).getName());
+		String damagedFileName = Global.FILENAME + Global.DAMAGED_FILE_SUFFIX;
+		assertEquals("Should tell that the damaged file was kept.",
+				String.format(Global.MESSAGE_FILE_DAMAGED, damagedFileName),
+				TaskCommander.storage.takeRestoredMessage());
+		assertNull("Should tell only once.", TaskCommander.storage.takeRestoredMessage());
+		assertEquals("Should keep the damaged file.", new File(Global.FILENAME).length(),
+				new File(damagedFileName).length());
+		clearFile();
+	}
+
+	@Test
+	public void testLoadingFileEditedWhileClosed() throws IOException {
+		clearFile();
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		tasks.add(new FloatingTask("one"));
+		TaskCommander.storage.writeToFile(tasks);
+		tasks.add(new FloatingTask("two"));
+		TaskCommander.storage.writeToFile(tasks);
+		TaskCommander.storage.appendToJournal(Storage.Operation.ADD, 2, new FloatingTask("three"));
+		TaskCommander.storage.flush();
+
+		GsonBuilder gsonBuilder = new GsonBuilder();
+		gsonBuilder.registerTypeAdapter(Task.class, new TaskAdapter());
+		BufferedWriter bw = new BufferedWriter(new FileWriter(new File(Global.FILENAME), true));
+		bw.write(gsonBuilder.create().toJson(new FloatingTask("script"), Task.class));
+		bw.newLine();
+		bw.close();
+		assertFalse("Edited file should not match its checksums.", StorageChecksum.verify(Global.FILENAME));
+
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		TaskCommander.storage.replayJournal(readTasks);
+		assertNull("Should not take the edit for damage.", TaskCommander.storage.takeRestoredMessage());
+		assertEquals("Should load the edited file and its journal.", 4, readTasks.size());
+		assertEquals("Should load the task of the script.", "script", readTasks.get(2).getName());
+		assertEquals("Should replay the journal.", "three", readTasks.get(3).getName());
+		clearFile();
+	}
+
+	@Test
+	public void testKeepingChecksumsOutOfFile() throws IOException {
+		clearFile();
+		writeTasksNamed("Old Task");
+		writeTasksNamed("New Task");
+		assertTrue("Checksums should be kept in their own file.", new File(
+				StorageChecksum.getChecksumFileName(Global.FILENAME)).exists());
+		assertEquals("File should only hold tasks.", 3, countLinesInFile());
+
+		BufferedReader reader = new BufferedReader(new FileReader(Global.FILENAME));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			assertFalse("File should have no checksum footer.",
+					line.startsWith(StorageChecksum.FOOTER_MAGIC));
+		}
+		reader.close();
+
+		String backupFileName = Global.FILENAME + Global.BACKUP_FILE_SUFFIX;
+		assertTrue("Last good copy should match its own checksums.",
+				StorageChecksum.verify(backupFileName)
+				&& StorageChecksum.hasChecksums(backupFileName));
+		clearFile();
+	}
+
+	@Test
+	public void testVerifyingChecksumsOfEarlierVersions() throws IOException {
+		clearFile();
+		writeTasksNamed("Old Task");
+		byte[] data = Files.readAllBytes(Paths.get(Global.FILENAME));
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+		String checksumFileName = StorageChecksum.getChecksumFileName(Global.FILENAME);
+		BufferedWriter bw = new BufferedWriter(new FileWriter(new File(checksumFileName), false));
+		bw.write(StorageChecksum.FOOTER_MAGIC + "\t" + StorageChecksum.SEGMENT_SIZE + "\t"
+				+ data.length + "\t" + Long.toHexString(crc.getValue()));
+		bw.newLine();
+		bw.close();
+		assertTrue("Should verify CRC32 checksums.", StorageChecksum.verify(Global.FILENAME));
+		clearFile();
+	}
+
+	@Test
+	public void testLoadingAfterWritesStoppedAtRandomOffsets() throws IOException {
+		Random random = new Random(2103);
+		String tempFileName = Global.FILENAME + Global.TEMP_FILE_SUFFIX;
+		String backupFileName = Global.FILENAME + Global.BACKUP_FILE_SUFFIX;
+		for (int i = 0; i < 30; i++) {
+			clearFile();
+			writeTasksNamed("Old Task");
+			writeTasksNamed("New Task");
+			long length = new File(Global.FILENAME).length();
+			long offset = (long) (random.nextDouble() * length);
+
+			switch (i % 3) {
+			case 0: // Stopped while writing the temporary file
+				copyFile(Global.FILENAME, tempFileName, offset);
+				assertLoadedTasksNamed("New Task");
+				break;
+
+			case 1: // Stopped after moving the file to its backup
+				new File(StorageChecksum.getChecksumFileName(Global.FILENAME)).renameTo(
+						new File(StorageChecksum.getChecksumFileName(backupFileName)));
+				new File(Global.FILENAME).renameTo(new File(backupFileName));
+				assertLoadedTasksNamed("New Task");
+				break;
+
+			default: // File cut off in place
+				RandomAccessFile file = new RandomAccessFile(Global.FILENAME, "rw");
+				file.setLength(offset);
+				file.close();
+				ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+				assertEquals("Should load all tasks of one copy.", 3, readTasks.size());
+				break;
+			}
+		}
+		clearFile();
+	}
+
+	private void writeTasksNamed(String name) {
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		for (int i = 0; i < 3; i++) {
+			tasks.add(new FloatingTask(name));
+		}
+		TaskCommander.storage.writeToFile(tasks);
+	}
+
+	private void assertLoadedTasksNamed(String name) {
+		ArrayList<Task> readTasks = TaskCommander.storage.readFromFile();
+		assertEquals("Should load all tasks.", 3, readTasks.size());
+		for (Task task : readTasks) {
+			assertEquals("Should load tasks of the right copy.", name, task.getName());
+		}
+	}
+
+	private void copyFile(String fileName, String copyFileName, long length) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		byte[] bytes = new byte[(int) length];
+		file.readFully(bytes);
+		file.close();
+		RandomAccessFile copy = new RandomAccessFile(copyFileName, "rw");
+		copy.setLength(0);
+		copy.write(bytes);
+		copy.close();
+	}
+
+	private void appendLineToJournal(String line) {
+		try {
+			BufferedWriter bw = new BufferedWriter(new FileWriter(new File(Global.JOURNAL_FILENAME), true));
+			bw.write(line);
+			bw.newLine();
+			bw.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 	private void writeTasksToFile(ArrayList<Task> tasks) {
 		GsonBuilder gsonBuilder = new GsonBuilder();
 		gsonBuilder.registerTypeAdapter(Task.class, new TaskAdapter());
@@ -117,8 +765,11 @@ public class StorageTest {
 		try {
 			BufferedReader br = new BufferedReader(new FileReader(file));
 			int count = 0;
-			while (br.readLine()!= null) {
-				count++;
+			String line;
+			while ((line = br.readLine())!= null) {
+				if (!line.startsWith(StorageChecksum.FOOTER_MAGIC)) {
+					count++;
+				}
 			}
 			br.close();
 			return count;
@@ -134,6 +785,14 @@ public class StorageTest {
 		try {
 			BufferedWriter bw = new BufferedWriter(new FileWriter(new File(Global.FILENAME), false));
 			bw.close();
+			TaskCommander.storage.flush();
+			new File(Global.FILENAME + Global.BACKUP_FILE_SUFFIX).delete();
+			new File(Global.FILENAME + Global.TEMP_FILE_SUFFIX).delete();
+			new File(StorageChecksum.getChecksumFileName(Global.FILENAME)).delete();
+			new File(StorageChecksum.getChecksumFileName(
+					Global.FILENAME + Global.BACKUP_FILE_SUFFIX)).delete();
+			new File(Global.FILENAME + Global.DAMAGED_FILE_SUFFIX).delete();
+			new File(Global.JOURNAL_FILENAME).delete();
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 		} catch (IOException e) {
@@ -0,0 +1,214 @@
+package com.taskcommander;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Date;
+
+import com.google.api.client.util.DateTime;
+
+//@author A0112828H
+/**
+ * Encodes and decodes tasks in the compact binary storage format.
+ *
+ * A binary storage file starts with the magic bytes "TCBF" and a version byte,
+ * followed by one record per task:
+ * a type tag byte, a flag byte (done, edited, has ID, has updated time),
+ * the name and the optional ID as varint length and UTF-8 bytes,
+ * the dates of the task as epoch milliseconds and, if present, the
+ * updated time as epoch milliseconds, a date only byte and a varint time zone shift.
+ */
+public class BinaryTaskCodec {
+
+	public static final byte[] MAGIC = { 'T', 'C', 'B', 'F' };
+	public static final byte VERSION = 1;
+
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	private static final int FLAG_DONE = 1;
+	private static final int FLAG_EDITED = 1 << 1;
+	private static final int FLAG_ID = 1 << 2;
+	private static final int FLAG_UPDATED = 1 << 3;
+
+	/**
+	 * Writes the header of a binary storage file.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void writeHeader(DataOutput out) throws IOException {
+		out.write(MAGIC);
+		out.writeByte(VERSION);
+	}
+
+	/**
+	 * Checks if the given bytes start with the header of a binary storage file.
+	 *
+	 * @param bytes
+	 * @param length number of valid bytes
+	 * @return true if so, false if not
+	 */
+	public static boolean isHeader(byte[] bytes, int length) {
+		if (length < MAGIC.length + 1) {
+			return false;
+		}
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (bytes[i] != MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads and checks the header of a binary storage file.
+	 *
+	 * @param in
+	 * @throws IOException if the header is invalid or of an unknown version
+	 */
+	public static void readHeader(DataInput in) throws IOException {
+		byte[] bytes = new byte[MAGIC.length + 1];
+		in.readFully(bytes);
+		if (!isHeader(bytes, bytes.length) || bytes[MAGIC.length] != VERSION) {
+			throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+		}
+	}
+
+	/**
+	 * Writes the given task as a single record.
+	 *
+	 * @param out
+	 * @param task
+	 * @throws IOException
+	 */
+	public static void write(DataOutput out, Task task) throws IOException {
+		int flags = 0;
+		if (task.isDone()) {
+			flags |= FLAG_DONE;
+		}
+		if (task.isEdited()) {
+			flags |= FLAG_EDITED;
+		}
+		if (task.getId() != null) {
+			flags |= FLAG_ID;
+		}
+		if (task.getUpdated() != null) {
+			flags |= FLAG_UPDATED;
+		}
+		out.writeByte(task.getType().ordinal());
+		out.writeByte(flags);
+		writeString(out, task.getName());
+		if (task.getId() != null) {
+			writeString(out, task.getId());
+		}
+
+		switch (task.getType()) {
+		case DEADLINE:
+			out.writeLong(((DeadlineTask) task).getEndDate().getTime());
+			break;
+
+		case TIMED:
+			out.writeLong(((TimedTask) task).getStartDate().getTime());
+			out.writeLong(((TimedTask) task).getEndDate().getTime());
+			break;
+
+		default:
+			break;
+		}
+
+		if (task.getUpdated() != null) {
+			DateTime updated = task.getUpdated();
+			out.writeLong(updated.getValue());
+			out.writeBoolean(updated.isDateOnly());
+			writeVarint(out, zigZag(updated.getTimeZoneShift()));
+		}
+	}
+
+	/**
+	 * Reads a single record.
+	 *
+	 * @param in
+	 * @return task
+	 * @throws IOException if the record is invalid
+	 */
+	public static Task read(DataInput in) throws IOException {
+		int type = in.readUnsignedByte();
+		int flags = in.readUnsignedByte();
+		String name = readString(in);
+		String id = null;
+		if ((flags & FLAG_ID) != 0) {
+			id = readString(in);
+		}
+
+		Task task;
+		if (type == Task.TaskType.FLOATING.ordinal()) {
+			task = new FloatingTask(name);
+		} else if (type == Task.TaskType.DEADLINE.ordinal()) {
+			task = new DeadlineTask(name, new Date(in.readLong()));
+		} else if (type == Task.TaskType.TIMED.ordinal()) {
+			Date startDate = new Date(in.readLong());
+			task = new TimedTask(name, startDate, new Date(in.readLong()));
+		} else {
+			throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+		}
+
+		task.setId(id);
+		task.setDone((flags & FLAG_DONE) != 0);
+		task.setEdited((flags & FLAG_EDITED) != 0);
+		if ((flags & FLAG_UPDATED) != 0) {
+			long value = in.readLong();
+			boolean isDateOnly = in.readBoolean();
+			int timeZoneShift = unZigZag(readVarint(in));
+			task.setUpdated(new DateTime(isDateOnly, value, timeZoneShift));
+		}
+		return task;
+	}
+
+	// Writes a string as varint length and UTF-8 bytes.
+	private static void writeString(DataOutput out, String string) throws IOException {
+		byte[] bytes = string.getBytes(CHARSET);
+		writeVarint(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		int length = readVarint(in);
+		if (length < 0) {
+			throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, CHARSET);
+	}
+
+	// Writes an unsigned int in 7 bit groups, lowest group first.
+	private static void writeVarint(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int readVarint(DataInput in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+	}
+
+	// Maps signed ints to unsigned ones, so small negative values stay short.
+	private static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,226 @@
+package com.taskcommander;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+//@author A0112828H
+/**
+ * Compresses the data of storage files in independent blocks using Deflater.
+ *
+ * A compressed file starts with the magic bytes "TCZB" and a version byte,
+ * followed by blocks of at most BLOCK_SIZE bytes of data, each written as its
+ * uncompressed length, its compressed length and the compressed bytes.
+ * Blocks are decompressed one at a time while reading, so only a single
+ * block is held in memory.
+ */
+public class BlockCompression {
+
+	public static final byte[] MAGIC = { 'T', 'C', 'Z', 'B' };
+	public static final byte VERSION = 1;
+	public static final int BLOCK_SIZE = 256 * 1024;
+
+	/**
+	 * Checks if the given bytes start with the header of a compressed file.
+	 *
+	 * @param bytes
+	 * @param length number of valid bytes
+	 * @return true if so, false if not
+	 */
+	public static boolean isHeader(byte[] bytes, int length) {
+		if (length < MAGIC.length + 1) {
+			return false;
+		}
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (bytes[i] != MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Output stream compressing the data written to it block by block.
+	 */
+	public static class Output extends OutputStream {
+		private DataOutputStream out;
+		private Deflater deflater;
+		private byte[] block = new byte[BLOCK_SIZE];
+		private byte[] compressed = new byte[BLOCK_SIZE + BLOCK_SIZE / 8 + 64];
+		private int _blockLength;
+
+		/**
+		 * Returns an Output writing to the given stream.
+		 *
+		 * @param out
+		 * @param level Deflater compression level, from 0 to 9 or -1 for the default
+		 * @throws IOException
+		 */
+		public Output(OutputStream out, int level) throws IOException {
+			this.out = new DataOutputStream(out);
+			deflater = new Deflater(level);
+			this.out.write(MAGIC);
+			this.out.writeByte(VERSION);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (_blockLength == BLOCK_SIZE) {
+				writeBlock();
+			}
+			block[_blockLength++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			while (length > 0) {
+				if (_blockLength == BLOCK_SIZE) {
+					writeBlock();
+				}
+				int part = Math.min(length, BLOCK_SIZE - _blockLength);
+				System.arraycopy(bytes, offset, block, _blockLength, part);
+				_blockLength += part;
+				offset += part;
+				length -= part;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				if (_blockLength > 0) {
+					writeBlock();
+				}
+			} finally {
+				deflater.end();
+				out.close();
+			}
+		}
+
+		private void writeBlock() throws IOException {
+			deflater.reset();
+			deflater.setInput(block, 0, _blockLength);
+			deflater.finish();
+			int compressedLength = 0;
+			while (!deflater.finished()) {
+				if (compressedLength == compressed.length) {
+					byte[] larger = new byte[compressed.length * 2];
+					System.arraycopy(compressed, 0, larger, 0, compressedLength);
+					compressed = larger;
+				}
+				compressedLength += deflater.deflate(compressed, compressedLength,
+						compressed.length - compressedLength);
+			}
+			out.writeInt(_blockLength);
+			out.writeInt(compressedLength);
+			out.write(compressed, 0, compressedLength);
+			_blockLength = 0;
+		}
+	}
+
+	/**
+	 * Input stream decompressing a compressed file block by block.
+	 */
+	public static class Input extends InputStream {
+		private DataInputStream in;
+		private Inflater inflater = new Inflater();
+		private byte[] block = new byte[BLOCK_SIZE];
+		private byte[] compressed = new byte[BLOCK_SIZE];
+		private int _blockLength;
+		private int _position;
+		private boolean _ended;
+
+		/**
+		 * Returns an Input reading from the given stream, which must be positioned
+		 * at the header.
+		 *
+		 * @param in
+		 * @throws IOException if the header is invalid or of an unknown version
+		 */
+		public Input(InputStream in) throws IOException {
+			this.in = new DataInputStream(in);
+			byte[] header = new byte[MAGIC.length + 1];
+			this.in.readFully(header);
+			if (!isHeader(header, header.length) || header[MAGIC.length] != VERSION) {
+				throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (_position == _blockLength && !readBlock()) {
+				return -1;
+			}
+			return block[_position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+			if (_position == _blockLength && !readBlock()) {
+				return -1;
+			}
+			int part = Math.min(length, _blockLength - _position);
+			System.arraycopy(block, _position, bytes, offset, part);
+			_position += part;
+			return part;
+		}
+
+		@Override
+		public void close() throws IOException {
+			inflater.end();
+			in.close();
+		}
+
+		// Decompresses the next block. Returns false at the end of the file.
+		private boolean readBlock() throws IOException {
+			if (_ended) {
+				return false;
+			}
+			int blockLength;
+			try {
+				blockLength = in.readInt();
+			} catch (EOFException e) {
+				_ended = true;
+				return false;
+			}
+			int compressedLength = in.readInt();
+			if (blockLength <= 0 || blockLength > BLOCK_SIZE || compressedLength < 0) {
+				throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+			}
+			if (compressedLength > compressed.length) {
+				compressed = new byte[compressedLength];
+			}
+			in.readFully(compressed, 0, compressedLength);
+
+			inflater.reset();
+			inflater.setInput(compressed, 0, compressedLength);
+			try {
+				int length = 0;
+				while (length < blockLength && !inflater.finished()) {
+					int inflated = inflater.inflate(block, length, blockLength - length);
+					if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						break;
+					}
+					length += inflated;
+				}
+				if (length != blockLength) {
+					throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+				}
+			} catch (DataFormatException e) {
+				throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED, e);
+			}
+			_blockLength = blockLength;
+			_position = 0;
+			return true;
+		}
+	}
+}
@@ -40,6 +40,16 @@ public class Controller {
     private boolean isSearchRestricted;
     private ArrayList<String> searchedWordsAndPhrases;
 
+    //@author A0112828H
+    // Query and version of Data the displayed tasks were found for, and the number of
+    // times they were displayed again or had to be found again.
+    private TaskQuery displayedQuery;
+    private long displayedVersion = -1;
+    private long displayCacheHits;
+    private long displayCacheMisses;
+
+    //@author A0128620M
+
     // Singleton instance of Controller.
     private static Controller theOne;
 
@@ -74,6 +84,10 @@ public class Controller {
         Global.CommandType commandType = TaskCommander.parser
             .determineCommandType(userCommand);
 
+        if (isChangingTasks(commandType) && TaskCommander.data.isReadOnly()) {
+            return Global.MESSAGE_READ_ONLY;
+        }
+
         switch (commandType) {
           case ADD:
               return addTask(userCommand);
@@ -105,6 +119,7 @@ public class Controller {
               return undoTask(userCommand);
   
           case EXIT:
+              TaskCommander.data.prepareForExit();
               System.exit(0);
   
           default:
@@ -112,27 +127,112 @@ public class Controller {
         }
     }
 	
+    /**
+     * Checks if the given command changes the tasks, which another
+     * TaskCommander writing the storage file does not allow.
+     * 
+     * @param commandType
+     * @return true if the command changes the tasks
+     */
+    private boolean isChangingTasks(Global.CommandType commandType) {
+        switch (commandType) {
+          case ADD:
+          case UPDATE:
+          case DONE:
+          case OPEN:
+          case DELETE:
+          case CLEAR:
+          case SYNC:
+          case UNDO:
+              return true;
+
+          default:
+              return false;
+        }
+    }
+
     /**
      * Returns the tasks which are supposed to be displayed by the UI according
-     * to the current display settings.
+     * to the current display settings. The tasks displayed last are returned
+     * again if neither the display settings nor the tasks changed since.
      * 
      * @return tasks to be displayed
      */
     public ArrayList<Task> getDisplayedTasks() {
+        //@author A0112828H
+        TaskQuery query = getDisplayQuery();
+        if (displayedTasks != null && query.equals(displayedQuery)
+            && TaskCommander.data.getVersion() == displayedVersion) {
+            displayCacheHits++;
+            return displayedTasks;
+        }
+        displayCacheMisses++;
+
+        //@author A0128620M
         if (noDisplayRestrictions()) {
-            displayedTasks = TaskCommander.data.getCopiedTasks();
+            displayedTasks = TaskCommander.data.getTasks();
         } else {
-            displayedTasks = TaskCommander.data.getCopiedTasks(
-                isDateRestricted, startDateRestriction, endDateRestriction,
-                isTaskTypeRestricted, areFloatingTasksDisplayed,
-                areDeadlineTasksDisplayed, areTimedTasksDisplayed,
-                isStatusRestricted, areDoneTasksDisplayed,
-                areOpenTasksDisplayed, isSearchRestricted,
-                searchedWordsAndPhrases);
+            displayedTasks = TaskCommander.data.getTasks(query);
         }
+
+        //@author A0112828H
+        // Finding the tasks may load or page out tasks, which changes the version.
+        displayedQuery = query;
+        displayedVersion = TaskCommander.data.getVersion();
         return displayedTasks;
     }
 
+    /**
+     * Returns how often getDisplayedTasks() returned the tasks displayed last
+     * again, as neither the display settings nor the tasks changed.
+     * 
+     * @return number of cache hits
+     */
+    public long getDisplayCacheHits() {
+        return displayCacheHits;
+    }
+
+    /**
+     * Returns how often getDisplayedTasks() had to find the tasks to be
+     * displayed.
+     * 
+     * @return number of cache misses
+     */
+    public long getDisplayCacheMisses() {
+        return displayCacheMisses;
+    }
+
+    //@author A0112828H
+    /**
+     * Returns how Data finds the tasks to be displayed according to the
+     * current display settings, e.g. "[done] through TYPE_STATUS_BITMAP: ...".
+     * 
+     * @return description of the query plan
+     */
+    public String explainDisplayedTasks() {
+        return TaskCommander.data.explain(getDisplayQuery()).toString();
+    }
+
+    // Returns the query of the tasks matching the current display settings.
+    private TaskQuery getDisplayQuery() {
+        TaskQuery query = TaskQuery.ALL;
+        if (isDateRestricted) {
+            query = query.restrictDates(startDateRestriction, endDateRestriction);
+        }
+        if (isTaskTypeRestricted) {
+            query = query.restrictTypes(areFloatingTasksDisplayed,
+                areDeadlineTasksDisplayed, areTimedTasksDisplayed);
+        }
+        if (isStatusRestricted) {
+            query = query.restrictStatus(areDoneTasksDisplayed);
+        }
+        if (isSearchRestricted) {
+            query = query.restrictWords(searchedWordsAndPhrases);
+        }
+        return query;
+    }
+
+    //@author A0128620M
     /**
      * Returns the current display settings consolidated as a String.
      * 
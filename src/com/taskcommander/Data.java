@@ -1,6 +1,11 @@
 package com.taskcommander;
 import java.util.Date;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Stack;
 import java.util.Collections;
 import java.util.logging.Level;
@@ -13,13 +18,18 @@ import com.taskcommander.Global.CommandType;
  * component.
  * Upon initialization, the contents of the permanent storage will be pulled. After each 
  * command the data will be pushed to the permanent storage.
+ * If there are more tasks than the memory budget allows, the least recently used tasks are
+ * paged out into the columns of a TaskPager when tasks are displayed, and paged back in
+ * when a command needs them.
+ * If the storage is partitioned, only the partitions a display or command needs are loaded.
+ * The permanent storage used is the StorageBackend chosen by Global.STORAGE_BACKEND.
  */
 
 public class Data {
 
 	//@author A0128620M
 	private static Logger logger = Logger.getLogger(Controller.class.getName());
-	private ArrayList<Task> tasks;
+	private TaskList tasks;
 
 	// Singleton instance for Data
 	private static Data theOne;
@@ -46,11 +56,28 @@ public class Data {
 	private Stack<Task> changedTypeTasks;
 	private Stack<CommandType> operationHistory;
 	private Stack<Global.CommandType> undoHistory;
-	private Stack<Integer> doneTasks;
-	private Stack<Integer> openTasks;
+	private Stack<Task> doneTasks;
+	private Stack<Task> openTasks;
+
+	//@author A0112828H
+	// Tasks paged out of memory and the time each task in memory was last used.
+	private TaskPager pagedTasks;
+	private IdentityHashMap<Task, Long> lastUsed;
+	private long useCount;
+
+	// Keys of the storage partitions in the tasks list, in the order they were loaded
+	private ArrayList<String> loadedPartitions;
+
+	// Sum of the versions of the tasks lists replaced so far
+	private long replacedVersions;
+
+	// Type and status restrictions of a sorted display are applied through the bitmaps
+	// of the tasks list if at most one in this many tasks match, as the matching tasks
+	// have to be sorted then.
+	private static final int SELECTIVE_FRACTION = 8;
 
 	private Data() {
-		tasks = new ArrayList<Task>();
+		tasks = new TaskList();
 		deletedTasks = new ArrayList<Task>();
 		addedTasks = new Stack<Task>();
 		preupdatedTasks = new Stack<Task>();
@@ -59,8 +86,11 @@ public class Data {
 		changedTypeTasks = new Stack<Task>();
 		operationHistory = new Stack<Global.CommandType>();
 		undoHistory = new Stack<Global.CommandType>();
-		doneTasks = new Stack<Integer>();
-		openTasks = new Stack<Integer>();
+		doneTasks = new Stack<Task>();
+		openTasks = new Stack<Task>();
+		pagedTasks = new TaskPager();
+		lastUsed = new IdentityHashMap<Task, Long>();
+		loadedPartitions = new ArrayList<String>();
 
 		loadFromPermanentStorage();
 	}
@@ -80,7 +110,7 @@ public class Data {
 
 		saveToOperationHistory(Global.CommandType.ADD);
 		addedTasks.push(floatingTask);
-		saveToPermanentStorage();
+		saveToPermanentStorage(Storage.Operation.ADD, tasks.size() - 1, floatingTask);
 
 		return String.format(Global.MESSAGE_ADDED,
 				getTaskInDisplayFormat(floatingTask));
@@ -99,7 +129,7 @@ public class Data {
 
 		saveToOperationHistory(Global.CommandType.ADD);
 		addedTasks.push(deadlineTask);
-		saveToPermanentStorage();
+		saveToPermanentStorage(Storage.Operation.ADD, tasks.size() - 1, deadlineTask);
 
 		return String.format(Global.MESSAGE_ADDED,
 				getTaskInDisplayFormat(deadlineTask));
@@ -119,7 +149,7 @@ public class Data {
 
 		saveToOperationHistory(Global.CommandType.ADD);
 		addedTasks.push(timedTask);
-		saveToPermanentStorage();
+		saveToPermanentStorage(Storage.Operation.ADD, tasks.size() - 1, timedTask);
 
 		return String.format(Global.MESSAGE_ADDED,
 				getTaskInDisplayFormat(timedTask));
@@ -163,11 +193,10 @@ public class Data {
 			}  
 		}
 		floatingTask.setEdited(true);
-		tasks.remove(index);
-		tasks.add(index, floatingTask);
+		tasks.set(index, floatingTask);
 
 		processUpdateHistory(relatedTask, floatingTask);
-		saveToPermanentStorage();
+		saveToPermanentStorage(Storage.Operation.SET, index, floatingTask);
 
 		return String.format(Global.MESSAGE_UPDATED,
 				getTaskInDisplayFormat(floatingTask));
@@ -220,11 +249,10 @@ public class Data {
 
 		}
 		deadlineTask.setEdited(true);
-		tasks.remove(index);
-		tasks.add(index, deadlineTask);
+		tasks.set(index, deadlineTask);
 
 		processUpdateHistory(relatedTask, deadlineTask);
-		saveToPermanentStorage();
+		saveToPermanentStorage(Storage.Operation.SET, index, deadlineTask);
 
 		return String.format(Global.MESSAGE_UPDATED,
 				getTaskInDisplayFormat(deadlineTask));
@@ -282,11 +310,10 @@ public class Data {
 
 		}
 		timedTask.setEdited(true);
-		tasks.remove(index);
-		tasks.add(index, timedTask);
+		tasks.set(index, timedTask);
 
 		processUpdateHistory(relatedTask, timedTask);
-		saveToPermanentStorage();
+		saveToPermanentStorage(Storage.Operation.SET, index, timedTask);
 
 		return String.format(Global.MESSAGE_UPDATED,
 				getTaskInDisplayFormat(timedTask));
@@ -311,10 +338,15 @@ public class Data {
 		if (doneTask.isDone()) {
 			return String.format(Global.MESSAGE_ALREADY_DONE);
 		} else {
+			//@author A0112828H
+			// Displayed tasks may share the task, so a done copy replaces it.
+			doneTask = copyOf(doneTask);
 			doneTask.markDone();
-			saveToPermanentStorage();
+			tasks.set(index, doneTask);
+			//@author A0128620M
+			saveToPermanentStorage(Storage.Operation.SET, index, doneTask);
 			saveToOperationHistory(Global.CommandType.DONE);
-			doneTasks.add(index);
+			doneTasks.add(doneTask);
 
 			switch (doneTask.getType()) {
 			case FLOATING:
@@ -353,10 +385,15 @@ public class Data {
 		if (!openTask.isDone()) {
 			return String.format(Global.MESSAGE_ALREADY_OPEN);
 		} else {
+			//@author A0112828H
+			// Displayed tasks may share the task, so an open copy replaces it.
+			openTask = copyOf(openTask);
 			openTask.markOpen();
-			saveToPermanentStorage();
+			tasks.set(index, openTask);
+			//@author A0128620M
+			saveToPermanentStorage(Storage.Operation.SET, index, openTask);
 			saveToOperationHistory(Global.CommandType.OPEN);
-			openTasks.add(index);
+			openTasks.add(openTask);
 
 			switch (openTask.getType()) {
 			case FLOATING:
@@ -392,12 +429,15 @@ public class Data {
 			return String.format(Global.MESSAGE_NO_INDEX, index);
 		}
 
-		Task deletedTask = tasks.get(index);
+		//@author A0112828H
+		// Displayed tasks may share the task, so an edited copy is kept for syncing.
+		Task deletedTask = copyOf(tasks.get(index));
+		deletedTask.setEdited(true);
+		//@author A0128620M
 		saveToOperationHistory(Global.CommandType.DELETE);
 		deletedTasks.add(deletedTask);
-		deletedTask.setEdited(true);
 		tasks.remove(index);
-		saveToPermanentStorage();
+		saveToPermanentStorage(Storage.Operation.REMOVE, index, null);
 
 		switch (deletedTask.getType()) {
 		case FLOATING:
@@ -425,19 +465,24 @@ public class Data {
 	 * @return feedback for UI
 	 */
 	public String clearTasks() {
+		pageInAllTasks();
 		if (tasks.isEmpty()) {
 			return String.format(Global.MESSAGE_EMPTY);
 		}
 
 		ArrayList<Task> cleared = new ArrayList<Task>();
-		cleared.addAll(tasks);
-		for (Task t : cleared) {
-			t.setEdited(true);
+		//@author A0112828H
+		// Displayed tasks may share the tasks, so edited copies are kept for syncing.
+		for (Task t : tasks) {
+			Task clearedTask = copyOf(t);
+			clearedTask.setEdited(true);
+			cleared.add(clearedTask);
 		}
+		//@author A0109194A
 		clearedTasks.push(cleared);
 		tasks.clear();
 		saveToOperationHistory(Global.CommandType.CLEAR);
-		saveToPermanentStorage();
+		saveToPermanentStorage(Storage.Operation.CLEAR, -1, null);
 
 		return String.format(Global.MESSAGE_CLEARED);
 	}
@@ -490,7 +535,6 @@ public class Data {
 			// above
 		}
 		saveToUndoHistory(undoCommand);
-		saveToPermanentStorage();
 		return String.format(Global.MESSAGE_UNDONE, type);
 	}
 
@@ -501,20 +545,26 @@ public class Data {
 	 */
 	private boolean undoAdd() {
 		Task toDelete = addedTasks.pop();
+		int index = -1;
 		switch (toDelete.getType()) {
 		case TIMED:
-			tasks.remove((TimedTask) toDelete);
-			return true;
+			index = getIndexOf((TimedTask) toDelete);
+			break;
 			
 		case DEADLINE:
-			tasks.remove((DeadlineTask) toDelete);
-			return true;
+			index = getIndexOf((DeadlineTask) toDelete);
+			break;
 			
 		case FLOATING:
-			tasks.remove((FloatingTask) toDelete);
-			return true;
+			index = getIndexOf((FloatingTask) toDelete);
+			break;
+		}
+		if (index == -1) {
+			return false;
 		}
-		return false;
+		tasks.remove(index);
+		saveToPermanentStorage(Storage.Operation.REMOVE, index, null);
+		return true;
 	}
 
 	/**
@@ -523,22 +573,24 @@ public class Data {
 	 * @return Success of undo.
 	 */
 	private boolean undoDelete() {
-		Task toAdd = deletedTasks.get(deletedTasks.size() - 1);
+		// The SyncHandler may still change the deleted task, so a copy is added back.
+		Task toAdd = copyOf(deletedTasks.get(deletedTasks.size() - 1));
 		deletedTasks.remove(deletedTasks.size() - 1);
 		switch (toAdd.getType()) {
 		case TIMED:
 			tasks.add((TimedTask) toAdd);
-			return true;
+			break;
 			
 		case DEADLINE:
 			tasks.add((DeadlineTask) toAdd);
-			return true;
+			break;
 			
 		case FLOATING:
 			tasks.add((FloatingTask) toAdd);
-			return true;
+			break;
 		}
-		return false;
+		saveToPermanentStorage(Storage.Operation.ADD, tasks.size() - 1, toAdd);
+		return true;
 	}
 
 	/**
@@ -556,33 +608,33 @@ public class Data {
 		int index = 0;
 		switch (updated.getType()) {
 		case TIMED:
-			index = tasks.indexOf((TimedTask) updated);
+			index = getIndexOf((TimedTask) updated);
 			break;
 			
 		case DEADLINE:
-			index = tasks.indexOf((DeadlineTask) updated);
+			index = getIndexOf((DeadlineTask) updated);
 			break;
 			
 		case FLOATING:
-			index = tasks.indexOf((FloatingTask) updated);
+			index = getIndexOf((FloatingTask) updated);
 			break;
 		}
 
-		tasks.remove(index);
 		switch (beforeUpdate.getType()) {
 		case TIMED:
-			tasks.add(index, (TimedTask) beforeUpdate);
-			return true;
+			tasks.set(index, (TimedTask) beforeUpdate);
+			break;
 			
 		case DEADLINE:
-			tasks.add(index, (DeadlineTask) beforeUpdate);
-			return true;
+			tasks.set(index, (DeadlineTask) beforeUpdate);
+			break;
 			
 		case FLOATING:
-			tasks.add(index, (FloatingTask) beforeUpdate);
-			return true;
+			tasks.set(index, (FloatingTask) beforeUpdate);
+			break;
 		}
-		return false;
+		saveToPermanentStorage(Storage.Operation.SET, index, beforeUpdate);
+		return true;
 	}
 
 	/**
@@ -591,8 +643,13 @@ public class Data {
 	 * @return Success of undo.
 	 */
 	private boolean undoClear() {
-		ArrayList<Task> toRestore = clearedTasks.pop();
+		// The SyncHandler may still change the cleared tasks, so copies are added back.
+		ArrayList<Task> toRestore = new ArrayList<Task>();
+		for (Task task : clearedTasks.pop()) {
+			toRestore.add(copyOf(task));
+		}
 		tasks.addAll(toRestore);
+		saveToPermanentStorage();
 		return true;
 	}
 
@@ -601,10 +658,12 @@ public class Data {
 	 * @return	Success of undo
 	 */
 	private boolean undoDone() {
-		int index = doneTasks.pop();
+		int index = getIndexOf(doneTasks.pop());
 		if (index != -1) {
-			Task task = tasks.get(index);
-			task.markOpen();    
+			Task task = copyOf(tasks.get(index));
+			task.markOpen();
+			tasks.set(index, task);
+			saveToPermanentStorage(Storage.Operation.SET, index, task);
 			return true;
 		} else {
 			return false;
@@ -616,10 +675,12 @@ public class Data {
 	 * @return	Success of undo.
 	 */
 	private boolean undoOpen() {
-		int index = openTasks.pop();
+		int index = getIndexOf(openTasks.pop());
 		if (index != -1) {
-			Task task = tasks.get(index);
+			Task task = copyOf(tasks.get(index));
 			task.markDone();
+			tasks.set(index, task);
+			saveToPermanentStorage(Storage.Operation.SET, index, task);
 			return true;
 		} else {
 			return false;
@@ -666,7 +727,7 @@ public class Data {
 	public String addFloatingTask(FloatingTask floatingTask) {
 		floatingTask.setEdited(false);
 		tasks.add(floatingTask);
-		saveToPermanentStorage();
+		saveToPermanentStorage(Storage.Operation.ADD, tasks.size() - 1, floatingTask);
 		return String.format(Global.MESSAGE_ADDED,
 				getTaskInDisplayFormat(floatingTask));
 	}
@@ -680,7 +741,7 @@ public class Data {
 	public String addDeadlineTask(DeadlineTask deadlineTask) {
 		deadlineTask.setEdited(false);
 		tasks.add(deadlineTask);
-		saveToPermanentStorage();
+		saveToPermanentStorage(Storage.Operation.ADD, tasks.size() - 1, deadlineTask);
 		return String.format(Global.MESSAGE_ADDED,
 				getTaskInDisplayFormat(deadlineTask));
 	}
@@ -694,7 +755,7 @@ public class Data {
 	public String addTimedTask(TimedTask timedTask) {
 		timedTask.setEdited(false);
 		tasks.add(timedTask);
-		saveToPermanentStorage();
+		saveToPermanentStorage(Storage.Operation.ADD, tasks.size() - 1, timedTask);
 		return String.format(Global.MESSAGE_ADDED,
 				getTaskInDisplayFormat(timedTask));
 	}
@@ -713,18 +774,17 @@ public class Data {
 			floatingTask = new FloatingTask(task.getName());
 			floatingTask.setDone(tasks.get(index).isDone());
 			floatingTask.setId(task.getId());
-			tasks.remove(index);
-			tasks.add(index, floatingTask);
 		} else {
-			floatingTask = (FloatingTask) tasks.get(index);
+			floatingTask = new FloatingTask((FloatingTask) tasks.get(index));
 			if (task.getName() != null) {
 				floatingTask.setName(task.getName());
 			}
-			
 		}
 		floatingTask.setEdited(false);
 		floatingTask.setUpdated(task.getUpdated());
-		saveToPermanentStorage();
+		// Displayed tasks may share the replaced task, which stays unchanged.
+		tasks.set(index, floatingTask);
+		saveToPermanentStorage(Storage.Operation.SET, index, floatingTask);
 		return String.format(Global.MESSAGE_UPDATED,
 				getTaskInDisplayFormat(floatingTask));
 	}
@@ -743,24 +803,24 @@ public class Data {
 			deadlineTask = new DeadlineTask(task.getName(), task.getEndDate());
 			deadlineTask.setDone(tasks.get(index).isDone());
 			deadlineTask.setId(task.getId());
-			tasks.remove(index);
-			tasks.add(index, deadlineTask);
-			saveToPermanentStorage();
+			tasks.set(index, deadlineTask);
+			saveToPermanentStorage(Storage.Operation.SET, index, deadlineTask);
 			return String.format(Global.MESSAGE_UPDATED,
 					getTaskInDisplayFormat(deadlineTask));
 		} else {
-			deadlineTask = (DeadlineTask) tasks.get(index);
+			deadlineTask = new DeadlineTask((DeadlineTask) tasks.get(index));
 			if (task.getName() != null) {
 				deadlineTask.setName(task.getName());
 			}
 			if (task.getEndDate() != null) {
 				deadlineTask.setEndDate(task.getEndDate());
 			}
-			
 		}
 		deadlineTask.setEdited(false);
 		deadlineTask.setUpdated(task.getUpdated());
-		saveToPermanentStorage();
+		// Displayed tasks may share the replaced task, which stays unchanged.
+		tasks.set(index, deadlineTask);
+		saveToPermanentStorage(Storage.Operation.SET, index, deadlineTask);
 		return String.format(Global.MESSAGE_UPDATED,
 				getTaskInDisplayFormat(deadlineTask));
 	}
@@ -781,10 +841,8 @@ public class Data {
 					task.getEndDate());
 			timedTask.setDone(relatedTask.isDone());
 			timedTask.setId(task.getId());
-			tasks.remove(index);
-			tasks.add(index, timedTask);
 		} else {
-			timedTask = (TimedTask) tasks.get(index);
+			timedTask = new TimedTask((TimedTask) relatedTask);
 			if (task.getName() != null) {
 				timedTask.setName(task.getName());
 			}
@@ -794,11 +852,12 @@ public class Data {
 			if (task.getEndDate() != null) {
 				timedTask.setEndDate(task.getEndDate());
 			}
-			
 		}
 		timedTask.setEdited(false);
 		timedTask.setUpdated(task.getUpdated());
-		saveToPermanentStorage();
+		// Displayed tasks may share the replaced task, which stays unchanged.
+		tasks.set(index, timedTask);
+		saveToPermanentStorage(Storage.Operation.SET, index, timedTask);
 		return String.format(Global.MESSAGE_UPDATED,
 				getTaskInDisplayFormat(timedTask));
 	}
@@ -816,7 +875,7 @@ public class Data {
 			return false;
 		} else {
 			tasks.remove(index);
-			saveToPermanentStorage();
+			saveToPermanentStorage(Storage.Operation.REMOVE, index, null);
 			return true;
 		}
 	}
@@ -825,37 +884,52 @@ public class Data {
 
 	//@author A0128620M
 	/**
-	 * Returns a sorted list consisting of copies of all tasks of the tasks
-	 * list.
-	 * @return sorted copy of tasks list.
+	 * Returns a sorted list consisting of all tasks of the tasks list. See
+	 * getTasks(TaskQuery) on sharing the tasks.
+	 * @return sorted new list of the tasks.
 	 */
-	public ArrayList<Task> getCopiedTasks() {
+	public ArrayList<Task> getTasks() {
 		ArrayList<FloatingTask> floatingTasks = new ArrayList<FloatingTask>();
 		ArrayList<DatedTask> datedTasks = new ArrayList<DatedTask>();
 		ArrayList<Task> allTasks = new ArrayList<Task>();
 
+		loadAllPartitions();
+		evictLeastRecentlyUsedTasks();
+		//@author A0112828H
+		// The tasks list keeps its tasks sorted, unless others are paged out.
+		boolean isSorted = pagedTasks.size() == 0;
+		if (isSorted) {
+			return tasks.getSortedTasks();
+		}
 		for (Task task : tasks) {
+			//@author A0128620M
+			if (task.getType().equals(Task.TaskType.FLOATING)) {
+				floatingTasks.add((FloatingTask) task);
+			} else {
+				datedTasks.add((DatedTask) task);
+			}
+		}
+
+		for (Task task : pagedTasks.readAll()) {
 			if (task.getType().equals(Task.TaskType.FLOATING)) {
-				floatingTasks.add(new FloatingTask((FloatingTask) task));
-			} else if (task.getType().equals(Task.TaskType.DEADLINE)) {
-				datedTasks.add(new DeadlineTask((DeadlineTask) task));
-			} else if (task.getType().equals(Task.TaskType.TIMED)) {
-				datedTasks.add(new TimedTask((TimedTask) task));
+				floatingTasks.add((FloatingTask) task);
+			} else {
+				datedTasks.add((DatedTask) task);
 			}
 		}
 
 		Collections.sort(floatingTasks);
-		allTasks.addAll(floatingTasks);
 		Collections.sort(datedTasks);
+		allTasks.addAll(floatingTasks);
 		allTasks.addAll(datedTasks);
 
 		return allTasks;
 	}
 
 	/**
-	 * Returns a sorted list consisting of copies of those tasks of the tasks
-	 * list which satisfy the given DateTime, TaskType, Status and Search
-	 * restrictions.
+	 * Returns a sorted list consisting of those tasks of the tasks list which
+	 * satisfy the given DateTime, TaskType, Status and Search restrictions.
+	 * See getTasks(TaskQuery), which answers the restrictions as a query.
 	 * 
 	 * @param isDateRestricted
 	 * @param startDate
@@ -869,142 +943,391 @@ public class Data {
 	 * @param areOpenTasksDisplayed
 	 * @param isSearchRestricted
 	 * @param searchedWords
-	 * @return sorted copy of tasks list satisfying given restrictions.
+	 * @return sorted new list of the tasks satisfying given restrictions.
 	 */
-	public ArrayList<Task> getCopiedTasks(boolean isDateRestricted,
+	public ArrayList<Task> getTasks(boolean isDateRestricted,
 			Date startDate, Date endDate, boolean isTaskTypeRestricted,
 			boolean areFloatingTasksDisplayed, boolean areDeadlineTasksDisplayed,
 			boolean areTimedTasksDisplayed, boolean isStatusRestricted,
 			boolean areDoneTasksDisplayed, boolean areOpenTasksDisplayed,
 			boolean isSearchedWordRestricted, ArrayList<String> searchedWords) {
+		//@author A0112828H
+		TaskQuery query = TaskQuery.ALL;
+		if (isDateRestricted) {
+			query = query.restrictDates(startDate, endDate);
+		}
+		if (isTaskTypeRestricted) {
+			query = query.restrictTypes(areFloatingTasksDisplayed,
+					areDeadlineTasksDisplayed, areTimedTasksDisplayed);
+		}
+		if (isStatusRestricted) {
+			query = query.restrictStatus(areDoneTasksDisplayed);
+		}
+		if (isSearchedWordRestricted) {
+			query = query.restrictWords(searchedWords);
+		}
+		return getTasks(query);
+	}
+
+	/**
+	 * Returns a sorted list consisting of those tasks of the tasks list which
+	 * satisfy the restrictions of the given query.
+	 * 
+	 * The list is new, but its tasks are shared with the tasks list rather
+	 * than copied, and must not be changed. A task is never changed once it
+	 * is in the tasks list, but replaced by a changed copy, also by the
+	 * SyncHandler through replaceTask(Task, Task). So the returned tasks stay
+	 * as they were when returned, however the tasks change afterwards.
+	 * 
+	 * @param query
+	 * @return sorted new list of the tasks satisfying the query.
+	 */
+	public ArrayList<Task> getTasks(TaskQuery query) {
 		ArrayList<FloatingTask> floatingTasks = new ArrayList<FloatingTask>();
 		ArrayList<DatedTask> datedTasks = new ArrayList<DatedTask>();
 		ArrayList<Task> concernedTasks = new ArrayList<Task>();
-		boolean containsSearchedWords = false;
 
-		for (Task task : tasks) {
-			if (isSearchedWordRestricted) {
-				containsSearchedWords = checkStringForWords(searchedWords,
-						task.getName());
+		QueryPlan plan = planQuery(query);
+		if (logger.isLoggable(Level.FINE)) {
+			logger.log(Level.FINE, "Query plan: " + plan);
+		}
+		for (Task task : plan.getCandidates()) {
+			if (plan.matches(task)) {
+				if (task.getType().equals(Task.TaskType.FLOATING)) {
+					floatingTasks.add((FloatingTask) task);
+				} else {
+					datedTasks.add((DatedTask) task);
+				}
 			}
+		}
 
-			if (matchesSearchAndStatusRestrictions(isStatusRestricted,
-					areDoneTasksDisplayed, isSearchedWordRestricted,
-					containsSearchedWords, task)) {
-
-				switch (task.getType()) {
-				case FLOATING:
-					FloatingTask floatingTask = (FloatingTask) task;
-					if (matchesTypeAndDateRestrictionsFloating(
-							isDateRestricted, isTaskTypeRestricted,
-							areFloatingTasksDisplayed)) {
-						floatingTasks.add(floatingTask);
-
-					}
-					break;
-
-				case DEADLINE:
-					DeadlineTask deadlineTask = (DeadlineTask) task;
-					if (matchesTypeAndDateRestrictionsDeadline(
-							isDateRestricted, startDate, endDate,
-							isTaskTypeRestricted, areDeadlineTasksDisplayed,
-							deadlineTask)) {
-						datedTasks.add(deadlineTask);
-					}
-					break;
-
-				case TIMED:
-					TimedTask timedTask = (TimedTask) task;
-					if (matchesTypeAndDateRestrictionsTimed(isDateRestricted,
-							startDate, endDate, isTaskTypeRestricted,
-							areTimedTasksDisplayed, timedTask)) {
-						datedTasks.add(timedTask);
-					}
-					break;
-				}
+		// Paged tasks are only read if their row matches the restrictions.
+		BitSet pagedRows = pagedTasks.getRowsMatching(query);
+		for (int row = pagedRows.nextSetBit(0); row >= 0; row = pagedRows.nextSetBit(row + 1)) {
+			Task task = pagedTasks.read(row);
+			if (task.getType().equals(Task.TaskType.FLOATING)) {
+				floatingTasks.add((FloatingTask) task);
+			} else {
+				datedTasks.add((DatedTask) task);
 			}
 		}
-		Collections.sort(floatingTasks);
+
+		//@author A0128620M
+		if (!plan.isSorted()) {
+			Collections.sort(floatingTasks);
+			Collections.sort(datedTasks);
+		}
 		concernedTasks.addAll(floatingTasks);
-		Collections.sort(datedTasks);
 		concernedTasks.addAll(datedTasks);
 
 		return concernedTasks;
 	}
 
+	//@author A0112828H
+	/**
+	 * Returns how the given query would be answered by getTasks(TaskQuery):
+	 * the access path chosen and the filters applied to the candidates found.
+	 * 
+	 * @param query
+	 * @return plan of the query.
+	 */
+	public QueryPlan explain(TaskQuery query) {
+		return planQuery(query);
+	}
+
+	// Finds the candidates of the given query through the cheapest access path, and adds
+	// filters for the restrictions the access path does not ensure. Candidates which are
+	// not sorted cost SELECTIVE_FRACTION times as much, as they have to be sorted.
+	private QueryPlan planQuery(final TaskQuery query) {
+		loadMatchingPartitions(query.isDateRestricted(), query.getStartDate(),
+				query.getEndDate(), query.isTaskTypeRestricted(),
+				query.areFloatingTasksDisplayed(), query.isStatusRestricted(),
+				query.areDoneTasksDisplayed());
+		evictLeastRecentlyUsedTasks();
+
+		// The tasks list keeps its tasks sorted, but paged tasks have to be sorted in.
+		boolean isSorted = pagedTasks.size() == 0;
+		QueryPlan.AccessPath accessPath = isSorted ? QueryPlan.AccessPath.SORTED_SCAN
+				: QueryPlan.AccessPath.FULL_SCAN;
+		long cost = (long) tasks.size() * (isSorted ? 1 : SELECTIVE_FRACTION);
+		List<Task> candidates = null;
+
+		if (query.isSearchedWordRestricted()) {
+			ArrayList<Task> searchedTasks = tasks.getTasksContaining(query.getSearchedWords());
+			if (searchedTasks != null
+					&& (long) searchedTasks.size() * SELECTIVE_FRACTION < cost) {
+				accessPath = QueryPlan.AccessPath.SEARCH_INDEX;
+				cost = (long) searchedTasks.size() * SELECTIVE_FRACTION;
+				candidates = searchedTasks;
+			}
+		}
+		if (query.isDateRestricted()) {
+			ArrayList<Task> datedTasks = tasks.getSortedTasks(query.getStartDate(),
+					query.getEndDate());
+			if ((long) datedTasks.size() * (isSorted ? 1 : SELECTIVE_FRACTION) < cost) {
+				accessPath = QueryPlan.AccessPath.DATE_INDEX;
+				cost = (long) datedTasks.size() * (isSorted ? 1 : SELECTIVE_FRACTION);
+				candidates = datedTasks;
+			}
+		}
+		if (query.isDateRestricted() && isOnlyTimedTasksDisplayed(query)) {
+			// Timed tasks within the dates are among those overlapping them, and the
+			// interval tree holds no deadline tasks, unlike the date index.
+			ArrayList<Task> timedTasks = new ArrayList<Task>(tasks.getOverlappingTasks(
+					query.getStartDate(), query.getEndDate()));
+			if ((long) timedTasks.size() * (isSorted ? 1 : SELECTIVE_FRACTION) < cost) {
+				accessPath = QueryPlan.AccessPath.INTERVAL_TREE;
+				cost = (long) timedTasks.size() * (isSorted ? 1 : SELECTIVE_FRACTION);
+				candidates = timedTasks;
+			}
+		}
+		if (query.isTaskTypeRestricted() || query.isStatusRestricted()) {
+			BitSet matchingPositions = tasks.getPositionsMatching(
+					query.isTaskTypeRestricted(), query.areFloatingTasksDisplayed(),
+					query.areDeadlineTasksDisplayed(), query.areTimedTasksDisplayed(),
+					query.isStatusRestricted(), query.areDoneTasksDisplayed());
+			if ((long) matchingPositions.cardinality() * SELECTIVE_FRACTION < cost) {
+				accessPath = QueryPlan.AccessPath.TYPE_STATUS_BITMAP;
+				cost = (long) matchingPositions.cardinality() * SELECTIVE_FRACTION;
+				candidates = getTasksAt(matchingPositions);
+			}
+		}
+		if (accessPath == QueryPlan.AccessPath.SORTED_SCAN) {
+			candidates = tasks.getSortedTasks();
+		} else if (accessPath == QueryPlan.AccessPath.FULL_SCAN) {
+			candidates = tasks;
+		}
+		isSorted = accessPath == QueryPlan.AccessPath.SORTED_SCAN
+				|| ((accessPath == QueryPlan.AccessPath.DATE_INDEX
+						|| accessPath == QueryPlan.AccessPath.INTERVAL_TREE) && isSorted);
+
+		QueryPlan plan = new QueryPlan(query, accessPath, candidates, isSorted, tasks.size());
+		addFilters(plan, query, accessPath == QueryPlan.AccessPath.TYPE_STATUS_BITMAP);
+		return plan;
+	}
+
+	// Checks if the given query is restricted to timed tasks.
+	private boolean isOnlyTimedTasksDisplayed(TaskQuery query) {
+		return query.isTaskTypeRestricted() && !query.areFloatingTasksDisplayed()
+				&& !query.areDeadlineTasksDisplayed() && query.areTimedTasksDisplayed();
+	}
+
+	// Adds a filter for every restriction of the given query, except for the type and status
+	// restrictions if they are ensured already.
+	private void addFilters(QueryPlan plan, final TaskQuery query, boolean isTypeAndStatusEnsured) {
+		if (query.isSearchedWordRestricted()) {
+			plan.addFilter(new QueryPlan.Filter("words") {
+				public boolean matches(Task task) {
+					return checkStringForWords(query.getSearchedWords(), task.getName());
+				}
+			});
+		}
+		if (query.isStatusRestricted() && !isTypeAndStatusEnsured) {
+			plan.addFilter(new QueryPlan.Filter("status") {
+				public boolean matches(Task task) {
+					return checkStatusRestricted(true, query.areDoneTasksDisplayed(), task);
+				}
+			});
+		}
+		if (query.isTaskTypeRestricted() && !isTypeAndStatusEnsured) {
+			plan.addFilter(new QueryPlan.Filter("type") {
+				public boolean matches(Task task) {
+					return checkTypeRestriction(query, task);
+				}
+			});
+		}
+		if (query.isDateRestricted()) {
+			final Date startDate = query.getStartDate();
+			final Date endDate = query.getEndDate();
+			plan.addFilter(new QueryPlan.Filter("date") {
+				public boolean matches(Task task) {
+					switch (task.getType()) {
+					case FLOATING:
+						return checkDateRestrictionForFloatingTask(true);
+					case DEADLINE:
+						return checkDateRestrictionForDeadlineTask(true, startDate,
+								endDate, (DeadlineTask) task);
+					default:
+						return checkDateRestrictionForTimedTask(true, startDate,
+								endDate, (TimedTask) task);
+					}
+				}
+			});
+		}
+	}
+
+	//@author A0112828H
+	// Returns the tasks of the tasks list at the given positions.
+	private ArrayList<Task> getTasksAt(BitSet positions) {
+		ArrayList<Task> tasksAtPositions = new ArrayList<Task>(positions.cardinality());
+		for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) {
+			tasksAtPositions.add(tasks.get(i));
+		}
+		return tasksAtPositions;
+	}
+
+	/**
+	 * Returns a list consisting of the timed tasks overlapping the given
+	 * period, e.g. what is scheduled between 2pm and 4pm, sorted by start
+	 * date. See getTasks(TaskQuery) on sharing the tasks.
+	 *
+	 * @param startDate start of the period, or null for no limit
+	 * @param endDate end of the period, or null for no limit
+	 * @return sorted list of the overlapping timed tasks.
+	 */
+	public ArrayList<Task> getTimedTasks(Date startDate, Date endDate) {
+		// Tasks overlapping the period may start in any earlier partition.
+		loadAllPartitions();
+		evictLeastRecentlyUsedTasks();
+		ArrayList<TimedTask> timedTasks = tasks.getOverlappingTasks(startDate, endDate);
+
+		BitSet pagedRows = pagedTasks.getRowsOverlapping(startDate, endDate);
+		for (int row = pagedRows.nextSetBit(0); row >= 0; row = pagedRows.nextSetBit(row + 1)) {
+			timedTasks.add((TimedTask) pagedTasks.read(row));
+		}
+		if (!pagedRows.isEmpty()) {
+			Collections.sort(timedTasks);
+		}
+		return new ArrayList<Task>(timedTasks);
+	}
+
+	//@author A0128620M
 	/**
 	 * Returns the index of the given task object within the tasks ArrayList.
+	 * Pages the task back in if it has been paged out.
 	 * 
 	 * @return index
 	 */
 	public int getIndexOf(Task task) {
-		return tasks.indexOf(task);
+		int index = tasks.indexOfLocalId(task);
+		if (index == -1 || !tasks.get(index).equals(task)) {
+			// An equal task may have replaced the task since it was copied.
+			index = tasks.indexOf(task);
+		}
+		if (index == -1) {
+			index = pageIn(task);
+		}
+		return index;
+	}
+
+	//@author A0112828H
+	/**
+	 * Returns the version of the tasks, which increases with every change of
+	 * them. Displayed tasks found for a version can be displayed again as long
+	 * as the version stays the same.
+	 * 
+	 * @return version
+	 */
+	public long getVersion() {
+		return replacedVersions + tasks.getVersion();
+	}
+
+	/**
+	 * Returns a copy of the given task, to be changed and set in its place, as
+	 * tasks of the tasks list are never changed in place.
+	 *
+	 * @param task
+	 * @return copy of the same type
+	 */
+	public static Task copyOf(Task task) {
+		switch (task.getType()) {
+		case FLOATING:
+			return new FloatingTask((FloatingTask) task);
+		case DEADLINE:
+			return new DeadlineTask((DeadlineTask) task);
+		default:
+			return new TimedTask((TimedTask) task);
+		}
+	}
+
+	// Replaces the tasks list, keeping the version increasing.
+	private void replaceTasks(TaskList newTasks) {
+		replacedVersions += tasks.getVersion() + 1;
+		tasks = newTasks;
 	}
 
 	//@author A0109194A
 	/**
-	 * Returns all tasks.
+	 * Returns all tasks. Pages all paged tasks back in. The tasks must not be
+	 * changed, see replaceTask(Task, Task).
 	 * 
-	 * @return tasks list.
+	 * @return copy of tasks list.
 	 */
 	public ArrayList<Task> getAllTasks() {
-		return tasks;
+		pageInAllTasks();
+		//@author A0112828H
+		return new ArrayList<Task>(tasks);
+	}
+
+	/**
+	 * Replaces the given task of the tasks list by a changed copy of it, e.g.
+	 * with the Google ID set by the SyncHandler, so the task stays as it is for
+	 * the displays sharing it.
+	 *
+	 * @param task task of the tasks list
+	 * @param changedTask copy of it from copyOf(Task)
+	 * @return true if replaced, false if the task is no longer in the tasks list
+	 */
+	public boolean replaceTask(Task task, Task changedTask) {
+		int index = tasks.indexOfLocalId(task);
+		if (index == -1 || tasks.get(index) != task) {
+			return false;
+		}
+		tasks.set(index, changedTask);
+		saveToPermanentStorage(Storage.Operation.SET, index, changedTask);
+		return true;
+	}
+
+	//@author A0112828H
+	/**
+	 * Returns the index of the task with the given Google ID. Pages the task
+	 * back in if it has been paged out.
+	 * 
+	 * @param id
+	 * @return index, or -1 if there is no such task
+	 */
+	public int getIndexOfId(String id) {
+		loadAllPartitions();
+		int index = tasks.indexOfId(id);
+		if (index == -1 && id != null && pagedTasks.size() > 0) {
+			int row = pagedTasks.indexOfId(id);
+			if (row != -1) {
+				index = pageIn(pagedTasks.read(row));
+			}
+		}
+		return index;
 	}
 
 	//@author A0128620M
 	// Helper methods
 	// Checks if given string contains any strings from the given ArrayList.
-	private boolean checkStringForWords(ArrayList<String> searchedWords,
+	private boolean checkStringForWords(List<String> searchedWords,
 			String taskName) {
 		boolean containsSearchedWords;
 		containsSearchedWords = true;
 
 		for (String searchedWord : searchedWords) {
 			if (!taskName.contains(searchedWord)) {
-				logger.log(Level.INFO, "Doesn't contain the word");
 				containsSearchedWords = false;
 			}
 		}
 		return containsSearchedWords;
 	}
 
-	// Checks if the type and Date of the timed task matches the restrictions.
-	private boolean matchesTypeAndDateRestrictionsTimed(
-			boolean isDateRestricted, Date startDate, Date endDate,
-			boolean isTaskTypeRestricted, boolean areTimedTasksDisplayed,
-			TimedTask timedTask) {
-		return (!isTaskTypeRestricted || areTimedTasksDisplayed)
-				&& checkDateRestrictionForTimedTask(
-						isDateRestricted, startDate, endDate, timedTask);
-	}
-
-	// Checks if the type and Date of the deadline task matches the restrictions.
-	private boolean matchesTypeAndDateRestrictionsDeadline(
-			boolean isDateRestricted, Date startDate, Date endDate,
-			boolean isTaskTypeRestricted, boolean areDeadlineTasksDisplayed,
-			DeadlineTask deadlineTask) {
-		return (!isTaskTypeRestricted || areDeadlineTasksDisplayed)
-				&& checkDateRestrictionForDeadlineTask(
-						isDateRestricted, startDate, endDate,
-						deadlineTask);
-	}
-
-	// Checks if the type and Date of the floating task matches the restrictions.
-	private boolean matchesTypeAndDateRestrictionsFloating(boolean isDateRestricted,
-			boolean isTaskTypeRestricted, boolean areFloatingTasksDisplayed) {
-		return (!isTaskTypeRestricted || areFloatingTasksDisplayed) && checkDateRestrictionForFloatingTask(isDateRestricted);
-	}
-
-	// Checks if the searchedWords and Type matches to the given task.
-	private boolean matchesSearchAndStatusRestrictions(
-			boolean isStatusRestricted, boolean areDoneTasksDisplayed,
-			boolean isSearchedWordRestricted, boolean containsSearchedWords,
-			Task task) {
-		return (!isSearchedWordRestricted || containsSearchedWords)
-				&& checkStatusRestricted(isStatusRestricted, areDoneTasksDisplayed,
-						task);
+	//@author A0112828H
+	// Checks if the type of the given task matches the type restrictions of the query.
+	private boolean checkTypeRestriction(TaskQuery query, Task task) {
+		switch (task.getType()) {
+		case FLOATING:
+			return query.areFloatingTasksDisplayed();
+		case DEADLINE:
+			return query.areDeadlineTasksDisplayed();
+		default:
+			return query.areTimedTasksDisplayed();
+		}
 	}
 
+	//@author A0128620M
 	// Checks if the status of the given task matches the status parameters.
 	private boolean checkStatusRestricted(boolean isStatusRestricted,
 			boolean areDoneTasksDisplayed, Task task) {
@@ -1059,7 +1382,7 @@ public class Data {
 	}
 
 	public boolean contains(Task task) {
-		return tasks.contains(task);
+		return getIndexOf(task) != -1;
 	}
 
 	public Stack<Task> getAddedTasks() {
@@ -1091,6 +1414,7 @@ public class Data {
 	}
 
 	public ArrayList<String> getAllIds() {
+		pageInAllTasks();
 		ArrayList<String> idList = new ArrayList<String>();
 		for (Task t : tasks) {
 			idList.add(t.getId());
@@ -1098,14 +1422,394 @@ public class Data {
 		return idList;
 	}
 
-	// Saves the temporary tasks ArrayList to the permanent storage.
+	// Saves the temporary tasks ArrayList to the permanent storage. If partitioned,
+	// the partitions of tasks moved to a partition not loaded yet are loaded first,
+	// and the tasks list is regrouped by partition.
 	public void saveToPermanentStorage() {
-		TaskCommander.storage.writeToFile(tasks);
+		if (isPartitioned()) {
+			ArrayList<String> missingPartitions = new ArrayList<String>();
+			for (Task task : tasks) {
+				String key = PartitionManifest.getKey(task);
+				if (!loadedPartitions.contains(key) && !missingPartitions.contains(key)) {
+					missingPartitions.add(key);
+				}
+			}
+			readPartitions(missingPartitions);
+			replaceTasks(new TaskList(TaskCommander.storage.writePartitions(tasks, loadedPartitions)));
+		} else {
+			TaskCommander.getStorageBackend().writeToFile(getStoredTasks());
+		}
+	}
+
+	//@author A0112828H
+	// Returns the tasks in memory with the paged tasks at their stored indexes, so
+	// the storage file keeps every task in the order of its journal while some are
+	// paged out.
+	private ArrayList<Task> getStoredTasks() {
+		if (pagedTasks.size() == 0) {
+			return tasks;
+		}
+		return pagedTasks.merge(tasks);
+	}
+
+	/**
+	 * Writes all pending changes to disk before exiting. If partitioned, the
+	 * changed partitions are written, so the next start needs no journal.
+	 */
+	public void prepareForExit() {
+		if (isPartitioned()) {
+			saveToPermanentStorage();
+		} else if (Global.watching && TaskCommander.getStorageBackend().getJournalSize() > 0) {
+			// Other processes watching the storage file only see changes written in full.
+			saveToPermanentStorage();
+		}
+		TaskCommander.getStorageBackend().flush();
+	}
+
+	// Records a single change of the tasks ArrayList in the journal of the permanent
+	// storage. While tasks are paged out, the index is translated to the index of
+	// the stored tasks list, which keeps the paged tasks.
+	private void saveToPermanentStorage(Storage.Operation operation, int index, Task task) {
+		if (task != null) {
+			markAsUsed(task);
+		}
+		if (!Global.journaling) {
+			saveToPermanentStorage();
+			return;
+		}
+		int storedIndex = index;
+		if (pagedTasks.size() > 0 && operation != Storage.Operation.CLEAR) {
+			storedIndex = pagedTasks.getStoredIndex(index);
+			if (operation == Storage.Operation.REMOVE) {
+				pagedTasks.removeStoredIndex(storedIndex);
+			}
+		}
+		appendToJournal(operation, storedIndex, task);
+	}
+
+	// Records a single change of the stored tasks list in the journal. Rewrites the
+	// storage file once the journal outgrows the stored tasks list.
+	private void appendToJournal(Storage.Operation operation, int storedIndex, Task task) {
+		StorageBackend backend = TaskCommander.getStorageBackend();
+		backend.appendToJournal(operation, storedIndex, task);
+		if (backend.getJournalSize() > Math.max(
+				Global.JOURNAL_COMPACTION_THRESHOLD, tasks.size() + pagedTasks.size())) {
+			saveToPermanentStorage();
+		} else if (Global.DURABILITY == Global.Durability.EVERY_COMMAND && !Global.syncing) {
+			// The command only returns once its change is on disk.
+			backend.flush();
+		}
 	}
 
-	// Loads the content from the permanent storage to the tasks ArrayList.
+	// Loads the content from the permanent storage to the tasks ArrayList and
+	// applies the changes recorded in the journal.
 	public void loadFromPermanentStorage() {
-		tasks = TaskCommander.storage.readFromFile();
+		lastUsed.clear();
+		loadedPartitions.clear();
+		// The storage file holds the paged tasks too.
+		pagedTasks.clear();
+		if (isPartitioned() && TaskCommander.storage.hasPartitions()) {
+			// Journal records refer to the partitions loaded when last written.
+			if (TaskCommander.storage.hasJournal()) {
+				loadedPartitions.addAll(TaskCommander.storage.getLoadedPartitionKeys());
+			}
+			replaceTasks(new TaskList(TaskCommander.storage.readPartitions(loadedPartitions)));
+			TaskCommander.storage.replayJournal(tasks);
+			TaskCommander.storage.writePartitionLoadOrder(loadedPartitions);
+			return;
+		}
+		StorageBackend backend = TaskCommander.getStorageBackend();
+		replaceTasks(new TaskList(backend.readFromFile()));
+		backend.replayJournal(tasks);
+	}
+
+	/**
+	 * Applies a change of the storage file made by another program or process.
+	 * Tasks removed from the file are removed, unless they were changed since,
+	 * and tasks added to the file are added, keeping the order of the file.
+	 * Tasks added since the file was last written are kept at the end. The
+	 * merged tasks are then written back, so the file holds the changes of both.
+	 * If another process writes the storage file, the tasks of the file are
+	 * taken as they are instead, followed by the records of its journal.
+	 *
+	 * @param change read by Storage.readChangedFile()
+	 * @return feedback, or null if the change was not applied
+	 */
+	public String applyStorageChange(StorageChange change) {
+		if (isPartitioned() || Global.STORAGE_BACKEND != Global.StorageBackendType.FILE
+				|| Global.syncing || !TaskCommander.storage.isCurrent(change)) {
+			return null;
+		}
+		if (TaskCommander.storage.isReadOnly()) {
+			replaceTasks(new TaskList(change.getTasks()));
+			TaskCommander.storage.acceptChange(change);
+			TaskCommander.storage.tailJournal(tasks);
+			lastUsed.clear();
+			return String.format(Global.MESSAGE_FILE_CHANGED, change.getAddedTasks().size(),
+					change.getRemovedTasks().size());
+		}
+		IdentityHashMap<Task, Boolean> removedTasks = new IdentityHashMap<Task, Boolean>();
+		for (Task task : change.getRemovedTasks()) {
+			if (!task.isDirty()) {
+				removedTasks.put(task, Boolean.TRUE);
+			}
+		}
+		IdentityHashMap<Task, Boolean> addedTasks = new IdentityHashMap<Task, Boolean>();
+		for (Task task : change.getAddedTasks()) {
+			addedTasks.put(task, Boolean.TRUE);
+		}
+		IdentityHashMap<Task, Boolean> currentTasks = new IdentityHashMap<Task, Boolean>();
+		for (Task task : tasks) {
+			currentTasks.put(task, Boolean.TRUE);
+		}
+
+		TaskList mergedTasks = new TaskList();
+		IdentityHashMap<Task, Boolean> mergedSet = new IdentityHashMap<Task, Boolean>();
+		for (Task task : change.getTasks()) {
+			if (addedTasks.containsKey(task) || currentTasks.containsKey(task)) {
+				mergedTasks.add(task);
+				mergedSet.put(task, Boolean.TRUE);
+			}
+		}
+		for (Task task : tasks) {
+			if (!mergedSet.containsKey(task) && !removedTasks.containsKey(task)) {
+				mergedTasks.add(task);
+			}
+		}
+		for (Task task : removedTasks.keySet()) {
+			lastUsed.remove(task);
+		}
+		replaceTasks(mergedTasks);
+		clearOperationHistory();
+		saveToPermanentStorage();
+		logger.log(Level.INFO, "Applied change of the storage file");
+		return String.format(Global.MESSAGE_FILE_CHANGED, addedTasks.size(), removedTasks.size());
+	}
+
+	/**
+	 * Applies the journal records appended by the process writing the storage
+	 * file since they were last read, if another process writes it.
+	 *
+	 * @return feedback, or null if there were no new records
+	 */
+	public String applyJournalTail() {
+		if (isPartitioned() || Global.STORAGE_BACKEND != Global.StorageBackendType.FILE) {
+			return null;
+		}
+		int applied = TaskCommander.storage.tailJournal(tasks);
+		if (applied == 0) {
+			return null;
+		}
+		return String.format(Global.MESSAGE_JOURNAL_TAILED, applied);
+	}
+
+	/**
+	 * Checks if tasks can only be displayed, as another process writes the storage file.
+	 */
+	public boolean isReadOnly() {
+		return Global.STORAGE_BACKEND == Global.StorageBackendType.FILE
+				&& TaskCommander.storage.isReadOnly();
+	}
+
+	// Checks if the tasks are stored in partitions, which only the file storage backend supports.
+	private boolean isPartitioned() {
+		return Global.partitioning && Global.STORAGE_BACKEND == Global.StorageBackendType.FILE;
+	}
+
+	/**
+	 * Returns the keys of the storage partitions loaded into memory.
+	 */
+	public ArrayList<String> getLoadedPartitions() {
+		return new ArrayList<String>(loadedPartitions);
+	}
+
+	//@author A0112828H
+	// Records that the given task in memory has just been used.
+	private void markAsUsed(Task task) {
+		lastUsed.put(task, ++useCount);
+	}
+
+	// Pages out the least recently used tasks if the tasks list exceeds the memory
+	// budget, until it is a tenth below the budget. Among tasks used equally long
+	// ago, done tasks go first, then those with dates furthest from now. Not done
+	// while syncing, as the SyncHandler works with indexes of the tasks list, nor if
+	// read-only, as the journal records of the writing process refer to its indexes,
+	// nor if partitioned, as only the partitions in use are loaded anyway. The
+	// stored tasks list keeps the paged tasks where they are, so nothing is written.
+	private void evictLeastRecentlyUsedTasks() {
+		if (tasks.size() <= Global.MEMORY_BUDGET || Global.syncing || isReadOnly()
+				|| isPartitioned()) {
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		ArrayList<Task> candidates = new ArrayList<Task>(tasks);
+		Collections.sort(candidates, new Comparator<Task>() {
+			@Override
+			public int compare(Task task, Task otherTask) {
+				int comparison = Long.compare(getLastUsed(task), getLastUsed(otherTask));
+				if (comparison == 0) {
+					comparison = Boolean.compare(otherTask.isDone(), task.isDone());
+				}
+				if (comparison == 0) {
+					comparison = Long.compare(getDistanceFrom(otherTask, now),
+							getDistanceFrom(task, now));
+				}
+				return comparison;
+			}
+		});
+
+		int keptTasks = Global.MEMORY_BUDGET - Global.MEMORY_BUDGET / 10;
+		ArrayList<Task> evictedTasks = new ArrayList<Task>(candidates.subList(0,
+				tasks.size() - keptTasks));
+
+		IdentityHashMap<Task, Boolean> isEvicted = new IdentityHashMap<Task, Boolean>();
+		for (Task task : evictedTasks) {
+			isEvicted.put(task, true);
+			lastUsed.remove(task);
+		}
+		// Takes the stored indexes before the tasks leave the tasks list.
+		ArrayList<Task> orderedEvictedTasks = new ArrayList<Task>(evictedTasks.size());
+		int[] storedIndexes = new int[evictedTasks.size()];
+		for (int i = 0; i < tasks.size(); i++) {
+			if (isEvicted.containsKey(tasks.get(i))) {
+				storedIndexes[orderedEvictedTasks.size()] = pagedTasks.getStoredIndex(i);
+				orderedEvictedTasks.add(tasks.get(i));
+			}
+		}
+		pagedTasks.pageOut(orderedEvictedTasks, storedIndexes);
+
+		Iterator<Task> iterator = tasks.iterator();
+		while (iterator.hasNext()) {
+			if (isEvicted.containsKey(iterator.next())) {
+				iterator.remove();
+			}
+		}
+		logger.log(Level.INFO, "Paged out " + evictedTasks.size() + " tasks");
+	}
+
+	// Pages the given task back in if it is paged out. Returns its new index or -1.
+	// The task moves to the end of the tasks list, so the journal records the same
+	// move in the stored tasks list.
+	private int pageIn(Task task) {
+		int row = pagedTasks.indexOf(task);
+		if (row == -1) {
+			return -1;
+		}
+		int storedIndex = pagedTasks.getStoredIndexOf(row);
+		Task pagedTask = pagedTasks.pageIn(row);
+		tasks.add(pagedTask);
+		markAsUsed(pagedTask);
+		if (Global.journaling) {
+			appendToJournal(Storage.Operation.REMOVE, storedIndex, null);
+			appendToJournal(Storage.Operation.ADD, tasks.size() + pagedTasks.size() - 1,
+					pagedTask);
+		}
+		return tasks.size() - 1;
+	}
+
+	// Pages all paged tasks back in at their stored indexes, so the tasks list is
+	// the stored tasks list again and nothing is written.
+	private void pageInAllTasks() {
+		loadAllPartitions();
+		if (pagedTasks.size() == 0) {
+			return;
+		}
+		IdentityHashMap<Task, Boolean> isInMemory = new IdentityHashMap<Task, Boolean>();
+		for (Task task : tasks) {
+			isInMemory.put(task, true);
+		}
+		replaceTasks(new TaskList(pagedTasks.merge(tasks)));
+		pagedTasks.clear();
+		for (Task task : tasks) {
+			if (!isInMemory.containsKey(task)) {
+				markAsUsed(task);
+			}
+		}
+	}
+
+	private long getLastUsed(Task task) {
+		Long used = lastUsed.get(task);
+		return used == null ? 0 : used;
+	}
+
+	// Returns the distance of the date of the given task from now, or 0 for floating tasks.
+	private long getDistanceFrom(Task task, long now) {
+		if (task.getType().equals(Task.TaskType.FLOATING)) {
+			return 0;
+		}
+		return Math.abs(((DatedTask) task).getDate().getTime() - now);
+	}
+
+	// Loads all storage partitions not loaded yet.
+	private void loadAllPartitions() {
+		if (!isPartitioned()) {
+			return;
+		}
+		ArrayList<String> keys = new ArrayList<String>();
+		for (PartitionManifest.Partition partition : TaskCommander.storage.getPartitions()) {
+			keys.add(partition.getKey());
+		}
+		loadPartitions(keys);
+	}
+
+	// Loads the storage partitions which may hold tasks matching the status, type
+	// and date restrictions.
+	private void loadMatchingPartitions(boolean isDateRestricted, Date startDate,
+			Date endDate, boolean isTaskTypeRestricted, boolean areFloatingTasksDisplayed,
+			boolean isStatusRestricted, boolean areDoneTasksDisplayed) {
+		if (!isPartitioned()) {
+			return;
+		}
+		ArrayList<String> keys = new ArrayList<String>();
+		for (PartitionManifest.Partition partition : TaskCommander.storage.getPartitions()) {
+			if (isStatusRestricted && (areDoneTasksDisplayed
+					? partition.getOpenTasks() == partition.getSize()
+					: partition.getOpenTasks() == 0)) {
+				continue;
+			}
+			if (partition.isFloating()) {
+				if ((!isTaskTypeRestricted || areFloatingTasksDisplayed) && !isDateRestricted) {
+					keys.add(partition.getKey());
+				}
+			} else if (!isDateRestricted
+					|| ((startDate == null || partition.getMaxStartDate() >= startDate.getTime())
+							&& partition.getMinEndDate() <= endDate.getTime())) {
+				keys.add(partition.getKey());
+			}
+		}
+		loadPartitions(keys);
+	}
+
+	// Loads the given storage partitions not loaded yet. As journal records refer to
+	// the tasks list, the journal is written out into the partitions first.
+	private void loadPartitions(ArrayList<String> keys) {
+		ArrayList<String> missingPartitions = new ArrayList<String>();
+		for (String key : keys) {
+			if (!loadedPartitions.contains(key)) {
+				missingPartitions.add(key);
+			}
+		}
+		if (missingPartitions.isEmpty()) {
+			return;
+		}
+		if (TaskCommander.storage.getJournalSize() > 0) {
+			saveToPermanentStorage();
+		}
+		readPartitions(missingPartitions);
+		TaskCommander.storage.writePartitionLoadOrder(loadedPartitions);
+		logger.log(Level.INFO, "Loaded partitions " + missingPartitions);
+	}
+
+	// Adds the tasks of the given existing storage partitions to the tasks list.
+	private void readPartitions(ArrayList<String> keys) {
+		ArrayList<String> existingPartitions = new ArrayList<String>();
+		for (String key : keys) {
+			if (TaskCommander.storage.hasPartition(key)) {
+				existingPartitions.add(key);
+			}
+		}
+		tasks.addAll(TaskCommander.storage.readPartitions(existingPartitions));
+		loadedPartitions.addAll(existingPartitions);
 	}
 
 	//@author A0128620M 
@@ -34,6 +34,7 @@ public abstract class DatedTask extends Task implements Comparable<DatedTask> {
 
     public void setDate(Date date) {
         _date = date;
+        markDirty();
     }
 
     /**
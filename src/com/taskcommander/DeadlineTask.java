@@ -57,6 +57,8 @@ public class DeadlineTask extends DatedTask {
         this.setId(otherDeadlineTask.getId());
         this.setDone(otherDeadlineTask.isDone());
         this.setEdited(otherDeadlineTask.isEdited());
+        this.setUpdated(otherDeadlineTask.getUpdated());
+        this.copyLocalId(otherDeadlineTask);
     }
     
     //@author A0109194A
@@ -32,6 +32,8 @@ public class FloatingTask extends Task implements Comparable<FloatingTask> {
         this.setId(otherFloatingTask.getId());
         this.setDone(otherFloatingTask.isDone());
         this.setEdited(otherFloatingTask.isEdited());
+        this.setUpdated(otherFloatingTask.getUpdated());
+        this.copyLocalId(otherFloatingTask);
     }
 
     //A0109194A
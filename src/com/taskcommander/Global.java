@@ -39,6 +39,11 @@ public class Global {
 	public static final String MESSAGE_FILE_COULD_NOT_BE_WRITTEN = "Error: The File could not be written.";
 	public static final String MESSAGE_FILE_COULD_NOT_BE_LOADED = "Error: The File could not be loaded.";
 	public static final String MESSAGE_EXCEPTION_IO = "Unable to read the data retrieved.";
+	public static final String MESSAGE_FILE_RESTORED = "The File was damaged. Loaded the last good copy instead.";
+	public static final String MESSAGE_FILE_DAMAGED = "The File was damaged since it was last written, and was kept as %1$s. Loaded the last good copy instead.";
+	public static final String MESSAGE_FILE_CHANGED = "The File was changed by another program: %1$d tasks added, %2$d removed.";
+	public static final String MESSAGE_READ_ONLY = "The File is being written by another TaskCommander. Tasks can only be displayed and searched.";
+	public static final String MESSAGE_JOURNAL_TAILED = "Read %1$d changes made by another TaskCommander.";
 	public static final String MESSAGE_ILLEGAL_ARGUMENTS = "Illegal arguments given.";
 	public static final String MESSAGE_ARGUMENTS_INVALID = "Invalid arguments given.";
 
@@ -99,8 +104,93 @@ public class Global {
 		FAILED
 	}
 
+	// Possible backends storing the tasks permanently
+	public static enum StorageBackendType {
+		FILE, // storage file and journal, see Storage
+		KEY_VALUE // log-structured key-value engine, see KeyValueStorage
+	}
+
+	public static StorageBackendType STORAGE_BACKEND = StorageBackendType.FILE;
+
+	// Name of the log file of the KEY_VALUE storage backend
+	public static String KEY_VALUE_FILENAME = "tasks.kv";
+
+	// Possible formats of the storage file
+	public static enum StorageFormat {
+		JSON,
+		BINARY,
+		RECORDS // fixed size records updated in place, see RecordFile
+	}
+
 	// Name of Storage File
 	public static String FILENAME = "tasks.json";
 
+	// Suffixes of the file a storage file is written to before replacing it, and of
+	// the previous storage file, which is kept as the last good copy
+	public static final String TEMP_FILE_SUFFIX = ".tmp";
+	public static final String BACKUP_FILE_SUFFIX = ".bak";
+
+	// Suffixes of the file holding the checksums of a storage file, and of the copy
+	// kept of a storage file which did not match them
+	public static final String CHECKSUM_FILE_SUFFIX = ".sum";
+	public static final String DAMAGED_FILE_SUFFIX = ".damaged";
+
+	// Suffix of the heap file holding the names and IDs of a record storage file
+	public static final String NAME_HEAP_SUFFIX = ".names";
+
+	// Format the storage file is written in. Files in any format can be read.
+	public static StorageFormat STORAGE_FORMAT = StorageFormat.JSON;
+
+	// If true, the storage file is compressed in blocks, unless written as records.
+	// Compressed files are recognised when reading.
+	public static boolean compressing = false;
+
+	// Deflater level used to compress the storage file, from 1 (fastest) to 9 (smallest)
+	public static int COMPRESSION_LEVEL = 6;
+
+	// Name of the journal file holding the operations since the last full write of the storage file
+	public static String JOURNAL_FILENAME = "tasks.journal";
+
+	// Minimum number of journal records before the storage file is rewritten and the journal cleared
+	public static final int JOURNAL_COMPACTION_THRESHOLD = 1000;
+
+	// If false, every command rewrites the whole storage file instead of appending to the journal
+	public static boolean journaling = true;
+
+	// When journal records are written to disk by the JournalWriter
+	public static enum Durability {
+		EVERY_COMMAND, // as soon as possible after every command
+		INTERVAL, // at most once per DURABILITY_INTERVAL
+		ON_EXIT // only when flushed, on exit and after syncing
+	}
+
+	public static Durability DURABILITY = Durability.EVERY_COMMAND;
+
+	// Milliseconds between journal writes in the INTERVAL mode and while syncing
+	public static int DURABILITY_INTERVAL = 1000;
+
+	// If true, tasks are stored in one file per month and one for floating tasks instead
+	// of a single file, and only the files needed are read
+	public static boolean partitioning = false;
+
+	// Name of the file listing the partitions of the storage file
+	public static String PARTITION_MANIFEST_FILENAME = "tasks.partitions";
+
+	// If true, the storage file is watched for changes made by other programs or processes
+	public static boolean watching = true;
+
+	// Milliseconds without further changes of the storage file before a change is read
+	public static int WATCH_DELAY = 200;
+
+	// If true, only one process at a time may write the storage file. Other processes
+	// open it read-only and follow the changes of the writing process.
+	public static boolean locking = true;
+
+	// Suffix of the file locked by the processes sharing a storage file
+	public static final String LOCK_FILE_SUFFIX = ".lock";
+
+	// Maximum number of tasks kept in memory before the least recently used ones are paged out
+	public static int MEMORY_BUDGET = Integer.MAX_VALUE;
+
 	public static boolean syncing = false;
 }
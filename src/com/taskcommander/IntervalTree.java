@@ -0,0 +1,204 @@
+package com.taskcommander;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Random;
+
+//@author A0112828H
+/**
+ * Interval tree of timed tasks: a binary search tree ordered by start date,
+ * in which every node also holds the latest end date below it, so the tasks
+ * overlapping a period are found without going through all tasks.
+ *
+ * The tree is kept balanced as a treap, by random priorities. Tasks of equal
+ * start date keep the order they were added in. A task is kept with the
+ * dates it had when added, so it can be removed after its dates changed.
+ */
+public class IntervalTree {
+
+	private static final Random random = new Random();
+
+	private static class Node {
+		private TimedTask task;
+		private long start;
+		private long end;
+		private long sequence;
+		private int priority;
+		private long maxEnd;
+		private Node left;
+		private Node right;
+	}
+
+	private Node root;
+	private IdentityHashMap<TimedTask, Node> nodes = new IdentityHashMap<TimedTask, Node>();
+	private long _nextSequence;
+
+	/**
+	 * Adds the given task, unless it is in the tree already.
+	 *
+	 * @param task
+	 * @return true if added
+	 */
+	public boolean add(TimedTask task) {
+		if (nodes.containsKey(task)) {
+			return false;
+		}
+		Node node = new Node();
+		node.task = task;
+		node.start = task.getStartDate().getTime();
+		node.end = task.getEndDate().getTime();
+		node.sequence = _nextSequence++;
+		node.priority = random.nextInt();
+		node.maxEnd = node.end;
+		nodes.put(task, node);
+		root = insert(root, node);
+		return true;
+	}
+
+	/**
+	 * Removes the given task.
+	 *
+	 * @param task
+	 * @return true if removed, false if not in the tree
+	 */
+	public boolean remove(TimedTask task) {
+		Node node = nodes.remove(task);
+		if (node == null) {
+			return false;
+		}
+		root = delete(root, node);
+		return true;
+	}
+
+	public void clear() {
+		root = null;
+		nodes.clear();
+	}
+
+	public int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * Returns the tasks overlapping the given period, including tasks which
+	 * only touch it, sorted by start date.
+	 *
+	 * @param startDate start of the period, or null for no limit
+	 * @param endDate end of the period, or null for no limit
+	 */
+	public ArrayList<TimedTask> getOverlappingTasks(Date startDate, Date endDate) {
+		ArrayList<TimedTask> tasks = new ArrayList<TimedTask>();
+		collectOverlapping(root, startDate == null ? Long.MIN_VALUE : startDate.getTime(),
+				endDate == null ? Long.MAX_VALUE : endDate.getTime(), tasks);
+		return tasks;
+	}
+
+	// Adds the tasks below the given node overlapping the given period in order of start date.
+	private void collectOverlapping(Node node, long start, long end, ArrayList<TimedTask> tasks) {
+		if (node == null || node.maxEnd < start) {
+			return;
+		}
+		collectOverlapping(node.left, start, end, tasks);
+		if (node.start > end) {
+			// Everything to the right starts later still.
+			return;
+		}
+		if (node.end >= start) {
+			tasks.add(node.task);
+		}
+		collectOverlapping(node.right, start, end, tasks);
+	}
+
+	private Node insert(Node node, Node newNode) {
+		if (node == null) {
+			return newNode;
+		}
+		if (compare(newNode, node) < 0) {
+			node.left = insert(node.left, newNode);
+			if (node.left.priority > node.priority) {
+				node = rotateRight(node);
+			}
+		} else {
+			node.right = insert(node.right, newNode);
+			if (node.right.priority > node.priority) {
+				node = rotateLeft(node);
+			}
+		}
+		update(node);
+		return node;
+	}
+
+	private Node delete(Node node, Node oldNode) {
+		if (node == null) {
+			return null;
+		}
+		if (node == oldNode) {
+			return merge(node.left, node.right);
+		}
+		if (compare(oldNode, node) < 0) {
+			node.left = delete(node.left, oldNode);
+		} else {
+			node.right = delete(node.right, oldNode);
+		}
+		update(node);
+		return node;
+	}
+
+	// Merges two trees, all of whose nodes in the first come before those in the second.
+	private Node merge(Node first, Node second) {
+		if (first == null) {
+			return second;
+		}
+		if (second == null) {
+			return first;
+		}
+		if (first.priority > second.priority) {
+			first.right = merge(first.right, second);
+			update(first);
+			return first;
+		} else {
+			second.left = merge(first, second.left);
+			update(second);
+			return second;
+		}
+	}
+
+	private Node rotateRight(Node node) {
+		Node left = node.left;
+		node.left = left.right;
+		left.right = node;
+		update(node);
+		update(left);
+		return left;
+	}
+
+	private Node rotateLeft(Node node) {
+		Node right = node.right;
+		node.right = right.left;
+		right.left = node;
+		update(node);
+		update(right);
+		return right;
+	}
+
+	private void update(Node node) {
+		node.maxEnd = node.end;
+		if (node.left != null && node.left.maxEnd > node.maxEnd) {
+			node.maxEnd = node.left.maxEnd;
+		}
+		if (node.right != null && node.right.maxEnd > node.maxEnd) {
+			node.maxEnd = node.right.maxEnd;
+		}
+	}
+
+	private static int compare(Node node, Node otherNode) {
+		if (node.start != otherNode.start) {
+			return node.start < otherNode.start ? -1 : 1;
+		}
+		if (node.sequence != otherNode.sequence) {
+			return node.sequence < otherNode.sequence ? -1 : 1;
+		}
+		return 0;
+	}
+}
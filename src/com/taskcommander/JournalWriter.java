@@ -0,0 +1,193 @@
+package com.taskcommander;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+//@author A0112828H
+/**
+ * Appends journal records to the journal file on a background thread, so that
+ * commands do not wait for the disk unless Global.DURABILITY requires it.
+ *
+ * Records queued while a write is in progress are written together in the
+ * next write, each followed by a single force to disk (group commit). When
+ * records are written depends on Global.DURABILITY. In EVERY_COMMAND mode,
+ * Data calls flush() after each command, so the command returns once its
+ * record is on disk. While syncing, records are written at most once per
+ * interval, as the SyncHandler changes many tasks in a row. flush() waits
+ * until all queued records are on disk. Records are appended while holding
+ * the StorageLock, so other processes reading the journal never see a record
+ * cut off.
+ */
+public class JournalWriter implements Runnable {
+
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	private String _fileName;
+	private StorageLock storageLock;
+	private Thread thread;
+
+	// Records not yet written, and the numbers of the last queued and last written record
+	private ArrayList<String> pending = new ArrayList<String>();
+	private long _queued;
+	private long _written;
+	private long _lastWriteTime;
+	private int _flushRequests;
+	private boolean _writing;
+
+	/**
+	 * Returns a JournalWriter appending to the given journal file.
+	 *
+	 * @param fileName
+	 * @param storageLock locked while appending if Global.locking is set, may be null
+	 */
+	public JournalWriter(String fileName, StorageLock storageLock) {
+		_fileName = fileName;
+		this.storageLock = storageLock;
+	}
+
+	/**
+	 * Queues the given record to be appended to the journal.
+	 *
+	 * @param record journal line without line separator
+	 */
+	public synchronized void append(String record) {
+		if (thread == null) {
+			thread = new Thread(this, "JournalWriter");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		pending.add(record);
+		_queued++;
+		notifyAll();
+	}
+
+	/**
+	 * Waits until all records queued so far have been written and forced to disk.
+	 */
+	public synchronized void flush() {
+		long target = _queued;
+		_flushRequests++;
+		notifyAll();
+		try {
+			while (_written < target) {
+				wait();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			_flushRequests--;
+		}
+	}
+
+	/**
+	 * Waits until no write is in progress. Holding the lock of this JournalWriter
+	 * afterwards keeps new writes from starting, so the journal file can be replaced.
+	 */
+	public synchronized void waitUntilIdle() {
+		try {
+			while (_writing) {
+				wait();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Drops all queued records, e.g. because the storage file now contains them.
+	 */
+	public synchronized void discardPending() {
+		waitUntilIdle();
+		pending.clear();
+		_written = _queued;
+		notifyAll();
+	}
+
+	/**
+	 * Returns the number of queued records not yet written.
+	 */
+	public synchronized int getPendingSize() {
+		return pending.size();
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			ArrayList<String> batch;
+			long batchEnd;
+			synchronized (this) {
+				try {
+					waitUntilDue();
+				} catch (InterruptedException e) {
+					return;
+				}
+				batch = pending;
+				batchEnd = _queued;
+				pending = new ArrayList<String>();
+				_writing = true;
+			}
+
+			write(batch);
+
+			synchronized (this) {
+				_writing = false;
+				_written = batchEnd;
+				_lastWriteTime = System.currentTimeMillis();
+				notifyAll();
+			}
+		}
+	}
+
+	// Waits until the queued records are due to be written according to the durability mode.
+	private void waitUntilDue() throws InterruptedException {
+		while (true) {
+			if (pending.isEmpty()) {
+				wait();
+				continue;
+			}
+			if (_flushRequests > 0) {
+				return;
+			}
+			Global.Durability durability = Global.DURABILITY;
+			if (durability == Global.Durability.EVERY_COMMAND && !Global.syncing) {
+				return;
+			}
+			if (durability == Global.Durability.ON_EXIT) {
+				wait();
+				continue;
+			}
+			long remaining = _lastWriteTime + Global.DURABILITY_INTERVAL - System.currentTimeMillis();
+			if (remaining <= 0) {
+				return;
+			}
+			wait(remaining);
+		}
+	}
+
+	// Appends the given records to the journal file and forces them to disk.
+	private void write(ArrayList<String> batch) {
+		StringBuilder records = new StringBuilder();
+		for (String record : batch) {
+			records.append(record).append(LINE_SEPARATOR);
+		}
+		FileOutputStream out = null;
+		FileLock lock = null;
+		if (storageLock != null && Global.locking) {
+			lock = storageLock.lock(false);
+		}
+		try {
+			out = new FileOutputStream(new File(_fileName), true);
+			out.write(records.toString().getBytes(Charset.defaultCharset()));
+			out.getChannel().force(false);
+			out.close();
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+		} finally {
+			StorageLock.unlock(lock);
+		}
+	}
+}
@@ -0,0 +1,427 @@
+package com.taskcommander;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+//@author A0112828H
+/**
+ * Embedded key-value engine storing the tasks in a single log file.
+ *
+ * Every task is stored under a key of its own, which stays the same while
+ * the task is changed. Keys are given out in increasing order, so the order
+ * of the keys is the order of the tasks list. The file starts with the magic
+ * bytes "TCKV" and a version byte, followed by one entry per operation: the
+ * entry type (put, delete or clear), the key, the length and the bytes of the
+ * task encoded by BinaryTaskCodec, and the CRC32 of the entry.
+ *
+ * Reading replays the log, keeping the last put of every key not deleted
+ * since, and drops an entry cut off at the end of the file. Writing the
+ * whole tasks list writes a new log holding a single put per task, which
+ * replaces the file, so superseded entries are compacted away. Tasks keep
+ * their keys, found by their local IDs, so the log keeps the keys of all
+ * tasks unless they were moved. Of moved tasks, the most tasks whose keys
+ * are still in order keep theirs, and the others are given new keys.
+ */
+public class KeyValueStorage implements StorageBackend {
+
+	public static final byte[] MAGIC = { 'T', 'C', 'K', 'V' };
+	public static final byte VERSION = 1;
+
+	private static final byte PUT = 1;
+	private static final byte DELETE = 2;
+	private static final byte CLEAR = 3;
+
+	// Length of an entry without the task
+	private static final int ENTRY_OVERHEAD = 1 + 8 + 4 + 4;
+
+	private String _fileName;
+	private RandomAccessFile file;
+	private FileChannel channel;
+
+	// Keys of the tasks in the order of the tasks list, and the keys by the local
+	// ID of their tasks, which may hold keys of tasks removed since
+	private ArrayList<Long> keys = new ArrayList<Long>();
+	private HashMap<Long, Long> keysByLocalId = new HashMap<Long, Long>();
+	private long _nextKey;
+
+	// Number of entries in the log not holding a stored task
+	private int _supersededEntries;
+
+	/**
+	 * Returns a KeyValueStorage storing the tasks in the file given by Global.KEY_VALUE_FILENAME.
+	 */
+	public KeyValueStorage() {
+		_fileName = Global.KEY_VALUE_FILENAME;
+	}
+
+	/**
+	 * Returns the tasks stored in the log, in the order of their keys.
+	 * Creates the file if it does not exist.
+	 */
+	@Override
+	public ArrayList<Task> readFromFile() {
+		close();
+		TreeMap<Long, Task> tasksByKey = new TreeMap<Long, Task>();
+		_supersededEntries = 0;
+		try {
+			if (!new File(_fileName).exists()) {
+				writeLog(new ArrayList<Task>(), new ArrayList<Long>(), _fileName);
+			}
+			long validLength = readLog(tasksByKey);
+			open();
+			if (validLength < channel.size()) {
+				channel.truncate(validLength);
+			}
+			channel.position(validLength);
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+		}
+
+		keys.clear();
+		keysByLocalId.clear();
+		for (Map.Entry<Long, Task> entry : tasksByKey.entrySet()) {
+			keys.add(entry.getKey());
+			keysByLocalId.put(entry.getValue().getLocalId(), entry.getKey());
+		}
+		_nextKey = tasksByKey.isEmpty() ? 0 : tasksByKey.lastKey() + 1;
+		return new ArrayList<Task>(tasksByKey.values());
+	}
+
+	/**
+	 * Writes a new log holding the given tasks, which replaces the file.
+	 */
+	@Override
+	public void writeToFile(ArrayList<Task> tasks) {
+		close();
+		String tempFileName = _fileName + Global.TEMP_FILE_SUFFIX;
+		try {
+			ArrayList<Long> newKeys = getKeys(tasks);
+			writeLog(tasks, newKeys, tempFileName);
+			Files.move(Paths.get(tempFileName), Paths.get(_fileName),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			keys = newKeys;
+			keysByLocalId.clear();
+			int keyIndex = 0;
+			for (Task task : tasks) {
+				if (task != null) {
+					keysByLocalId.put(task.getLocalId(), keys.get(keyIndex++));
+				}
+			}
+			_nextKey = keys.isEmpty() ? 0 : keys.get(keys.size() - 1) + 1;
+			_supersededEntries = 0;
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_FILE_COULD_NOT_BE_WRITTEN);
+		}
+		try {
+			open();
+			channel.position(channel.size());
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+		}
+	}
+
+	/**
+	 * Appends the entry of a single operation to the log. Forced to disk
+	 * right away in the EVERY_COMMAND durability mode, otherwise on flush().
+	 */
+	@Override
+	public void appendToJournal(Storage.Operation operation, int index, Task task) {
+		if (channel == null) {
+			System.out.println(Global.MESSAGE_FILE_COULD_NOT_BE_WRITTEN);
+			return;
+		}
+		try {
+			switch (operation) {
+			case ADD:
+				long key = _nextKey++;
+				appendEntry(PUT, key, task);
+				keys.add(key);
+				keysByLocalId.put(task.getLocalId(), key);
+				break;
+
+			case SET:
+				appendEntry(PUT, keys.get(index), task);
+				keysByLocalId.put(task.getLocalId(), keys.get(index));
+				_supersededEntries++;
+				break;
+
+			case REMOVE:
+				appendEntry(DELETE, keys.get(index), null);
+				keys.remove(index);
+				_supersededEntries += 2;
+				break;
+
+			case CLEAR:
+				appendEntry(CLEAR, 0, null);
+				_supersededEntries += keys.size() + 1;
+				keys.clear();
+				keysByLocalId.clear();
+				break;
+
+			default:
+				return;
+			}
+			if (Global.DURABILITY == Global.Durability.EVERY_COMMAND && !Global.syncing) {
+				channel.force(false);
+			}
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_FILE_COULD_NOT_BE_WRITTEN);
+		}
+	}
+
+	/**
+	 * Does nothing, as the log is replayed when reading.
+	 */
+	@Override
+	public void replayJournal(ArrayList<Task> tasks) {
+	}
+
+	/**
+	 * Checks if the log holds entries not holding a stored task.
+	 */
+	@Override
+	public boolean hasJournal() {
+		return _supersededEntries > 0;
+	}
+
+	/**
+	 * Returns the number of entries in the log not holding a stored task,
+	 * which are dropped when the tasks list is written in full.
+	 */
+	@Override
+	public int getJournalSize() {
+		return _supersededEntries;
+	}
+
+	@Override
+	public void flush() {
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.force(false);
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+		}
+	}
+
+	/**
+	 * Closes the log file.
+	 */
+	public void close() {
+		if (file == null) {
+			return;
+		}
+		try {
+			file.close();
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+		}
+		file = null;
+		channel = null;
+	}
+
+	private void open() throws IOException {
+		file = new RandomAccessFile(_fileName, "rw");
+		channel = file.getChannel();
+	}
+
+	// Replays the log into the given map. Returns the length of the log up to
+	// the first entry which is cut off or does not match its checksum.
+	private long readLog(TreeMap<Long, Task> tasksByKey) throws IOException {
+		long fileLength = new File(_fileName).length();
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(_fileName)));
+		try {
+			byte[] header = new byte[MAGIC.length + 1];
+			in.readFully(header);
+			for (int i = 0; i < MAGIC.length; i++) {
+				if (header[i] != MAGIC[i]) {
+					throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+				}
+			}
+			if (header[MAGIC.length] != VERSION) {
+				throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+			}
+			long length = header.length;
+			int entries = 0;
+			CRC32 crc = new CRC32();
+			while (true) {
+				byte type;
+				long key;
+				byte[] value;
+				try {
+					type = in.readByte();
+					key = in.readLong();
+					int valueLength = in.readInt();
+					if ((type != PUT && type != DELETE && type != CLEAR)
+							|| valueLength < 0 || length + ENTRY_OVERHEAD + valueLength > fileLength) {
+						break;
+					}
+					value = new byte[valueLength];
+					in.readFully(value);
+					crc.reset();
+					crc.update(encodeEntryHeader(type, key, valueLength));
+					crc.update(value);
+					if (in.readInt() != (int) crc.getValue()) {
+						break;
+					}
+				} catch (EOFException e) {
+					break;
+				}
+
+				switch (type) {
+				case PUT:
+					tasksByKey.put(key, BinaryTaskCodec.read(
+							new DataInputStream(new ByteArrayInputStream(value))));
+					break;
+
+				case DELETE:
+					tasksByKey.remove(key);
+					break;
+
+				default:
+					tasksByKey.clear();
+					break;
+				}
+				entries++;
+				length += ENTRY_OVERHEAD + value.length;
+			}
+			_supersededEntries = entries - tasksByKey.size();
+			return length;
+		} finally {
+			in.close();
+		}
+	}
+
+	// Returns the keys of the given tasks, skipping null tasks, in increasing order.
+	// The longest sequence of tasks whose old keys increase keeps them. Every other
+	// task is given the key after the key of the task before, which moves the tasks
+	// after it to new keys as well if there is no gap in the keys kept.
+	private ArrayList<Long> getKeys(ArrayList<Task> tasks) {
+		ArrayList<Long> oldKeys = new ArrayList<Long>(tasks.size());
+		for (Task task : tasks) {
+			if (task != null) {
+				oldKeys.add(keysByLocalId.get(task.getLocalId()));
+			}
+		}
+		HashSet<Long> keptKeys = getLongestIncreasingKeys(oldKeys);
+		ArrayList<Long> taskKeys = new ArrayList<Long>(oldKeys.size());
+		long lastKey = -1;
+		for (Long key : oldKeys) {
+			if (key == null || key <= lastKey || !keptKeys.contains(key)) {
+				key = lastKey + 1;
+			}
+			taskKeys.add(key);
+			lastKey = key;
+		}
+		return taskKeys;
+	}
+
+	// Returns the keys of the longest strictly increasing sequence of the given keys,
+	// ignoring null keys.
+	private static HashSet<Long> getLongestIncreasingKeys(ArrayList<Long> keys) {
+		// Ends of the sequences found for every length, as indexes into keys, and the
+		// index of the key before each key in its sequence.
+		int[] ends = new int[keys.size()];
+		int[] previous = new int[keys.size()];
+		int length = 0;
+		for (int i = 0; i < keys.size(); i++) {
+			Long key = keys.get(i);
+			if (key == null) {
+				continue;
+			}
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (keys.get(ends[middle]) < key) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			previous[i] = low > 0 ? ends[low - 1] : -1;
+			ends[low] = i;
+			if (low == length) {
+				length++;
+			}
+		}
+		HashSet<Long> increasingKeys = new HashSet<Long>();
+		for (int i = length > 0 ? ends[length - 1] : -1; i >= 0; i = previous[i]) {
+			increasingKeys.add(keys.get(i));
+		}
+		return increasingKeys;
+	}
+
+	// Writes a log holding a put of every given task, skipping null tasks, under
+	// the given keys in their order.
+	private void writeLog(ArrayList<Task> tasks, ArrayList<Long> taskKeys, String fileName)
+			throws IOException {
+		FileOutputStream fileOut = new FileOutputStream(fileName, false);
+		BufferedOutputStream out = new BufferedOutputStream(fileOut);
+		try {
+			out.write(MAGIC);
+			out.write(VERSION);
+			int keyIndex = 0;
+			for (Task task : tasks) {
+				if (task != null) {
+					out.write(encodeEntry(PUT, taskKeys.get(keyIndex++), task));
+				}
+			}
+			out.flush();
+			fileOut.getFD().sync();
+		} finally {
+			out.close();
+		}
+	}
+
+	private void appendEntry(byte type, long key, Task task) throws IOException {
+		ByteBuffer entry = ByteBuffer.wrap(encodeEntry(type, key, task));
+		while (entry.hasRemaining()) {
+			channel.write(entry);
+		}
+	}
+
+	private static byte[] encodeEntry(byte type, long key, Task task) throws IOException {
+		byte[] value = new byte[0];
+		if (task != null) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			BinaryTaskCodec.write(new DataOutputStream(bytes), task);
+			value = bytes.toByteArray();
+		}
+		byte[] header = encodeEntryHeader(type, key, value.length);
+		CRC32 crc = new CRC32();
+		crc.update(header);
+		crc.update(value);
+		ByteBuffer entry = ByteBuffer.allocate(ENTRY_OVERHEAD + value.length);
+		entry.put(header).put(value).putInt((int) crc.getValue());
+		return entry.array();
+	}
+
+	private static byte[] encodeEntryHeader(byte type, long key, int valueLength) {
+		ByteBuffer header = ByteBuffer.allocate(ENTRY_OVERHEAD - 4);
+		header.put(type).putLong(key).putInt(valueLength);
+		return header.array();
+	}
+}
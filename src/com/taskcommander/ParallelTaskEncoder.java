@@ -0,0 +1,127 @@
+package com.taskcommander;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+//@author A0112828H
+/**
+ * Encodes a large tasks list as JSON lines by splitting it into chunks and
+ * encoding the chunks in parallel on a fork-join pool. Every chunk is
+ * returned as a single buffer, in the order of the tasks list, so that all
+ * chunks can be written with one gathering write. Tasks which did not change
+ * since they were last encoded keep their line.
+ */
+public class ParallelTaskEncoder {
+
+	// Number of chunks per available processor, to even out chunks of unequal cost
+	private static final int CHUNKS_PER_PROCESSOR = 4;
+	private static final int MINIMUM_CHUNK_SIZE = 1024;
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	/**
+	 * Returns the encoded chunks of the given tasks.
+	 *
+	 * @param tasks
+	 * @param cached lines of tasks encoded before, which are not changed
+	 * @param encoded receives the line of every task encoded
+	 * @return buffers of the chunks in the order of the tasks
+	 */
+	public static ByteBuffer[] encode(ArrayList<Task> tasks, IdentityHashMap<Task, byte[]> cached,
+			IdentityHashMap<Task, byte[]> encoded) {
+		int chunkSize = Math.max(MINIMUM_CHUNK_SIZE, tasks.size()
+				/ (Runtime.getRuntime().availableProcessors() * CHUNKS_PER_PROCESSOR));
+		ArrayList<ChunkEncoder> encoders = new ArrayList<ChunkEncoder>();
+		for (int start = 0; start < tasks.size(); start += chunkSize) {
+			int end = Math.min(start + chunkSize, tasks.size());
+			encoders.add(new ChunkEncoder(tasks.subList(start, end), cached));
+		}
+
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			pool.invoke(new ChunkEncoders(encoders));
+		} finally {
+			pool.shutdown();
+		}
+
+		ByteBuffer[] chunks = new ByteBuffer[encoders.size()];
+		for (int i = 0; i < encoders.size(); i++) {
+			ChunkEncoder encoder = encoders.get(i);
+			chunks[i] = ByteBuffer.wrap(encoder.getRawResult());
+			for (int j = 0; j < encoder.tasks.size(); j++) {
+				if (encoder.tasks.get(j) != null) {
+					encoded.put(encoder.tasks.get(j), encoder.lines[j]);
+				}
+			}
+		}
+		return chunks;
+	}
+
+	/**
+	 * Runs all chunk encoders.
+	 */
+	private static class ChunkEncoders extends RecursiveTask<Void> {
+		private static final long serialVersionUID = 1L;
+		private ArrayList<ChunkEncoder> encoders;
+
+		ChunkEncoders(ArrayList<ChunkEncoder> encoders) {
+			this.encoders = encoders;
+		}
+
+		@Override
+		protected Void compute() {
+			ForkJoinTask.invokeAll(encoders);
+			return null;
+		}
+	}
+
+	/**
+	 * Encodes the tasks of one chunk of the tasks list into JSON lines.
+	 */
+	private static class ChunkEncoder extends RecursiveTask<byte[]> {
+		private static final long serialVersionUID = 1L;
+		private List<Task> tasks;
+		private IdentityHashMap<Task, byte[]> cached;
+		private byte[][] lines;
+
+		ChunkEncoder(List<Task> tasks, IdentityHashMap<Task, byte[]> cached) {
+			this.tasks = tasks;
+			this.cached = cached;
+		}
+
+		@Override
+		protected byte[] compute() {
+			// TaskAdapter is not thread-safe, so every chunk has its own.
+			GsonBuilder gsonBuilder = new GsonBuilder();
+			gsonBuilder.registerTypeAdapter(Task.class, new TaskAdapter());
+			Gson gson = gsonBuilder.create();
+
+			Charset charset = Charset.defaultCharset();
+			lines = new byte[tasks.size()][];
+			ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+			for (int i = 0; i < tasks.size(); i++) {
+				Task task = tasks.get(i);
+				if (task == null) {
+					continue;
+				}
+				byte[] line = cached.get(task);
+				if (line == null || task.isDirty()) {
+					line = (gson.toJson(task, Task.class) + LINE_SEPARATOR).getBytes(charset);
+					task.markClean();
+				}
+				lines[i] = line;
+				chunk.write(line, 0, line.length);
+			}
+			return chunk.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.taskcommander;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+//@author A0112828H
+/**
+ * Loads a JSON storage file by memory-mapping it, splitting it into chunks at
+ * line boundaries and decoding the chunks in parallel on a fork-join pool.
+ * The tasks are returned in the order of the file.
+ */
+public class ParallelTaskLoader {
+
+	// Number of chunks per available processor, to even out chunks of unequal cost
+	private static final int CHUNKS_PER_PROCESSOR = 4;
+	private static final int MINIMUM_CHUNK_SIZE = 64 * 1024;
+	private static final byte NEWLINE = '\n';
+	private static final char CARRIAGE_RETURN = '\r';
+
+	/**
+	 * Returns the tasks in the given JSON storage file.
+	 *
+	 * @param fileName
+	 * @return tasks in file order
+	 * @throws IOException if the file cannot be mapped
+	 */
+	public static ArrayList<Task> read(String fileName) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size());
+			ArrayList<ChunkDecoder> decoders = new ArrayList<ChunkDecoder>();
+			for (int[] chunk : splitIntoChunks(buffer)) {
+				decoders.add(new ChunkDecoder(buffer, chunk[0], chunk[1]));
+			}
+
+			ForkJoinPool pool = new ForkJoinPool();
+			try {
+				pool.invoke(new ChunkDecoders(decoders));
+			} finally {
+				pool.shutdown();
+			}
+
+			ArrayList<Task> tasks = new ArrayList<Task>();
+			for (ChunkDecoder decoder : decoders) {
+				tasks.addAll(decoder.getRawResult());
+			}
+			return tasks;
+		} finally {
+			file.close();
+		}
+	}
+
+	// Returns the start and end offsets of the chunks. Every chunk but the last ends after a newline.
+	private static ArrayList<int[]> splitIntoChunks(MappedByteBuffer buffer) {
+		int size = buffer.limit();
+		int chunkSize = Math.max(MINIMUM_CHUNK_SIZE, size
+				/ (Runtime.getRuntime().availableProcessors() * CHUNKS_PER_PROCESSOR));
+		ArrayList<int[]> chunks = new ArrayList<int[]>();
+		int start = 0;
+		while (start < size) {
+			int end = (int) Math.min((long) start + chunkSize, size);
+			while (end < size && buffer.get(end - 1) != NEWLINE) {
+				end++;
+			}
+			chunks.add(new int[] { start, end });
+			start = end;
+		}
+		return chunks;
+	}
+
+	/**
+	 * Runs all chunk decoders.
+	 */
+	private static class ChunkDecoders extends RecursiveTask<Void> {
+		private static final long serialVersionUID = 1L;
+		private ArrayList<ChunkDecoder> decoders;
+
+		ChunkDecoders(ArrayList<ChunkDecoder> decoders) {
+			this.decoders = decoders;
+		}
+
+		@Override
+		protected Void compute() {
+			ForkJoinTask.invokeAll(decoders);
+			return null;
+		}
+	}
+
+	/**
+	 * Decodes the lines of one chunk of the file into tasks.
+	 */
+	private static class ChunkDecoder extends RecursiveTask<ArrayList<Task>> {
+		private static final long serialVersionUID = 1L;
+		private MappedByteBuffer buffer;
+		private int start;
+		private int end;
+
+		ChunkDecoder(MappedByteBuffer buffer, int start, int end) {
+			this.buffer = buffer;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected ArrayList<Task> compute() {
+			// TaskAdapter is not thread-safe, so every chunk has its own.
+			GsonBuilder gsonBuilder = new GsonBuilder();
+			gsonBuilder.registerTypeAdapter(Task.class, new TaskAdapter());
+			Gson gson = gsonBuilder.create();
+
+			byte[] bytes = new byte[end - start];
+			ByteBuffer chunk = buffer.duplicate();
+			chunk.position(start);
+			chunk.get(bytes);
+
+			ArrayList<Task> tasks = new ArrayList<Task>();
+			Charset charset = Charset.defaultCharset();
+			int lineStart = 0;
+			for (int i = 0; i <= bytes.length; i++) {
+				if (i == bytes.length || bytes[i] == NEWLINE) {
+					String line = new String(bytes, lineStart, i - lineStart, charset);
+					lineStart = i + 1;
+					if (line.length() > 0 && line.charAt(line.length() - 1) == CARRIAGE_RETURN) {
+						line = line.substring(0, line.length() - 1);
+					}
+					if (line.startsWith(StorageChecksum.FOOTER_MAGIC)) {
+						continue;
+					}
+					Task task = gson.fromJson(line, Task.class);
+					if (task != null) {
+						tasks.add(task);
+					}
+				}
+			}
+			return tasks;
+		}
+	}
+}
@@ -0,0 +1,300 @@
+package com.taskcommander;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+
+//@author A0112828H
+/**
+ * Lists the partitions of a partitioned storage file. Dated tasks are
+ * partitioned by the month of their start date, or end date for deadline
+ * tasks, and all floating tasks share a single partition.
+ *
+ * For every partition the manifest keeps the number of open tasks, the
+ * latest start date and the earliest end date, so it can be decided which
+ * partitions a display needs without reading them. It also keeps the order in which the
+ * partitions were loaded when last written, as the journal records refer to
+ * positions in the tasks list made up of those partitions.
+ */
+public class PartitionManifest {
+
+	public static final String FLOATING_KEY = "floating";
+
+	private static final String SEPARATOR = "\t";
+	private static final int FIELDS = 6;
+
+	private String _fileName;
+	private LinkedHashMap<String, Partition> partitions;
+
+	/**
+	 * Summary of the tasks in one partition.
+	 */
+	public static class Partition {
+		private String _key;
+		private int _size;
+		private int _openTasks;
+		private long _maxStartDate;
+		private long _minEndDate;
+		private int _loadOrder;
+
+		private Partition(String key, int size, int openTasks,
+				long maxStartDate, long minEndDate, int loadOrder) {
+			_key = key;
+			_size = size;
+			_openTasks = openTasks;
+			_maxStartDate = maxStartDate;
+			_minEndDate = minEndDate;
+			_loadOrder = loadOrder;
+		}
+
+		public String getKey() {
+			return _key;
+		}
+
+		public int getSize() {
+			return _size;
+		}
+
+		public int getOpenTasks() {
+			return _openTasks;
+		}
+
+		public boolean isFloating() {
+			return _key.equals(FLOATING_KEY);
+		}
+
+		/**
+		 * Returns the latest start date of the tasks in milliseconds, or 0 for
+		 * the floating partition.
+		 */
+		public long getMaxStartDate() {
+			return _maxStartDate;
+		}
+
+		/**
+		 * Returns the earliest end date of the tasks in milliseconds, or 0 for
+		 * the floating partition.
+		 */
+		public long getMinEndDate() {
+			return _minEndDate;
+		}
+
+		/**
+		 * Returns the position of the partition among the loaded partitions at
+		 * the last write, or -1 if it was not loaded.
+		 */
+		public int getLoadOrder() {
+			return _loadOrder;
+		}
+	}
+
+	/**
+	 * Returns a PartitionManifest read from the given file, which may not exist yet.
+	 *
+	 * @param fileName
+	 */
+	public PartitionManifest(String fileName) {
+		_fileName = fileName;
+		partitions = new LinkedHashMap<String, Partition>();
+		read();
+	}
+
+	/**
+	 * Checks if the manifest file exists, i.e. the storage file has been partitioned.
+	 */
+	public boolean exists() {
+		return new File(_fileName).exists();
+	}
+
+	/**
+	 * Removes all partitions from the manifest and deletes its file.
+	 */
+	public void clear() {
+		partitions.clear();
+		new File(_fileName).delete();
+	}
+
+	/**
+	 * Returns all partitions.
+	 */
+	public Collection<Partition> getPartitions() {
+		return new ArrayList<Partition>(partitions.values());
+	}
+
+	/**
+	 * Returns the partition of the given key, or null if there is none.
+	 *
+	 * @param key
+	 */
+	public Partition get(String key) {
+		return partitions.get(key);
+	}
+
+	/**
+	 * Returns the keys of the partitions loaded at the last write, in load order.
+	 */
+	public ArrayList<String> getLoadedKeys() {
+		ArrayList<Partition> loadedPartitions = new ArrayList<Partition>();
+		for (Partition partition : partitions.values()) {
+			if (partition.getLoadOrder() >= 0) {
+				loadedPartitions.add(partition);
+			}
+		}
+		Collections.sort(loadedPartitions, new Comparator<Partition>() {
+			@Override
+			public int compare(Partition partition, Partition otherPartition) {
+				return Integer.compare(partition.getLoadOrder(), otherPartition.getLoadOrder());
+			}
+		});
+		ArrayList<String> keys = new ArrayList<String>();
+		for (Partition partition : loadedPartitions) {
+			keys.add(partition.getKey());
+		}
+		return keys;
+	}
+
+	/**
+	 * Replaces the summary of the given partition by one of the given tasks,
+	 * or removes the partition if there are no tasks.
+	 *
+	 * @param key
+	 * @param tasks
+	 */
+	public void update(String key, ArrayList<Task> tasks) {
+		if (tasks.isEmpty()) {
+			partitions.remove(key);
+			return;
+		}
+		int openTasks = 0;
+		long maxStartDate = Long.MIN_VALUE;
+		long minEndDate = Long.MAX_VALUE;
+		for (Task task : tasks) {
+			if (!task.isDone()) {
+				openTasks++;
+			}
+			maxStartDate = Math.max(maxStartDate, getStartDate(task));
+			minEndDate = Math.min(minEndDate, getEndDate(task));
+		}
+		partitions.put(key, new Partition(key, tasks.size(), openTasks,
+				maxStartDate, minEndDate, -1));
+	}
+
+	/**
+	 * Sets the load order of the partitions to the given order of keys.
+	 * Partitions not given are marked as not loaded.
+	 *
+	 * @param loadedKeys
+	 */
+	public void setLoadOrder(ArrayList<String> loadedKeys) {
+		for (Partition partition : partitions.values()) {
+			partition._loadOrder = loadedKeys.indexOf(partition.getKey());
+		}
+	}
+
+	/**
+	 * Writes the manifest to a temporary file, which then replaces the manifest file.
+	 *
+	 * @return true if successful, false if not
+	 */
+	public boolean write() {
+		String tempFileName = _fileName + Global.TEMP_FILE_SUFFIX;
+		try {
+			BufferedWriter bw = new BufferedWriter(new FileWriter(new File(tempFileName), false));
+			for (Partition partition : partitions.values()) {
+				bw.write(partition._key + SEPARATOR + partition._size + SEPARATOR
+						+ partition._openTasks + SEPARATOR + partition._maxStartDate
+						+ SEPARATOR + partition._minEndDate + SEPARATOR
+						+ partition._loadOrder);
+				bw.newLine();
+			}
+			bw.close();
+			Files.move(Paths.get(tempFileName), Paths.get(_fileName),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_FILE_COULD_NOT_BE_WRITTEN);
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the key of the partition the given task belongs to.
+	 *
+	 * @param task
+	 */
+	public static String getKey(Task task) {
+		if (task.getType() == Task.TaskType.FLOATING) {
+			return FLOATING_KEY;
+		}
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(getStartDate(task));
+		return String.format("%04d-%02d", calendar.get(Calendar.YEAR),
+				calendar.get(Calendar.MONTH) + 1);
+	}
+
+	// Returns the start date of a timed task or the end date of a deadline task, or 0.
+	private static long getStartDate(Task task) {
+		switch (task.getType()) {
+		case TIMED:
+			return ((TimedTask) task).getStartDate().getTime();
+
+		case DEADLINE:
+			return ((DeadlineTask) task).getEndDate().getTime();
+
+		default:
+			return 0;
+		}
+	}
+
+	// Returns the end date of a timed or deadline task, or 0.
+	private static long getEndDate(Task task) {
+		switch (task.getType()) {
+		case TIMED:
+			return ((TimedTask) task).getEndDate().getTime();
+
+		case DEADLINE:
+			return ((DeadlineTask) task).getEndDate().getTime();
+
+		default:
+			return 0;
+		}
+	}
+
+	private void read() {
+		File file = new File(_fileName);
+		if (!file.exists()) {
+			return;
+		}
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(file));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(SEPARATOR);
+				if (fields.length != FIELDS) {
+					continue;
+				}
+				partitions.put(fields[0], new Partition(fields[0],
+						Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+						Long.parseLong(fields[3]), Long.parseLong(fields[4]),
+						Integer.parseInt(fields[5])));
+			}
+			reader.close();
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+		} catch (NumberFormatException e) {
+			System.out.println(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+		}
+	}
+}
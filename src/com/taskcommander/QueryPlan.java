@@ -0,0 +1,117 @@
+package com.taskcommander;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//@author A0112828H
+/**
+ * How Data answers a TaskQuery: the access path the candidate tasks are
+ * found through, and the filters checking the restrictions the access path
+ * does not ensure. Returned by Data.explain(TaskQuery) to show how a display
+ * or search is answered.
+ */
+public class QueryPlan {
+
+	/**
+	 * Ways the candidate tasks of a query are found
+	 */
+	public enum AccessPath {
+		SEARCH_INDEX, // tasks having the words of a searched word, see TaskList.getTasksContaining
+		DATE_INDEX, // dated tasks within the dates, sorted
+		INTERVAL_TREE, // timed tasks overlapping the dates, sorted, see TaskList.getOverlappingTasks
+		TYPE_STATUS_BITMAP, // tasks at the positions of the matching types and status
+		SORTED_SCAN, // all tasks, sorted
+		FULL_SCAN // all tasks in the order of the tasks list
+	}
+
+	/**
+	 * Check of a restriction of the query on a candidate task
+	 */
+	public static abstract class Filter {
+		private String name;
+
+		public Filter(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public abstract boolean matches(Task task);
+	}
+
+	private TaskQuery query;
+	private AccessPath accessPath;
+	private List<Task> candidates;
+	private boolean _isSorted;
+	private int _taskCount;
+	private ArrayList<Filter> filters = new ArrayList<Filter>();
+
+	/**
+	 * Returns a QueryPlan answering the given query through the given candidates.
+	 *
+	 * @param query
+	 * @param accessPath
+	 * @param candidates candidate tasks found through the access path
+	 * @param isSorted true if the candidates are sorted as displayed
+	 * @param taskCount number of tasks in memory
+	 */
+	public QueryPlan(TaskQuery query, AccessPath accessPath, List<Task> candidates,
+			boolean isSorted, int taskCount) {
+		this.query = query;
+		this.accessPath = accessPath;
+		this.candidates = candidates;
+		_isSorted = isSorted;
+		_taskCount = taskCount;
+	}
+
+	public void addFilter(Filter filter) {
+		filters.add(filter);
+	}
+
+	/**
+	 * Checks if the given candidate task passes all filters.
+	 *
+	 * @param task
+	 */
+	public boolean matches(Task task) {
+		for (Filter filter : filters) {
+			if (!filter.matches(task)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public TaskQuery getQuery() {
+		return query;
+	}
+
+	public AccessPath getAccessPath() {
+		return accessPath;
+	}
+
+	public List<Task> getCandidates() {
+		return candidates;
+	}
+
+	public boolean isSorted() {
+		return _isSorted;
+	}
+
+	/**
+	 * Returns a description of the plan, e.g.
+	 * "[done] through DATE_INDEX: 12 of 2000 tasks, sorted, filters [date, status]".
+	 */
+	@Override
+	public String toString() {
+		ArrayList<String> filterNames = new ArrayList<String>();
+		for (Filter filter : filters) {
+			filterNames.add(filter.getName());
+		}
+		return query + " through " + accessPath + ": " + candidates.size() + " of "
+				+ _taskCount + " tasks, " + (_isSorted ? "sorted" : "to be sorted")
+				+ ", filters " + filterNames;
+	}
+}
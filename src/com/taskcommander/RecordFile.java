@@ -0,0 +1,711 @@
+package com.taskcommander;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.google.api.client.util.DateTime;
+
+//@author A0112828H
+/**
+ * Storage file of fixed size records, which are updated in place.
+ *
+ * A record file starts with the magic bytes "TCRF", a version byte, the
+ * generation of its name heap and the record size, followed by one slot of
+ * RECORD_SIZE bytes per task: a state byte (free or used), the type, a flag
+ * byte (done, edited, has updated time, updated time is date only), the time
+ * zone shift of the updated time, the dates as epoch milliseconds, the
+ * updated time, and the offsets of the name and the optional ID in the heap.
+ *
+ * The slots are in the order of the tasks list. A removed task frees its
+ * slot, which is reused by a later task only if no slot after it is used,
+ * so added tasks stay at the end. Other free slots are dropped when all
+ * tasks are written.
+ *
+ * Names and IDs are kept in a separate heap file as chunks of a capacity,
+ * a length and UTF-8 bytes. A changed name is written to a new chunk before
+ * the record points to it. Chunks no longer referenced by any record are
+ * reused for later names.
+ *
+ * Changes write only the bytes of a record that differ, so marking a task
+ * as done writes a single byte. Writing all tasks creates a new file and a
+ * heap of the next generation, keeping the heap of the previous file, which
+ * becomes the last good copy.
+ */
+public class RecordFile {
+
+	public static final byte[] MAGIC = { 'T', 'C', 'R', 'F' };
+	public static final byte VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+	public static final int RECORD_SIZE = 48;
+
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	private static final byte STATE_FREE = 0;
+	private static final byte STATE_USED = 1;
+
+	private static final int FLAG_DONE = 1;
+	private static final int FLAG_EDITED = 1 << 1;
+	private static final int FLAG_UPDATED = 1 << 2;
+	private static final int FLAG_DATE_ONLY = 1 << 3;
+
+	// Offsets of the fields of a record
+	private static final int STATE = 0;
+	private static final int TYPE = 1;
+	private static final int FLAGS = 2;
+	private static final int TIME_ZONE_SHIFT = 4;
+	private static final int FIRST_DATE = 8;
+	private static final int SECOND_DATE = 16;
+	private static final int UPDATED = 24;
+	private static final int NAME = 32;
+	private static final int ID = 40;
+
+	private static final long NO_CHUNK = -1;
+	private static final int CHUNK_HEADER_SIZE = 8;
+	private static final int CHUNK_ALIGNMENT = 16;
+
+	private String _fileName;
+	private boolean _isReadOnly;
+	private int _generation;
+	private RandomAccessFile records;
+	private RandomAccessFile heap;
+	private FileChannel recordChannel;
+	private FileChannel heapChannel;
+
+	// Slots of the tasks in the order of the tasks list, and free slots
+	private ArrayList<Integer> slots = new ArrayList<Integer>();
+	private TreeSet<Integer> freeSlots = new TreeSet<Integer>();
+	private int _slotCount;
+
+	// Offsets of free heap chunks by capacity
+	private TreeMap<Integer, ArrayDeque<Long>> freeChunks = new TreeMap<Integer, ArrayDeque<Long>>();
+	private long _heapLength;
+
+	/**
+	 * Opens the given record file for reading and updating.
+	 *
+	 * @param fileName
+	 * @throws IOException if the file cannot be read or is not a record file
+	 */
+	public RecordFile(String fileName) throws IOException {
+		this(fileName, false);
+	}
+
+	// Opens the given record file, for reading only if requested, so a damaged
+	// file or a last good copy is left as it is.
+	private RecordFile(String fileName, boolean isReadOnly) throws IOException {
+		_fileName = fileName;
+		_isReadOnly = isReadOnly;
+		String mode = isReadOnly ? "r" : "rw";
+		records = new RandomAccessFile(fileName, mode);
+		recordChannel = records.getChannel();
+		try {
+			_generation = readHeader(recordChannel);
+			heap = new RandomAccessFile(getHeapFileName(fileName, _generation), mode);
+			heapChannel = heap.getChannel();
+			scan();
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Checks if the given file is a record file.
+	 *
+	 * @param fileName
+	 * @return true if so, false if not or if the file cannot be read
+	 */
+	public static boolean isRecordFile(String fileName) {
+		if (!new File(fileName).exists()) {
+			return false;
+		}
+		try {
+			RandomAccessFile file = new RandomAccessFile(fileName, "r");
+			try {
+				readHeader(file.getChannel());
+				return true;
+			} finally {
+				file.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the tasks of the given record file, which is opened for reading only.
+	 *
+	 * @param fileName
+	 * @return tasks in the order of their slots
+	 * @throws IOException
+	 */
+	public static ArrayList<Task> read(String fileName) throws IOException {
+		RecordFile file = new RecordFile(fileName, true);
+		try {
+			return file.readTasks();
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Checks if the given record file and its name heap can be read: every
+	 * used record has a known type and points to names and IDs within the
+	 * heap. Record files have no checksums, as they are updated in place.
+	 *
+	 * @param fileName
+	 * @return true if so, false if not
+	 */
+	public static boolean verify(String fileName) {
+		try {
+			read(fileName);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the given tasks to a new record file and a name heap of the next
+	 * generation after the given file. Both are forced to disk.
+	 *
+	 * @param tasks
+	 * @param tempFileName file to write the records to, which then replaces the given file
+	 * @param fileName
+	 * @return true if successful, false if not
+	 */
+	public static boolean write(ArrayList<Task> tasks, String tempFileName, String fileName) {
+		int generation = getGeneration(fileName) + 1;
+		try {
+			FileOutputStream heapFile = new FileOutputStream(getHeapFileName(fileName, generation), false);
+			DataOutputStream heapOut = new DataOutputStream(new BufferedOutputStream(heapFile));
+			FileOutputStream recordFile = new FileOutputStream(tempFileName, false);
+			DataOutputStream recordOut = new DataOutputStream(new BufferedOutputStream(recordFile));
+			try {
+				writeHeader(recordOut, generation);
+				ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+				for (Task task : tasks) {
+					if (task == null) {
+						continue;
+					}
+					long nameOffset = heapOut.size();
+					writeChunk(heapOut, task.getName());
+					long idOffset = NO_CHUNK;
+					if (task.getId() != null) {
+						idOffset = heapOut.size();
+						writeChunk(heapOut, task.getId());
+					}
+					encode(record, task, nameOffset, idOffset);
+					recordOut.write(record.array());
+				}
+				heapOut.flush();
+				heapFile.getFD().sync();
+				recordOut.flush();
+				recordFile.getFD().sync();
+			} finally {
+				heapOut.close();
+				recordOut.close();
+			}
+			return true;
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_FILE_COULD_NOT_BE_WRITTEN);
+			return false;
+		}
+	}
+
+	/**
+	 * Deletes the name heaps of generations before the previous one of the given file.
+	 *
+	 * @param fileName
+	 */
+	public static void deleteStaleHeaps(String fileName) {
+		int generation = getGeneration(fileName);
+		for (int i = generation - 2; i >= 0; i--) {
+			File heapFile = new File(getHeapFileName(fileName, i));
+			if (!heapFile.exists()) {
+				break;
+			}
+			heapFile.delete();
+		}
+	}
+
+	/**
+	 * Deletes the name heaps of the given file and of its last good copy.
+	 *
+	 * @param fileName
+	 */
+	public static void deleteHeaps(String fileName) {
+		int generation = getGeneration(fileName);
+		for (int i = generation; i >= 0 && i >= generation - 1; i--) {
+			new File(getHeapFileName(fileName, i)).delete();
+		}
+	}
+
+	/**
+	 * Returns the tasks of the file in the order of their slots, which
+	 * becomes the order of the tasks list updated by later calls.
+	 *
+	 * @throws IOException
+	 */
+	public ArrayList<Task> readTasks() throws IOException {
+		ByteBuffer recordBuffer = readFully(recordChannel, HEADER_SIZE,
+				(long) _slotCount * RECORD_SIZE);
+		ByteBuffer heapBuffer = readFully(heapChannel, 0, _heapLength);
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		for (int slot : slots) {
+			recordBuffer.position(slot * RECORD_SIZE);
+			ByteBuffer record = recordBuffer.slice();
+			record.limit(RECORD_SIZE);
+			tasks.add(decode(record, heapBuffer));
+		}
+		return tasks;
+	}
+
+	/**
+	 * Returns the number of tasks in the file.
+	 */
+	public int size() {
+		return slots.size();
+	}
+
+	/**
+	 * Adds the given task at the end of the tasks list, in the first free slot
+	 * after the slots used.
+	 *
+	 * @param task
+	 * @throws IOException
+	 */
+	public void add(Task task) throws IOException {
+		int lastSlot = slots.isEmpty() ? -1 : slots.get(slots.size() - 1);
+		Integer slot = freeSlots.higher(lastSlot);
+		if (slot == null) {
+			slot = _slotCount++;
+		} else {
+			freeSlots.remove(slot);
+		}
+		long nameOffset = allocate(task.getName());
+		long idOffset = task.getId() == null ? NO_CHUNK : allocate(task.getId());
+		ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+		encode(record, task, nameOffset, idOffset);
+		record.rewind();
+		writeFully(recordChannel, record, getOffset(slot));
+		slots.add(slot);
+	}
+
+	/**
+	 * Replaces the task at the given index of the tasks list by the given task.
+	 * Writes only the bytes of the record that changed, and the name or ID if
+	 * they changed.
+	 *
+	 * @param index
+	 * @param task
+	 * @throws IOException
+	 */
+	public void set(int index, Task task) throws IOException {
+		int slot = slots.get(index);
+		ByteBuffer oldRecord = ByteBuffer.allocate(RECORD_SIZE);
+		readFully(recordChannel, oldRecord, getOffset(slot));
+		long oldNameOffset = oldRecord.getLong(NAME);
+		long oldIdOffset = oldRecord.getLong(ID);
+
+		long nameOffset = oldNameOffset;
+		if (!task.getName().equals(readString(oldNameOffset))) {
+			nameOffset = allocate(task.getName());
+		}
+		long idOffset = oldIdOffset;
+		if (task.getId() == null) {
+			idOffset = NO_CHUNK;
+		} else if (oldIdOffset == NO_CHUNK || !task.getId().equals(readString(oldIdOffset))) {
+			idOffset = allocate(task.getId());
+		}
+
+		ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+		encode(record, task, nameOffset, idOffset);
+		int first = 0;
+		while (first < RECORD_SIZE && record.get(first) == oldRecord.get(first)) {
+			first++;
+		}
+		if (first < RECORD_SIZE) {
+			int last = RECORD_SIZE - 1;
+			while (record.get(last) == oldRecord.get(last)) {
+				last--;
+			}
+			record.limit(last + 1);
+			record.position(first);
+			writeFully(recordChannel, record, getOffset(slot) + first);
+		}
+
+		if (nameOffset != oldNameOffset) {
+			free(oldNameOffset);
+		}
+		if (idOffset != oldIdOffset && oldIdOffset != NO_CHUNK) {
+			free(oldIdOffset);
+		}
+	}
+
+	/**
+	 * Removes the task at the given index of the tasks list and frees its slot.
+	 *
+	 * @param index
+	 * @throws IOException
+	 */
+	public void remove(int index) throws IOException {
+		int slot = slots.get(index);
+		ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+		readFully(recordChannel, record, getOffset(slot));
+		ByteBuffer state = ByteBuffer.wrap(new byte[] { STATE_FREE });
+		writeFully(recordChannel, state, getOffset(slot) + STATE);
+		slots.remove(index);
+		freeSlots.add(slot);
+		free(record.getLong(NAME));
+		if (record.getLong(ID) != NO_CHUNK) {
+			free(record.getLong(ID));
+		}
+	}
+
+	/**
+	 * Removes all tasks.
+	 *
+	 * @throws IOException
+	 */
+	public void clear() throws IOException {
+		recordChannel.truncate(HEADER_SIZE);
+		heapChannel.truncate(0);
+		slots.clear();
+		freeSlots.clear();
+		freeChunks.clear();
+		_slotCount = 0;
+		_heapLength = 0;
+	}
+
+	/**
+	 * Forces all changes to disk.
+	 *
+	 * @throws IOException
+	 */
+	public void force() throws IOException {
+		heapChannel.force(false);
+		recordChannel.force(false);
+	}
+
+	/**
+	 * Closes the file.
+	 */
+	public void close() {
+		try {
+			if (heap != null) {
+				heap.close();
+			}
+			records.close();
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+		}
+	}
+
+	/**
+	 * Returns the name of the file.
+	 */
+	public String getFileName() {
+		return _fileName;
+	}
+
+	// Returns the name of the heap of the given generation. The last good copy
+	// of a file refers to the heap of the file it was copied from.
+	private static String getHeapFileName(String fileName, int generation) {
+		if (fileName.endsWith(Global.BACKUP_FILE_SUFFIX)) {
+			fileName = fileName.substring(0, fileName.length() - Global.BACKUP_FILE_SUFFIX.length());
+		}
+		return fileName + "." + generation + Global.NAME_HEAP_SUFFIX;
+	}
+
+	// Returns the heap generation of the given file, or -1 if it is not a record file.
+	private static int getGeneration(String fileName) {
+		if (!isRecordFile(fileName)) {
+			return -1;
+		}
+		try {
+			RandomAccessFile file = new RandomAccessFile(fileName, "r");
+			try {
+				return readHeader(file.getChannel());
+			} finally {
+				file.close();
+			}
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	private static void writeHeader(DataOutputStream out, int generation) throws IOException {
+		out.write(MAGIC);
+		out.writeByte(VERSION);
+		out.write(new byte[3]);
+		out.writeInt(generation);
+		out.writeInt(RECORD_SIZE);
+	}
+
+	// Reads and checks the header. Returns the heap generation.
+	private static int readHeader(FileChannel channel) throws IOException {
+		if (channel.size() < HEADER_SIZE) {
+			throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+		}
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		readFully(channel, header, 0);
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (header.get(i) != MAGIC[i]) {
+				throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+			}
+		}
+		if (header.get(MAGIC.length) != VERSION || header.getInt(12) != RECORD_SIZE) {
+			throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+		}
+		return header.getInt(8);
+	}
+
+	// Finds the used and free slots, and the heap chunks not referenced by any record.
+	// A record cut off at the end of the file is dropped, and cut off unless read-only.
+	private void scan() throws IOException {
+		_slotCount = (int) ((recordChannel.size() - HEADER_SIZE) / RECORD_SIZE);
+		if (!_isReadOnly) {
+			recordChannel.truncate(getOffset(_slotCount));
+		}
+		ByteBuffer recordBuffer = readFully(recordChannel, HEADER_SIZE,
+				(long) _slotCount * RECORD_SIZE);
+		HashSet<Long> usedChunks = new HashSet<Long>();
+		for (int slot = 0; slot < _slotCount; slot++) {
+			int position = slot * RECORD_SIZE;
+			if (recordBuffer.get(position + STATE) == STATE_USED) {
+				slots.add(slot);
+				usedChunks.add(recordBuffer.getLong(position + NAME));
+				if (recordBuffer.getLong(position + ID) != NO_CHUNK) {
+					usedChunks.add(recordBuffer.getLong(position + ID));
+				}
+			} else {
+				freeSlots.add(slot);
+			}
+		}
+
+		long heapSize = heapChannel.size();
+		ByteBuffer chunkHeader = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+		_heapLength = 0;
+		while (_heapLength + CHUNK_HEADER_SIZE <= heapSize) {
+			chunkHeader.clear();
+			readFully(heapChannel, chunkHeader, _heapLength);
+			int capacity = chunkHeader.getInt(0);
+			if (capacity < 0 || _heapLength + CHUNK_HEADER_SIZE + capacity > heapSize) {
+				break;
+			}
+			if (!usedChunks.contains(_heapLength)) {
+				addFreeChunk(_heapLength, capacity);
+			}
+			_heapLength += CHUNK_HEADER_SIZE + capacity;
+		}
+	}
+
+	// Writes the given string to a free heap chunk large enough, or a new one
+	// at the end of the heap. Returns the offset of the chunk.
+	private long allocate(String string) throws IOException {
+		byte[] bytes = string.getBytes(CHARSET);
+		long offset;
+		int capacity;
+		Integer freeCapacity = freeChunks.ceilingKey(bytes.length);
+		if (freeCapacity != null) {
+			capacity = freeCapacity;
+			ArrayDeque<Long> offsets = freeChunks.get(capacity);
+			offset = offsets.poll();
+			if (offsets.isEmpty()) {
+				freeChunks.remove(capacity);
+			}
+		} else {
+			capacity = align(bytes.length);
+			offset = _heapLength;
+			_heapLength += CHUNK_HEADER_SIZE + capacity;
+		}
+		ByteBuffer chunk = ByteBuffer.allocate(CHUNK_HEADER_SIZE + bytes.length);
+		chunk.putInt(capacity).putInt(bytes.length).put(bytes);
+		chunk.flip();
+		writeFully(heapChannel, chunk, offset);
+		if (offset + CHUNK_HEADER_SIZE + capacity > heapChannel.size()) {
+			// Extends the heap, so the padding of the last chunk is part of the file.
+			writeFully(heapChannel, ByteBuffer.allocate(1), offset + CHUNK_HEADER_SIZE + capacity - 1);
+		}
+		return offset;
+	}
+
+	// Marks the chunk at the given offset as free to be reused.
+	private void free(long offset) throws IOException {
+		ByteBuffer chunkHeader = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+		readFully(heapChannel, chunkHeader, offset);
+		addFreeChunk(offset, chunkHeader.getInt(0));
+	}
+
+	private void addFreeChunk(long offset, int capacity) {
+		ArrayDeque<Long> offsets = freeChunks.get(capacity);
+		if (offsets == null) {
+			offsets = new ArrayDeque<Long>();
+			freeChunks.put(capacity, offsets);
+		}
+		offsets.add(offset);
+	}
+
+	private String readString(long offset) throws IOException {
+		ByteBuffer chunkHeader = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+		readFully(heapChannel, chunkHeader, offset);
+		int length = chunkHeader.getInt(4);
+		if (length < 0 || length > chunkHeader.getInt(0)) {
+			throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+		}
+		ByteBuffer bytes = ByteBuffer.allocate(length);
+		readFully(heapChannel, bytes, offset + CHUNK_HEADER_SIZE);
+		return new String(bytes.array(), CHARSET);
+	}
+
+	private static void writeChunk(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(CHARSET);
+		int capacity = align(bytes.length);
+		out.writeInt(capacity);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		out.write(new byte[capacity - bytes.length]);
+	}
+
+	// Rounds the given length up to a multiple of the chunk alignment, so freed
+	// chunks fit names of similar length.
+	private static int align(int length) {
+		return Math.max(CHUNK_ALIGNMENT, (length + CHUNK_ALIGNMENT - 1) / CHUNK_ALIGNMENT * CHUNK_ALIGNMENT);
+	}
+
+	// Encodes the given task into the record buffer, from its start.
+	private static void encode(ByteBuffer record, Task task, long nameOffset, long idOffset) {
+		int flags = 0;
+		if (task.isDone()) {
+			flags |= FLAG_DONE;
+		}
+		if (task.isEdited()) {
+			flags |= FLAG_EDITED;
+		}
+		long firstDate = 0;
+		long secondDate = 0;
+		switch (task.getType()) {
+		case DEADLINE:
+			firstDate = ((DeadlineTask) task).getEndDate().getTime();
+			break;
+
+		case TIMED:
+			firstDate = ((TimedTask) task).getStartDate().getTime();
+			secondDate = ((TimedTask) task).getEndDate().getTime();
+			break;
+
+		default:
+			break;
+		}
+		long updated = 0;
+		int timeZoneShift = 0;
+		if (task.getUpdated() != null) {
+			flags |= FLAG_UPDATED;
+			if (task.getUpdated().isDateOnly()) {
+				flags |= FLAG_DATE_ONLY;
+			}
+			updated = task.getUpdated().getValue();
+			timeZoneShift = task.getUpdated().getTimeZoneShift();
+		}
+
+		record.clear();
+		record.put(STATE, STATE_USED);
+		record.put(TYPE, (byte) task.getType().ordinal());
+		record.put(FLAGS, (byte) flags);
+		record.put(FLAGS + 1, (byte) 0);
+		record.putInt(TIME_ZONE_SHIFT, timeZoneShift);
+		record.putLong(FIRST_DATE, firstDate);
+		record.putLong(SECOND_DATE, secondDate);
+		record.putLong(UPDATED, updated);
+		record.putLong(NAME, nameOffset);
+		record.putLong(ID, idOffset);
+	}
+
+	// Decodes the record at the start of the given buffer, reading its strings from the heap buffer.
+	private static Task decode(ByteBuffer record, ByteBuffer heapBuffer) throws IOException {
+		String name = getString(heapBuffer, record.getLong(NAME));
+		String id = null;
+		if (record.getLong(ID) != NO_CHUNK) {
+			id = getString(heapBuffer, record.getLong(ID));
+		}
+
+		int type = record.get(TYPE);
+		Task task;
+		if (type == Task.TaskType.FLOATING.ordinal()) {
+			task = new FloatingTask(name);
+		} else if (type == Task.TaskType.DEADLINE.ordinal()) {
+			task = new DeadlineTask(name, new Date(record.getLong(FIRST_DATE)));
+		} else if (type == Task.TaskType.TIMED.ordinal()) {
+			task = new TimedTask(name, new Date(record.getLong(FIRST_DATE)),
+					new Date(record.getLong(SECOND_DATE)));
+		} else {
+			throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+		}
+
+		int flags = record.get(FLAGS);
+		task.setId(id);
+		task.setDone((flags & FLAG_DONE) != 0);
+		task.setEdited((flags & FLAG_EDITED) != 0);
+		if ((flags & FLAG_UPDATED) != 0) {
+			task.setUpdated(new DateTime((flags & FLAG_DATE_ONLY) != 0,
+					record.getLong(UPDATED), record.getInt(TIME_ZONE_SHIFT)));
+		}
+		return task;
+	}
+
+	private static String getString(ByteBuffer heapBuffer, long offset) throws IOException {
+		if (offset < 0 || offset + CHUNK_HEADER_SIZE > heapBuffer.limit()) {
+			throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+		}
+		int length = heapBuffer.getInt((int) offset + 4);
+		if (length < 0 || offset + CHUNK_HEADER_SIZE + length > heapBuffer.limit()) {
+			throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+		}
+		byte[] bytes = new byte[length];
+		heapBuffer.position((int) offset + CHUNK_HEADER_SIZE);
+		heapBuffer.get(bytes);
+		return new String(bytes, CHARSET);
+	}
+
+	private static long getOffset(int slot) {
+		return HEADER_SIZE + (long) slot * RECORD_SIZE;
+	}
+
+	private static ByteBuffer readFully(FileChannel channel, long position, long length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) length);
+		readFully(channel, buffer, position);
+		return buffer;
+	}
+
+	// Reads the remaining bytes of the buffer from the given position and rewinds it.
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+			}
+			position += read;
+		}
+		buffer.rewind();
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+}
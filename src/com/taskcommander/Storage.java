@@ -1,76 +1,1281 @@
 package com.taskcommander;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 
 /**
  * This class stores data permanently as JSON in a local file on the computer.
+ * The file may also be written in the compact binary format of BinaryTaskCodec,
+ * which is recognised by its header when reading. Either format may be
+ * compressed by BlockCompression. Large uncompressed JSON files are loaded
+ * in parallel by the ParallelTaskLoader, and large tasks lists are encoded
+ * in parallel by the ParallelTaskEncoder.
+ *
+ * The file is written to a temporary file first, which then replaces it. The
+ * replaced file is kept as the last good copy, which is loaded instead if
+ * the file is missing or does not match its StorageChecksum. A JSON file
+ * which no longer matches but still holds complete tasks was edited by
+ * another program, e.g. a script, and is loaded as it is.
+ *
+ * The JSON line of every task read or written is kept, and only tasks that
+ * changed since are encoded again when the file is written. The lines are
+ * not kept for files holding more tasks than Global.MEMORY_BUDGET, as Data
+ * pages tasks out then and the lines would keep every task in memory.
+ *
+ * Changes of the JSON file by other programs or processes are read by
+ * readChangedFile(), which decodes only lines that changed.
+ *
+ * If Global.partitioning is set, the tasks are written to one file per month
+ * and one for floating tasks instead, listed by a PartitionManifest, so that
+ * only the partitions needed can be read.
+ *
+ * In the RECORDS format, the file is a RecordFile instead, and every change is
+ * written in place to the record of the changed task.
+ *
+ * Changes made after the last full write are appended as single records to a
+ * journal file, so that a command does not have to rewrite the whole file.
+ * The journal is replayed over the file when loading and cleared whenever
+ * the file is written in full. Records are written to the journal in the
+ * background by a JournalWriter; flush() waits until they are on disk.
+ *
+ * If Global.locking is set, only the first process to read the storage file
+ * may write it, and other processes open it read-only. Reads and writes of
+ * the storage file and journal hold the StorageLock, so a read-only process
+ * never sees a file half written. It follows the writing process by reading
+ * only the journal records appended since, with tailJournal(), and reads
+ * rewritten JSON files with readChangedFile().
  */
 
 //@author A0112828H
-public class Storage {
+public class Storage implements StorageBackend {
 
 	private static String _fileName = Global.FILENAME;
-	private static Gson gson;
+	private static String _journalFileName = Global.JOURNAL_FILENAME;
+	// TaskAdapter is not thread-safe, so every thread has its own Gson, e.g. the
+	// SyncHandler changing tasks while commands are executed.
+	private static final ThreadLocal<Gson> gson = new ThreadLocal<Gson>() {
+		@Override
+		protected Gson initialValue() {
+			GsonBuilder gsonBuilder = new GsonBuilder();
+			gsonBuilder.registerTypeAdapter(Task.class, new TaskAdapter());
+			return gsonBuilder.create();
+		}
+	};
+
+	private static final String JOURNAL_SEPARATOR = "\t";
+
+	// Minimum size in bytes of a JSON file to be loaded by the ParallelTaskLoader
+	private static final long PARALLEL_LOAD_MINIMUM = 4 * 1024 * 1024;
+
+	// Minimum number of tasks to be encoded by the ParallelTaskEncoder when writing JSON
+	private static final int PARALLEL_WRITE_MINIMUM = 50000;
+
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	// Number of records in the journal since the last full write
+	private int _journalSize;
+
+	// False if the last good copy was loaded instead of a damaged file
+	private boolean _isJournalValid = true;
+
+	// Message about the last good copy being loaded, until shown to the user, or null
+	private String _restoredMessage;
+
+	// Encoded JSON lines of the tasks last read from or written to each storage file
+	private HashMap<String, IdentityHashMap<Task, byte[]>> encodedFiles =
+			new HashMap<String, IdentityHashMap<Task, byte[]>>();
+
+	// Modification time and length of the storage file when last read or written
+	private volatile long _lastModified;
+	private volatile long _lastLength;
+
+	private PartitionManifest partitionManifest;
+
+	// Storage file opened for updates in place, holding the tasks list in its order, or null
+	private RecordFile recordFile;
+
+	private StorageLock storageLock = new StorageLock(_fileName + Global.LOCK_FILE_SUFFIX);
+
+	// True if another process writes the storage file, and whether that was checked yet
+	private boolean _isReadOnly;
+	private boolean _isWriterChecked;
+
+	// Length of the journal read by a read-only Storage
+	private volatile long _journalPosition;
+
+	private JournalWriter journalWriter = new JournalWriter(_journalFileName, storageLock);
 
 	/**
-	 * Returns a Storage object.
+	 * Possible operations recorded in the journal
 	 */
-	public Storage() {
-		GsonBuilder gsonBuilder = new GsonBuilder();
-		gsonBuilder.registerTypeAdapter(Task.class, new TaskAdapter());
-		gson = gsonBuilder.create();
+	public enum Operation {
+		ADD, SET, REMOVE, CLEAR
 	}
 
 	/**
 	 * Returns the contents of the file as an ArrayList of Tasks.
 	 */
+	@Override
 	public ArrayList<Task> readFromFile(){
+		checkWriter();
+		_isJournalValid = true;
+		FileLock lock = lockData(true);
+		try {
+			ArrayList<Task> tasks = readFromFileOrBackup(_fileName);
+			recordFileState();
+			return tasks;
+		} finally {
+			StorageLock.unlock(lock);
+		}
+	}
+
+	/**
+	 * Writes the content of the data array into storage.
+	 * Will replace any existing content in the storage file and clear the journal,
+	 * including records not yet written by the JournalWriter.
+	 */
+	@Override
+	public void writeToFile(ArrayList<Task> tasks){
+		if (_isReadOnly) {
+			return;
+		}
+		synchronized (journalWriter) {
+			journalWriter.waitUntilIdle();
+			FileLock lock = lockData(false);
+			try {
+				if (writeToFile(tasks, _fileName, Global.STORAGE_FORMAT)) {
+					journalWriter.discardPending();
+					clearJournal();
+				}
+			} finally {
+				StorageLock.unlock(lock);
+			}
+		}
+	}
+
+	/**
+	 * Returns the message about the last good copy of the storage file being
+	 * loaded instead of a damaged file, once. Known after the storage file was
+	 * first read.
+	 *
+	 * @return message for the user, or null if the storage file was loaded
+	 */
+	public String takeRestoredMessage() {
+		String message = _restoredMessage;
+		_restoredMessage = null;
+		return message;
+	}
+
+	/**
+	 * Checks if another process writes the storage file, so that this Storage
+	 * does not write it. Known after the storage file was first read.
+	 */
+	public boolean isReadOnly() {
+		return _isReadOnly;
+	}
+
+	/**
+	 * Stops writing the storage file, so another process may become its writer.
+	 * Pending journal records are written first.
+	 */
+	public void close() {
+		flush();
+		closeRecordFile();
+		storageLock.release();
+		_isReadOnly = false;
+		_isWriterChecked = false;
+	}
+
+	/**
+	 * Checks if the tasks have been written in partitions.
+	 */
+	public boolean hasPartitions() {
+		return getPartitionManifest().exists();
+	}
+
+	/**
+	 * Checks if the partition of the given key exists.
+	 *
+	 * @param key
+	 */
+	public boolean hasPartition(String key) {
+		return getPartitionManifest().get(key) != null;
+	}
+
+	/**
+	 * Returns the summaries of all partitions.
+	 */
+	public Collection<PartitionManifest.Partition> getPartitions() {
+		return getPartitionManifest().getPartitions();
+	}
+
+	/**
+	 * Returns the keys of the partitions that were loaded when the partitions
+	 * were last written, in the order their tasks are in the tasks list.
+	 * These partitions have to be read before the journal is replayed.
+	 */
+	public ArrayList<String> getLoadedPartitionKeys() {
+		return getPartitionManifest().getLoadedKeys();
+	}
+
+	/**
+	 * Returns the tasks of the given partitions, in the given order.
+	 *
+	 * @param keys
+	 */
+	public ArrayList<Task> readPartitions(ArrayList<String> keys) {
+		checkWriter();
+		_isJournalValid = true;
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		FileLock lock = lockData(true);
+		try {
+			for (String key : keys) {
+				tasks.addAll(readFromFileOrBackup(getPartitionFileName(key)));
+			}
+		} finally {
+			StorageLock.unlock(lock);
+		}
+		return tasks;
+	}
+
+	/**
+	 * Writes the given tasks to their partitions and clears the journal.
+	 * Partitions of loadedKeys left without tasks are deleted, and partitions
+	 * whose tasks have not changed since they were read or written are skipped.
+	 * Any partition a task is written to must either be in loadedKeys or not
+	 * exist yet, otherwise its other tasks are lost.
+	 * Afterwards loadedKeys holds the keys of the written partitions.
+	 *
+	 * @param tasks
+	 * @param loadedKeys keys of the partitions read into the tasks list
+	 * @return tasks grouped by partition in the order of loadedKeys
+	 */
+	public ArrayList<Task> writePartitions(ArrayList<Task> tasks, ArrayList<String> loadedKeys) {
+		if (_isReadOnly) {
+			return tasks;
+		}
+		LinkedHashMap<String, ArrayList<Task>> partitions = new LinkedHashMap<String, ArrayList<Task>>();
+		for (String key : loadedKeys) {
+			partitions.put(key, new ArrayList<Task>());
+		}
+		for (Task task : tasks) {
+			if (task != null) {
+				String key = PartitionManifest.getKey(task);
+				if (!partitions.containsKey(key)) {
+					partitions.put(key, new ArrayList<Task>());
+				}
+				partitions.get(key).add(task);
+			}
+		}
+
+		ArrayList<Task> groupedTasks = new ArrayList<Task>();
+		synchronized (journalWriter) {
+			journalWriter.waitUntilIdle();
+			FileLock lock = lockData(false);
+			try {
+				writePartitionFiles(partitions, loadedKeys, groupedTasks);
+			} finally {
+				StorageLock.unlock(lock);
+			}
+		}
+		return groupedTasks;
+	}
+
+	// Writes the partitions changed since they were read or written, then the manifest.
+	private void writePartitionFiles(LinkedHashMap<String, ArrayList<Task>> partitions,
+			ArrayList<String> loadedKeys, ArrayList<Task> groupedTasks) {
+		PartitionManifest manifest = getPartitionManifest();
+		boolean isWritten = true;
+		loadedKeys.clear();
+		for (String key : partitions.keySet()) {
+			ArrayList<Task> partitionTasks = partitions.get(key);
+			String fileName = getPartitionFileName(key);
+			if (partitionTasks.isEmpty()) {
+				deletePartitionFile(fileName);
+			} else if (!isUnchanged(fileName, partitionTasks)) {
+				isWritten &= writeToFile(partitionTasks, fileName, Global.STORAGE_FORMAT);
+			}
+			manifest.update(key, partitionTasks);
+			if (!partitionTasks.isEmpty()) {
+				loadedKeys.add(key);
+				groupedTasks.addAll(partitionTasks);
+			}
+		}
+		manifest.setLoadOrder(loadedKeys);
+		if (isWritten && manifest.write()) {
+			journalWriter.discardPending();
+			clearJournal();
+		}
+	}
+
+	/**
+	 * Records that the given partitions are now loaded, in the given order,
+	 * so the journal is replayed over them. The journal must be empty.
+	 *
+	 * @param loadedKeys
+	 */
+	public void writePartitionLoadOrder(ArrayList<String> loadedKeys) {
+		if (_isReadOnly) {
+			return;
+		}
+		getPartitionManifest().setLoadOrder(loadedKeys);
+		getPartitionManifest().write();
+	}
+
+	/**
+	 * Deletes all partitions and the manifest.
+	 */
+	public void clearPartitions() {
+		if (_isReadOnly) {
+			return;
+		}
+		for (PartitionManifest.Partition partition : getPartitions()) {
+			deletePartitionFile(getPartitionFileName(partition.getKey()));
+		}
+		getPartitionManifest().clear();
+	}
+
+	// Deletes the given partition file and its backup, with their checksum files.
+	private void deletePartitionFile(String fileName) {
+		String backupFileName = fileName + Global.BACKUP_FILE_SUFFIX;
+		RecordFile.deleteHeaps(fileName);
+		new File(fileName).delete();
+		new File(StorageChecksum.getChecksumFileName(fileName)).delete();
+		new File(backupFileName).delete();
+		new File(StorageChecksum.getChecksumFileName(backupFileName)).delete();
+		setEncodedTasks(fileName, null);
+	}
+
+	/**
+	 * Waits until all journal records are written to disk.
+	 * Used before exiting and after syncing.
+	 */
+	@Override
+	public void flush() {
+		journalWriter.flush();
+		if (recordFile != null) {
+			try {
+				recordFile.force();
+			} catch (IOException e) {
+				System.out.println(Global.MESSAGE_EXCEPTION_IO);
+			}
+		}
+	}
+
+	/**
+	 * Reads the storage file after it was changed by another program or process.
+	 * Lines equal to the line of a task last read from or written to the file
+	 * keep that task, and only the other lines are decoded. Only JSON files
+	 * whose lines are known are compared. May be called from any thread.
+	 *
+	 * @return change of the file, or null if it has not changed or cannot be compared
+	 */
+	public StorageChange readChangedFile() {
+		FileLock lock = lockData(true);
+		try {
+			return readChangedLines();
+		} finally {
+			StorageLock.unlock(lock);
+		}
+	}
+
+	// Compares the lines of the changed storage file with the lines last read or written.
+	private StorageChange readChangedLines() {
+		File file = new File(_fileName);
+		long lastModified = file.lastModified();
+		long length = file.length();
+		if ((lastModified == _lastModified && length == _lastLength) || Global.partitioning
+				|| !file.exists() || RecordFile.isRecordFile(_fileName) || isBinaryFile(_fileName)) {
+			return null;
+		}
+		IdentityHashMap<Task, byte[]> oldEncoded;
+		synchronized (encodedFiles) {
+			oldEncoded = encodedFiles.get(_fileName);
+		}
+		if (oldEncoded == null) {
+			return null;
+		}
+
+		// Tasks by the hash and content of their line
+		HashMap<ByteBuffer, ArrayDeque<Task>> tasksByLine = new HashMap<ByteBuffer, ArrayDeque<Task>>();
+		for (Map.Entry<Task, byte[]> entry : oldEncoded.entrySet()) {
+			ByteBuffer line = ByteBuffer.wrap(entry.getValue());
+			ArrayDeque<Task> tasks = tasksByLine.get(line);
+			if (tasks == null) {
+				tasks = new ArrayDeque<Task>();
+				tasksByLine.put(line, tasks);
+			}
+			tasks.add(entry.getKey());
+		}
+
+		Gson changeGson = gson.get();
+
 		ArrayList<Task> tasks = new ArrayList<Task>();
+		ArrayList<Task> addedTasks = new ArrayList<Task>();
+		IdentityHashMap<Task, byte[]> encoded = new IdentityHashMap<Task, byte[]>();
+		Charset charset = Charset.defaultCharset();
+		try {
+			// Other programs may not keep the checksum footer last, so it is skipped wherever it is.
+			InputStream in = isCompressedFile(_fileName) ? openDataStream(_fileName)
+					: new FileInputStream(file);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith(StorageChecksum.FOOTER_MAGIC)) {
+						continue;
+					}
+					byte[] bytes = (line + LINE_SEPARATOR).getBytes(charset);
+					ArrayDeque<Task> unchangedTasks = tasksByLine.get(ByteBuffer.wrap(bytes));
+					Task task;
+					if (unchangedTasks != null && !unchangedTasks.isEmpty()) {
+						task = unchangedTasks.poll();
+					} else {
+						task = changeGson.fromJson(line, Task.class);
+						if (task == null) {
+							continue;
+						}
+						addedTasks.add(task);
+					}
+					tasks.add(task);
+					encoded.put(task, bytes);
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+			return null;
+		} catch (JsonParseException e) {
+			// The file is still being written or invalid, so the change is read later.
+			return null;
+		}
+
+		ArrayList<Task> removedTasks = new ArrayList<Task>();
+		for (ArrayDeque<Task> remainingTasks : tasksByLine.values()) {
+			removedTasks.addAll(remainingTasks);
+		}
+		if (addedTasks.isEmpty() && removedTasks.isEmpty()) {
+			// E.g. rewritten by the writing process with the changes of its journal
+			acceptChange(new StorageChange(tasks, addedTasks, removedTasks, encoded,
+					lastModified, length));
+			return null;
+		}
+		return new StorageChange(tasks, addedTasks, removedTasks, encoded, lastModified, length);
+	}
+
+	/**
+	 * Takes the tasks of the given change as the tasks last read from the
+	 * storage file, without writing it. A read-only Storage then reads the
+	 * journal of the writing process from its start.
+	 *
+	 * @param change
+	 */
+	public void acceptChange(StorageChange change) {
+		setEncodedTasks(_fileName, change.encoded);
+		_lastModified = change._lastModified;
+		_lastLength = change._length;
+		if (_isReadOnly) {
+			_journalPosition = 0;
+			_journalSize = 0;
+		}
+	}
+
+	/**
+	 * Applies the journal records appended by the writing process since the
+	 * journal was last read to the given tasks list, which has to hold the
+	 * tasks read so far. Only used by a read-only Storage. Does nothing if
+	 * the storage file was rewritten since, which readChangedFile() reads.
+	 *
+	 * @param tasks
+	 * @return number of records applied
+	 */
+	public int tailJournal(ArrayList<Task> tasks) {
+		if (!_isReadOnly) {
+			return 0;
+		}
+		FileLock lock = lockData(true);
+		try {
+			File file = new File(_fileName);
+			File journal = new File(_journalFileName);
+			if (file.lastModified() != _lastModified || file.length() != _lastLength
+					|| journal.length() <= _journalPosition) {
+				return 0;
+			}
+			byte[] appended = new byte[(int) (journal.length() - _journalPosition)];
+			RandomAccessFile in = new RandomAccessFile(journal, "r");
+			try {
+				in.seek(_journalPosition);
+				in.readFully(appended);
+			} finally {
+				in.close();
+			}
+
+			IdentityHashMap<Task, byte[]> encoded =
+					new IdentityHashMap<Task, byte[]>(getEncodedTasks(_fileName));
+			Charset charset = Charset.defaultCharset();
+			int applied = 0;
+			int start = 0;
+			for (int end = 0; end < appended.length; end++) {
+				if (appended[end] != '\n') {
+					continue;
+				}
+				String line = new String(appended, start, end - start, charset).trim();
+				if (!applyJournalRecord(tasks, line, encoded)) {
+					break;
+				}
+				start = end + 1;
+				applied++;
+			}
+			_journalPosition += start;
+			_journalSize += applied;
+			setEncodedTasks(_fileName, encoded);
+			return applied;
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+			return 0;
+		} finally {
+			StorageLock.unlock(lock);
+		}
+	}
+
+	/**
+	 * Checks if the storage file has not changed since the given change was read.
+	 *
+	 * @param change
+	 */
+	public boolean isCurrent(StorageChange change) {
+		File file = new File(_fileName);
+		return file.lastModified() == change._lastModified && file.length() == change._length;
+	}
+
+	/**
+	 * Converts the given storage file, which may be in any format, to a new
+	 * file in the given format.
+	 *
+	 * @param sourceFileName
+	 * @param destinationFileName
+	 * @param format
+	 * @return true if the file was converted, false if not
+	 */
+	public boolean convertFile(String sourceFileName, String destinationFileName,
+			Global.StorageFormat format) {
+		if (!new File(sourceFileName).exists()) {
+			return false;
+		}
+		return writeToFile(readFromFile(sourceFileName), destinationFileName, format);
+	}
+
+	// Checks once if this process may write the storage file.
+	private void checkWriter() {
+		if (_isWriterChecked || !Global.locking) {
+			return;
+		}
+		_isWriterChecked = true;
+		_isReadOnly = !storageLock.acquireWriter();
+	}
+
+	// Locks the storage file and journal if Global.locking is set. Returns the lock or null.
+	private FileLock lockData(boolean shared) {
+		if (!Global.locking) {
+			return null;
+		}
+		return storageLock.lock(shared);
+	}
+
+	// Records the modification time and length of the storage file, so that
+	// readChangedFile() ignores changes made by this Storage.
+	private void recordFileState() {
+		File file = new File(_fileName);
+		_lastModified = file.lastModified();
+		_lastLength = file.length();
+	}
+
+	// Reads the tasks from the given file, or from its last good copy if the file is
+	// missing or damaged. A damaged file is copied aside first, so it is not lost
+	// when the tasks are next written.
+	private ArrayList<Task> readFromFileOrBackup(String fileName) {
+		String backupFileName = fileName + Global.BACKUP_FILE_SUFFIX;
+		if (!isIntact(fileName, !StorageChecksum.hasChecksums(backupFileName))
+				&& isIntact(backupFileName, true)) {
+			_restoredMessage = Global.MESSAGE_FILE_RESTORED;
+			if (new File(fileName).exists()) {
+				String damagedFileName = fileName + Global.DAMAGED_FILE_SUFFIX;
+				try {
+					Files.copy(Paths.get(fileName), Paths.get(damagedFileName),
+							StandardCopyOption.REPLACE_EXISTING);
+					_restoredMessage = String.format(Global.MESSAGE_FILE_DAMAGED, damagedFileName);
+				} catch (IOException e) {
+					System.out.println(Global.MESSAGE_FILE_COULD_NOT_BE_WRITTEN);
+				}
+			}
+			System.out.println(_restoredMessage);
+			// Changes are journaled rather than written to the damaged file in place.
+			closeRecordFile();
+			// The journal belongs to the last good copy only if writing stopped
+			// between moving the file away and moving the new file in place.
+			_isJournalValid = !new File(fileName).exists();
+			return readFromFile(backupFileName);
+		}
+		return readFromFile(fileName);
+	}
+
+	// Reads the tasks from the given file in the format given by its header.
+	private ArrayList<Task> readFromFile(String fileName) {
+		if (RecordFile.isRecordFile(fileName)) {
+			return readFromRecordFile(fileName);
+		} else if (isBinaryFile(fileName)) {
+			return readFromBinaryFile(fileName);
+		} else {
+			return readFromJsonFile(fileName);
+		}
+	}
+
+	// Writes the tasks to a temporary file in the given format, which then replaces
+	// the given file. Returns true if successful.
+	private boolean writeToFile(ArrayList<Task> tasks, String fileName,
+			Global.StorageFormat format) {
+		String tempFileName = fileName + Global.TEMP_FILE_SUFFIX;
+		if (recordFile != null && recordFile.getFileName().equals(fileName)) {
+			closeRecordFile();
+		}
+		boolean isWritten;
+		switch (format) {
+		case BINARY:
+			isWritten = writeToBinaryFile(tasks, tempFileName);
+			break;
+
+		case RECORDS:
+			isWritten = RecordFile.write(tasks, tempFileName, fileName);
+			break;
+
+		default:
+			isWritten = writeToJsonFile(tasks, tempFileName, fileName);
+			break;
+		}
+		if (!isWritten || !replaceFile(tempFileName, fileName)) {
+			return false;
+		}
+		if (fileName.equals(_fileName)) {
+			recordFileState();
+		}
+		if (format == Global.StorageFormat.RECORDS) {
+			RecordFile.deleteStaleHeaps(fileName);
+			if (fileName.equals(_fileName) && isUpdatingInPlace()) {
+				openRecordFile();
+			}
+		}
+		return true;
+	}
+
+	// Moves the given file to its backup and the temporary file in its place, each
+	// with its checksum file. The checksum files are moved first, so a file is never
+	// paired with the checksums of another one.
+	private boolean replaceFile(String tempFileName, String fileName) {
+		Path file = Paths.get(fileName);
+		String backupFileName = fileName + Global.BACKUP_FILE_SUFFIX;
+		try {
+			if (Files.exists(file)) {
+				moveChecksumFile(fileName, backupFileName);
+				Files.move(file, Paths.get(backupFileName), StandardCopyOption.REPLACE_EXISTING);
+			}
+			moveChecksumFile(tempFileName, fileName);
+			Files.move(Paths.get(tempFileName), file, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_FILE_COULD_NOT_BE_WRITTEN);
+			return false;
+		}
+	}
+
+	// Moves the checksum file of the given file to be the one of the target file,
+	// or deletes the one of the target file if the given file has none.
+	private void moveChecksumFile(String fileName, String targetFileName) throws IOException {
+		Path checksumFile = Paths.get(StorageChecksum.getChecksumFileName(fileName));
+		Path targetChecksumFile = Paths.get(StorageChecksum.getChecksumFileName(targetFileName));
+		if (Files.exists(checksumFile)) {
+			Files.move(checksumFile, targetChecksumFile, StandardCopyOption.REPLACE_EXISTING);
+		} else {
+			Files.deleteIfExists(targetChecksumFile);
+		}
+	}
+
+	// Checks if the given file exists and matches its checksums. A file without
+	// checksums is only accepted if requested, as it may have been cut off. A JSON
+	// file not matching its checksums is accepted as edited by another program,
+	// e.g. a script, if it still holds complete tasks only.
+	// Record files have no checksums, as they are updated in place, so their
+	// records are checked against their name heap instead.
+	private boolean isIntact(String fileName, boolean isUncheckedAccepted) {
+		if (!new File(fileName).exists()) {
+			return false;
+		}
+		if (RecordFile.isRecordFile(fileName)) {
+			return RecordFile.verify(fileName);
+		}
+		try {
+			if (StorageChecksum.verify(fileName)) {
+				return isUncheckedAccepted || StorageChecksum.hasChecksums(fileName);
+			}
+			return isEditedJsonFile(fileName);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	// Checks if the given file is a plain JSON file of complete lines, each of which
+	// holds a task. A file cut off or damaged within a line fails this check.
+	private boolean isEditedJsonFile(String fileName) throws IOException {
+		if (isCompressedFile(fileName) || isBinaryFile(fileName)) {
+			return false;
+		}
+		byte[] bytes = Files.readAllBytes(Paths.get(fileName));
+		if (bytes.length > 0 && bytes[bytes.length - 1] != '\n') {
+			return false;
+		}
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new ByteArrayInputStream(bytes), Charset.defaultCharset()));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().isEmpty() || line.startsWith(StorageChecksum.FOOTER_MAGIC)) {
+					continue;
+				}
+				if (gson.get().fromJson(line, Task.class) == null) {
+					return false;
+				}
+			}
+			return true;
+		} catch (JsonParseException e) {
+			return false;
+		} finally {
+			reader.close();
+		}
+	}
+
+	private ArrayList<Task> readFromJsonFile(String fileName) {
+		long fileSize = new File(fileName).length();
+		if (fileSize >= PARALLEL_LOAD_MINIMUM && fileSize <= Integer.MAX_VALUE
+				&& !isCompressedFile(fileName)) {
+			try {
+				return ParallelTaskLoader.read(fileName);
+			} catch (IOException e) {
+				// Falls back to reading the file line by line.
+			}
+		}
+
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		IdentityHashMap<Task, byte[]> encoded = new IdentityHashMap<Task, byte[]>();
+		Charset charset = Charset.defaultCharset();
 		BufferedReader reader = null;
 		try {
-			reader = new BufferedReader(new FileReader(new File(_fileName)));
+			reader = new BufferedReader(new InputStreamReader(openDataStream(fileName), charset));
 			String line;
 			while ((line = reader.readLine()) != null) {
-				Task task = gson.fromJson(line, Task.class);
+				Task task = gson.get().fromJson(line, Task.class);
 				if (task != null) {
 					tasks.add(task);
+					encoded.put(task, (line + LINE_SEPARATOR).getBytes(charset));
+					task.markClean();
 				}
 			}
 			reader.close();
+			setEncodedTasks(fileName, encoded);
 			return tasks;
 		} catch (IOException e) {
 			System.out.println(Global.MESSAGE_EXCEPTION_IO);
-		} 
+		}
 		return new ArrayList<Task>();
 	}
 
-	/**
-	 * Writes the content of the data array into storage.
-	 * Will replace any existing content in the storage file.
-	 */
-	public void writeToFile(ArrayList<Task> tasks){
-		BufferedWriter bw;
+	// Writes the tasks to the temporary file of the given file. Encodes only tasks
+	// that are dirty or were not read from or written to the given file before.
+	private boolean writeToJsonFile(ArrayList<Task> tasks, String tempFileName, String fileName) {
+		if (tasks.size() >= PARALLEL_WRITE_MINIMUM) {
+			return writeToJsonFileInParallel(tasks, tempFileName, fileName);
+		}
+		IdentityHashMap<Task, byte[]> encoded = new IdentityHashMap<Task, byte[]>();
+		Charset charset = Charset.defaultCharset();
+		OutputStream out;
 		try {
-			bw = new BufferedWriter(new FileWriter(new File(_fileName), false));
+			out = openOutputStream(tempFileName);
 
 			for (Task t : tasks) {
 				if (t != null) {
-					bw.write(gson.toJson(t));
-					bw.newLine();
+					byte[] line = getEncodedTasks(fileName).get(t);
+					if (line == null || t.isDirty()) {
+						line = (gson.get().toJson(t, Task.class) + LINE_SEPARATOR).getBytes(charset);
+						t.markClean();
+					}
+					out.write(line);
+					encoded.put(t, line);
+				}
+			}
+			out.close();
+			setEncodedTasks(fileName, encoded);
+			return true;
+		} catch (Exception e) {
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+		}
+		return false;
+	}
+
+	// Encodes the tasks in parallel and writes the encoded chunks in order with a
+	// single gathering write, or through the compressing stream if compressing.
+	private boolean writeToJsonFileInParallel(ArrayList<Task> tasks, String tempFileName,
+			String fileName) {
+		IdentityHashMap<Task, byte[]> encoded = new IdentityHashMap<Task, byte[]>();
+		try {
+			ByteBuffer[] chunks = ParallelTaskEncoder.encode(tasks, getEncodedTasks(fileName), encoded);
+			StorageChecksum.Output out = new StorageChecksum.Output(tempFileName);
+			if (Global.compressing) {
+				OutputStream compressedOut = new BlockCompression.Output(out, Global.COMPRESSION_LEVEL);
+				for (ByteBuffer chunk : chunks) {
+					compressedOut.write(chunk.array(), chunk.arrayOffset(), chunk.remaining());
 				}
+				compressedOut.close();
+			} else {
+				out.write(chunks);
+				out.close();
 			}
-			bw.close();
+			setEncodedTasks(fileName, encoded);
+			return true;
 		} catch (Exception e) {
 			System.out.println(Global.MESSAGE_EXCEPTION_IO);
 		}
+		return false;
+	}
+
+	// Returns the encoded JSON lines of the tasks last read from or written to the given file.
+	private IdentityHashMap<Task, byte[]> getEncodedTasks(String fileName) {
+		IdentityHashMap<Task, byte[]> encoded;
+		synchronized (encodedFiles) {
+			encoded = encodedFiles.get(fileName);
+		}
+		if (encoded == null) {
+			encoded = new IdentityHashMap<Task, byte[]>();
+		}
+		return encoded;
+	}
+
+	// Sets the encoded JSON lines of the given file, which are not changed afterwards,
+	// or removes them if null or exceeding the memory budget while tasks may be paged
+	// out. Synchronized, as readChangedFile() may run on any thread.
+	private void setEncodedTasks(String fileName, IdentityHashMap<Task, byte[]> encoded) {
+		synchronized (encodedFiles) {
+			if (encoded == null || (encoded.size() > Global.MEMORY_BUDGET && !_isReadOnly)) {
+				encodedFiles.remove(fileName);
+			} else {
+				encodedFiles.put(fileName, encoded);
+			}
+		}
+	}
+
+	// Checks if the given file holds exactly the given tasks, none of which has changed.
+	private boolean isUnchanged(String fileName, ArrayList<Task> tasks) {
+		IdentityHashMap<Task, byte[]> encoded = getEncodedTasks(fileName);
+		if (encoded.size() != tasks.size() || !new File(fileName).exists()) {
+			return false;
+		}
+		for (Task task : tasks) {
+			if (task.isDirty() || !encoded.containsKey(task)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Returns the name of the file of the given partition, e.g. tasks.2014-11.json.
+	private String getPartitionFileName(String key) {
+		int extensionIndex = _fileName.lastIndexOf('.');
+		if (extensionIndex < 0) {
+			return _fileName + "." + key;
+		}
+		return _fileName.substring(0, extensionIndex) + "." + key
+				+ _fileName.substring(extensionIndex);
+	}
+
+	private PartitionManifest getPartitionManifest() {
+		if (partitionManifest == null) {
+			partitionManifest = new PartitionManifest(Global.PARTITION_MANIFEST_FILENAME);
+		}
+		return partitionManifest;
+	}
+
+	// Reads the tasks from the given record file. The storage file is kept open
+	// for updates in place if the tasks are written as records.
+	private ArrayList<Task> readFromRecordFile(String fileName) {
+		if (fileName.equals(_fileName) && isUpdatingInPlace()) {
+			closeRecordFile();
+			if (openRecordFile()) {
+				try {
+					return recordFile.readTasks();
+				} catch (IOException e) {
+					closeRecordFile();
+					System.out.println(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+					return new ArrayList<Task>();
+				}
+			}
+			return new ArrayList<Task>();
+		}
+		try {
+			return RecordFile.read(fileName);
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+			return new ArrayList<Task>();
+		}
+	}
+
+	// Checks if changes are written in place to the storage file rather than to the journal.
+	private boolean isUpdatingInPlace() {
+		return Global.STORAGE_FORMAT == Global.StorageFormat.RECORDS && !Global.partitioning;
+	}
+
+	// Opens the storage file for updates in place. Returns true if successful.
+	private boolean openRecordFile() {
+		try {
+			recordFile = new RecordFile(_fileName);
+			return true;
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+			return false;
+		}
+	}
+
+	private void closeRecordFile() {
+		if (recordFile != null) {
+			recordFile.close();
+			recordFile = null;
+		}
+	}
+
+	private ArrayList<Task> readFromBinaryFile(String fileName) {
+		ArrayList<Task> tasks = new ArrayList<Task>();
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(openDataStream(fileName));
+			BinaryTaskCodec.readHeader(in);
+			while (true) {
+				try {
+					tasks.add(BinaryTaskCodec.read(in));
+				} catch (EOFException e) {
+					break;
+				}
+			}
+			in.close();
+			return tasks;
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+		} catch (IllegalArgumentException e) {
+			System.out.println(Global.MESSAGE_FILE_COULD_NOT_BE_LOADED);
+		}
+		return tasks;
+	}
+
+	private boolean writeToBinaryFile(ArrayList<Task> tasks, String fileName) {
+		DataOutputStream out;
+		try {
+			out = new DataOutputStream(openOutputStream(fileName));
+			BinaryTaskCodec.writeHeader(out);
+			for (Task t : tasks) {
+				if (t != null) {
+					BinaryTaskCodec.write(out, t);
+				}
+			}
+			out.close();
+			return true;
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+		}
+		return false;
+	}
+
+	// Opens the data of the given file without the checksum footer of earlier versions,
+	// decompressing it if needed.
+	private InputStream openDataStream(String fileName) throws IOException {
+		InputStream in = StorageChecksum.openData(fileName, StorageChecksum.getDataLength(fileName));
+		if (isCompressedFile(fileName)) {
+			in = new BlockCompression.Input(in);
+		}
+		return new BufferedInputStream(in);
+	}
+
+	// Opens the given file for writing, compressing the data if Global.compressing is set.
+	private OutputStream openOutputStream(String fileName) throws IOException {
+		OutputStream out = new StorageChecksum.Output(fileName);
+		if (Global.compressing) {
+			out = new BlockCompression.Output(out, Global.COMPRESSION_LEVEL);
+		}
+		return new BufferedOutputStream(out);
+	}
+
+	// Checks if the data of the given file starts with the header of the binary format.
+	private boolean isBinaryFile(String fileName) {
+		InputStream in = null;
+		try {
+			in = openDataStream(fileName);
+			byte[] header = new byte[BinaryTaskCodec.MAGIC.length + 1];
+			int length = in.read(header);
+			in.close();
+			return BinaryTaskCodec.isHeader(header, length);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	// Checks if the given file starts with the header of BlockCompression.
+	private boolean isCompressedFile(String fileName) {
+		FileInputStream in = null;
+		try {
+			in = new FileInputStream(fileName);
+			byte[] header = new byte[BlockCompression.MAGIC.length + 1];
+			int length = in.read(header);
+			in.close();
+			return BlockCompression.isHeader(header, length);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Appends a single operation on the tasks list to the journal.
+	 * The index is the position in the tasks list the operation applies to
+	 * and is ignored for ADD and CLEAR. The task is ignored for REMOVE and CLEAR.
+	 * The task is encoded right away, but written to disk in the background.
+	 * If the storage file is a RecordFile holding the tasks list, the operation
+	 * is written to it in place instead.
+	 *
+	 * @param operation
+	 * @param index
+	 * @param task
+	 */
+	@Override
+	public void appendToJournal(Operation operation, int index, Task task) {
+		if (_isReadOnly) {
+			return;
+		}
+		if (recordFile != null && isUpdatingInPlace() && writeInPlace(operation, index, task)) {
+			return;
+		}
+		String record = operation + JOURNAL_SEPARATOR + index;
+		if (task != null) {
+			record += JOURNAL_SEPARATOR + gson.get().toJson(task, Task.class);
+		}
+		journalWriter.append(record);
+		_journalSize++;
+	}
+
+	// Writes a single operation on the tasks list to the record file. Returns false
+	// if it could not be written, after which the journal is used until the next full write.
+	private boolean writeInPlace(Operation operation, int index, Task task) {
+		try {
+			switch (operation) {
+			case ADD:
+				recordFile.add(task);
+				break;
+
+			case SET:
+				recordFile.set(index, task);
+				break;
+
+			case REMOVE:
+				recordFile.remove(index);
+				break;
+
+			case CLEAR:
+				recordFile.clear();
+				break;
+
+			default:
+				return false;
+			}
+			if (Global.DURABILITY == Global.Durability.EVERY_COMMAND && !Global.syncing) {
+				recordFile.force();
+			}
+			return true;
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_FILE_COULD_NOT_BE_WRITTEN);
+			closeRecordFile();
+			return false;
+		}
+	}
+
+	/**
+	 * Applies the operations recorded in the journal to the given tasks list,
+	 * which should hold the contents of the storage file. Stops at the first
+	 * record that cannot be read or applied, e.g. one cut off by a crash, and
+	 * cuts the journal off before it, so records appended later are replayed.
+	 * Drops the journal if a damaged storage file was replaced by its last good copy.
+	 *
+	 * @param tasks
+	 */
+	@Override
+	public void replayJournal(ArrayList<Task> tasks) {
+		flush();
+		_journalSize = 0;
+		_journalPosition = 0;
+		if (!_isJournalValid) {
+			_isJournalValid = true;
+			if (!_isReadOnly) {
+				clearJournal();
+			}
+			return;
+		}
+		if (_isReadOnly) {
+			// Reads the records appended since the storage file was read.
+			tailJournal(tasks);
+			return;
+		}
+		File journal = new File(_journalFileName);
+		if (!journal.exists()) {
+			return;
+		}
+		try {
+			RandomAccessFile file = new RandomAccessFile(journal, "rw");
+			try {
+				byte[] records = new byte[(int) file.length()];
+				file.readFully(records);
+				Charset charset = Charset.defaultCharset();
+				int start = 0;
+				for (int end = 0; end < records.length; end++) {
+					if (records[end] != '\n') {
+						continue;
+					}
+					String line = new String(records, start, end - start, charset).trim();
+					if (!applyJournalRecord(tasks, line, null)) {
+						break;
+					}
+					start = end + 1;
+					_journalSize++;
+				}
+				if (start < records.length) {
+					// Records appended after an invalid one would never be replayed.
+					file.setLength(start);
+					file.getFD().sync();
+				}
+			} finally {
+				file.close();
+			}
+			if (_journalSize > 0) {
+				// The record file no longer holds the tasks list.
+				closeRecordFile();
+			}
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+		}
+	}
+
+	/**
+	 * Checks if the journal holds any records, including ones not yet written.
+	 */
+	@Override
+	public boolean hasJournal() {
+		flush();
+		return new File(_journalFileName).length() > 0;
+	}
+
+	/**
+	 * Returns the number of records in the journal since the last full write.
+	 */
+	@Override
+	public int getJournalSize() {
+		return _journalSize;
+	}
+
+	// Applies a single journal record to the tasks list. Returns false if the record is invalid.
+	// If encoded is given, it is updated with the JSON line of the changed task.
+	private boolean applyJournalRecord(ArrayList<Task> tasks, String line,
+			IdentityHashMap<Task, byte[]> encoded) {
+		String[] fields = line.split(JOURNAL_SEPARATOR, 3);
+		if (fields.length < 2) {
+			return false;
+		}
+		try {
+			Operation operation = Operation.valueOf(fields[0]);
+			int index = Integer.parseInt(fields[1]);
+			Task task = null;
+			if (fields.length == 3) {
+				task = gson.get().fromJson(fields[2], Task.class);
+			}
+			if (encoded == null) {
+				encoded = new IdentityHashMap<Task, byte[]>();
+			}
+
+			switch (operation) {
+			case ADD:
+				if (task == null) {
+					return false;
+				}
+				tasks.add(task);
+				encoded.put(task, (fields[2] + LINE_SEPARATOR).getBytes(Charset.defaultCharset()));
+				return true;
+
+			case SET:
+				if (task == null || index < 0 || index >= tasks.size()) {
+					return false;
+				}
+				encoded.remove(tasks.set(index, task));
+				encoded.put(task, (fields[2] + LINE_SEPARATOR).getBytes(Charset.defaultCharset()));
+				return true;
+
+			case REMOVE:
+				if (index < 0 || index >= tasks.size()) {
+					return false;
+				}
+				encoded.remove(tasks.remove(index));
+				return true;
+
+			case CLEAR:
+				tasks.clear();
+				encoded.clear();
+				return true;
+
+			default:
+				return false;
+			}
+		} catch (IllegalArgumentException e) {
+			return false;
+		} catch (JsonParseException e) {
+			return false;
+		}
+	}
+
+	// Deletes the journal, as its records are contained in the storage file.
+	private void clearJournal() {
+		File journal = new File(_journalFileName);
+		if (journal.exists()) {
+			journal.delete();
+		}
+		_journalSize = 0;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+package com.taskcommander;
+
+import java.util.ArrayList;
+
+//@author A0112828H
+/**
+ * Permanent storage of the tasks list.
+ *
+ * Data reads the whole tasks list when starting, records every single change
+ * of the list as an operation, and writes the whole list again once the
+ * recorded operations outgrow it. The backend used is chosen by
+ * Global.STORAGE_BACKEND.
+ */
+public interface StorageBackend {
+
+	/**
+	 * Returns the stored tasks list.
+	 */
+	public ArrayList<Task> readFromFile();
+
+	/**
+	 * Replaces the stored tasks list by the given one, including all
+	 * operations recorded so far.
+	 *
+	 * @param tasks
+	 */
+	public void writeToFile(ArrayList<Task> tasks);
+
+	/**
+	 * Records a single operation on the tasks list. The index is the position
+	 * in the tasks list the operation applies to and is ignored for ADD and
+	 * CLEAR. The task is ignored for REMOVE and CLEAR.
+	 *
+	 * @param operation
+	 * @param index
+	 * @param task
+	 */
+	public void appendToJournal(Storage.Operation operation, int index, Task task);
+
+	/**
+	 * Applies the recorded operations not yet contained in the tasks list
+	 * returned by readFromFile() to it.
+	 *
+	 * @param tasks
+	 */
+	public void replayJournal(ArrayList<Task> tasks);
+
+	/**
+	 * Checks if any operations have been recorded since the last full write.
+	 */
+	public boolean hasJournal();
+
+	/**
+	 * Returns the number of operations recorded since the last full write.
+	 */
+	public int getJournalSize();
+
+	/**
+	 * Waits until all recorded operations are on disk.
+	 */
+	public void flush();
+}
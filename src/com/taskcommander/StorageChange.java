@@ -0,0 +1,54 @@
+package com.taskcommander;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+//@author A0112828H
+/**
+ * Change of the storage file made by another program or process, as read by
+ * Storage.readChangedFile(). Holds the tasks of the changed file, which reuse
+ * the tasks of unchanged lines, and the tasks added to and removed from the
+ * file since it was last read or written.
+ */
+public class StorageChange {
+	private ArrayList<Task> tasks;
+	private ArrayList<Task> addedTasks;
+	private ArrayList<Task> removedTasks;
+
+	// Encoded lines of the tasks of the changed file, and its modification time and length
+	IdentityHashMap<Task, byte[]> encoded;
+	long _lastModified;
+	long _length;
+
+	StorageChange(ArrayList<Task> tasks, ArrayList<Task> addedTasks,
+			ArrayList<Task> removedTasks, IdentityHashMap<Task, byte[]> encoded,
+			long lastModified, long length) {
+		this.tasks = tasks;
+		this.addedTasks = addedTasks;
+		this.removedTasks = removedTasks;
+		this.encoded = encoded;
+		_lastModified = lastModified;
+		_length = length;
+	}
+
+	/**
+	 * Returns the tasks of the changed file, in file order.
+	 */
+	public ArrayList<Task> getTasks() {
+		return tasks;
+	}
+
+	/**
+	 * Returns the tasks of lines added to the file.
+	 */
+	public ArrayList<Task> getAddedTasks() {
+		return addedTasks;
+	}
+
+	/**
+	 * Returns the tasks of lines removed from the file.
+	 */
+	public ArrayList<Task> getRemovedTasks() {
+		return removedTasks;
+	}
+}
@@ -0,0 +1,318 @@
+package com.taskcommander;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+//@author A0112828H
+/**
+ * Checksums of storage files, to detect damaged files without parsing them.
+ *
+ * The checksums of a file are kept in a checksum file next to it, named by
+ * Global.CHECKSUM_FILE_SUFFIX, so the file itself stays plain data for other
+ * programs. It holds a single line: "#TCSUMC", the segment size, the data
+ * length and the CRC32C of every segment of the data in hex, separated by
+ * tabs and commas. CRC32C is computed with the CRC32C instruction of the
+ * processor where available.
+ *
+ * Earlier versions used CRC32 under the magic "#TCSUM", first appended to
+ * the file as a footer, then in the checksum file. Both are still verified.
+ * JSON readers skip a footer as a comment line; binary readers read the data
+ * length only. Files written before checksums were added have neither.
+ */
+public class StorageChecksum {
+
+	public static final String FOOTER_MAGIC = "#TCSUM";
+
+	// Magic of checksum files holding CRC32C rather than CRC32 checksums
+	private static final String CRC32C_MAGIC = "#TCSUMC";
+	public static final int SEGMENT_SIZE = 64 * 1024;
+
+	private static final Charset CHARSET = Charset.forName("US-ASCII");
+	private static final String SEPARATOR = "\t";
+	private static final String CHECKSUM_SEPARATOR = ",";
+	private static final int FOOTER_FIELDS = 4;
+
+	// Upper bound of the footer length without the checksums
+	private static final int FOOTER_BASE_LENGTH = 64;
+
+	/**
+	 * Output stream to a file, which forces the file to disk and then writes
+	 * its checksum file when closed.
+	 */
+	public static class Output extends OutputStream {
+		private String _fileName;
+		private FileOutputStream out;
+		private CRC32C crc = new CRC32C();
+		private ArrayList<Long> checksums = new ArrayList<Long>();
+		private long _length;
+		private int _segmentLength;
+		private boolean _closed;
+
+		public Output(String fileName) throws IOException {
+			_fileName = fileName;
+			out = new FileOutputStream(new File(fileName), false);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			out.write(bytes, offset, length);
+			updateChecksums(bytes, offset, length);
+		}
+
+		/**
+		 * Writes the remaining bytes of the given buffers, which must be backed
+		 * by arrays, with a single gathering write.
+		 *
+		 * @param buffers
+		 * @throws IOException
+		 */
+		public void write(ByteBuffer[] buffers) throws IOException {
+			long remaining = 0;
+			for (ByteBuffer buffer : buffers) {
+				updateChecksums(buffer.array(), buffer.arrayOffset() + buffer.position(),
+						buffer.remaining());
+				remaining += buffer.remaining();
+			}
+			FileChannel channel = out.getChannel();
+			while (remaining > 0) {
+				remaining -= channel.write(buffers);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (_closed) {
+				return;
+			}
+			_closed = true;
+			try {
+				if (_segmentLength > 0) {
+					endSegment();
+				}
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+			FileOutputStream checksumOut = new FileOutputStream(getChecksumFileName(_fileName));
+			try {
+				checksumOut.write(createFooter(_length, checksums).getBytes(CHARSET));
+				checksumOut.getFD().sync();
+			} finally {
+				checksumOut.close();
+			}
+		}
+
+		private void updateChecksums(byte[] bytes, int offset, int length) {
+			_length += length;
+			while (length > 0) {
+				int part = Math.min(length, SEGMENT_SIZE - _segmentLength);
+				crc.update(bytes, offset, part);
+				_segmentLength += part;
+				offset += part;
+				length -= part;
+				if (_segmentLength == SEGMENT_SIZE) {
+					endSegment();
+				}
+			}
+		}
+
+		private void endSegment() {
+			checksums.add(crc.getValue());
+			crc.reset();
+			_segmentLength = 0;
+		}
+	}
+
+	/**
+	 * Returns the name of the checksum file of the given file.
+	 *
+	 * @param fileName
+	 * @return name of the checksum file
+	 */
+	public static String getChecksumFileName(String fileName) {
+		return fileName + Global.CHECKSUM_FILE_SUFFIX;
+	}
+
+	/**
+	 * Checks the data of the given file against its checksums. Reads the
+	 * file once, segment by segment.
+	 *
+	 * @param fileName
+	 * @return true if the data matches or the file has no checksums, false if not
+	 * @throws IOException if the file cannot be read
+	 */
+	public static boolean verify(String fileName) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		try {
+			long dataLength = file.length();
+			String footer;
+			File checksumFile = new File(getChecksumFileName(fileName));
+			if (checksumFile.exists()) {
+				footer = new String(Files.readAllBytes(checksumFile.toPath()), CHARSET);
+			} else {
+				dataLength = findFooter(file, file.length());
+				if (dataLength < 0) {
+					return true;
+				}
+				byte[] bytes = new byte[(int) (file.length() - dataLength)];
+				file.seek(dataLength);
+				file.readFully(bytes);
+				footer = new String(bytes, CHARSET);
+			}
+			String[] fields = footer.trim().split(SEPARATOR);
+			if (fields.length < FOOTER_FIELDS - 1 || Integer.parseInt(fields[1]) != SEGMENT_SIZE
+					|| Long.parseLong(fields[2]) != dataLength) {
+				return false;
+			}
+			String[] checksums = fields.length == FOOTER_FIELDS
+					? fields[3].split(CHECKSUM_SEPARATOR) : new String[0];
+			if (checksums.length != (dataLength + SEGMENT_SIZE - 1) / SEGMENT_SIZE) {
+				return false;
+			}
+
+			file.seek(0);
+			byte[] segment = new byte[SEGMENT_SIZE];
+			Checksum crc = fields[0].equals(CRC32C_MAGIC) ? new CRC32C() : new CRC32();
+			for (int i = 0; i < checksums.length; i++) {
+				int length = (int) Math.min(SEGMENT_SIZE, dataLength - (long) i * SEGMENT_SIZE);
+				file.readFully(segment, 0, length);
+				crc.reset();
+				crc.update(segment, 0, length);
+				if (crc.getValue() != Long.parseLong(checksums[i], 16)) {
+					return false;
+				}
+			}
+			return true;
+		} catch (NumberFormatException e) {
+			return false;
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Returns the length of the data in the given file, without verifying it.
+	 *
+	 * @param fileName
+	 * @return offset of the footer, or the file length if the file has no footer
+	 * @throws IOException if the file cannot be read
+	 */
+	public static long getDataLength(String fileName) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		try {
+			if (new File(getChecksumFileName(fileName)).exists()) {
+				return file.length();
+			}
+			long footerStart = findFooter(file, file.length());
+			return footerStart < 0 ? file.length() : footerStart;
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Checks if checksums were written for the given file, without verifying
+	 * them. Such a file was written completely before being moved in place.
+	 *
+	 * @param fileName
+	 * @return true if so, false if not or if the file cannot be read
+	 */
+	public static boolean hasChecksums(String fileName) {
+		if (new File(getChecksumFileName(fileName)).exists()) {
+			return true;
+		}
+		try {
+			return getDataLength(fileName) < new File(fileName).length();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns an input stream of the first bytes of the given file.
+	 *
+	 * @param fileName
+	 * @param length number of bytes to read
+	 * @return input stream
+	 * @throws IOException
+	 */
+	public static InputStream openData(String fileName, final long length) throws IOException {
+		return new FilterInputStream(new FileInputStream(fileName)) {
+			private long remaining = length;
+
+			@Override
+			public int read() throws IOException {
+				if (remaining <= 0) {
+					return -1;
+				}
+				remaining--;
+				return super.read();
+			}
+
+			@Override
+			public int read(byte[] bytes, int offset, int count) throws IOException {
+				if (remaining <= 0) {
+					return -1;
+				}
+				int read = super.read(bytes, offset, (int) Math.min(count, remaining));
+				if (read > 0) {
+					remaining -= read;
+				}
+				return read;
+			}
+		};
+	}
+
+	private static String createFooter(long dataLength, ArrayList<Long> checksums) {
+		StringBuilder footer = new StringBuilder(CRC32C_MAGIC);
+		footer.append(SEPARATOR).append(SEGMENT_SIZE).append(SEPARATOR).append(dataLength);
+		footer.append(SEPARATOR);
+		for (int i = 0; i < checksums.size(); i++) {
+			if (i > 0) {
+				footer.append(CHECKSUM_SEPARATOR);
+			}
+			footer.append(Long.toHexString(checksums.get(i)));
+		}
+		return footer.append("\n").toString();
+	}
+
+	// Returns the offset of the footer, found as the last occurrence of its magic, or -1.
+	private static long findFooter(RandomAccessFile file, long fileLength) throws IOException {
+		long maxFooterLength = FOOTER_BASE_LENGTH + 9 * (fileLength / SEGMENT_SIZE + 1);
+		int tailLength = (int) Math.min(fileLength, maxFooterLength);
+		byte[] tail = new byte[tailLength];
+		file.seek(fileLength - tailLength);
+		file.readFully(tail);
+		byte[] magic = FOOTER_MAGIC.getBytes(CHARSET);
+		for (int i = tailLength - magic.length; i >= 0; i--) {
+			int j = 0;
+			while (j < magic.length && tail[i + j] == magic[j]) {
+				j++;
+			}
+			if (j == magic.length) {
+				return fileLength - tailLength + i;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,128 @@
+package com.taskcommander;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+
+//@author A0112828H
+/**
+ * Locks shared by the processes using the same storage file, held on regions
+ * of a lock file next to it.
+ *
+ * The writer region is locked exclusively by the one process allowed to write
+ * the storage file, for as long as it runs. The data region is locked shared
+ * while the storage file and journal are read, and exclusively while they are
+ * replaced or appended to, so that readers never see a file being written.
+ *
+ * File locks are held by the whole process, so a region locked by another
+ * thread or Storage of the same process counts as locked by another process.
+ */
+public class StorageLock {
+
+	private static final long WRITER_REGION = 0;
+	private static final long DATA_REGION = 1;
+
+	// Milliseconds to wait before trying again to lock a region locked within this process
+	private static final long RETRY_DELAY = 5;
+
+	private String _fileName;
+	private FileChannel channel;
+	private FileLock writerLock;
+
+	/**
+	 * Returns a StorageLock on the given lock file.
+	 *
+	 * @param fileName
+	 */
+	public StorageLock(String fileName) {
+		_fileName = fileName;
+	}
+
+	/**
+	 * Tries to become the writer of the storage file.
+	 *
+	 * @return true if this process is now the writer, false if another process is
+	 */
+	public synchronized boolean acquireWriter() {
+		if (writerLock != null) {
+			return true;
+		}
+		try {
+			writerLock = getChannel().tryLock(WRITER_REGION, 1, false);
+		} catch (OverlappingFileLockException e) {
+			writerLock = null;
+		} catch (IOException e) {
+			// Locks are not supported, e.g. on some network file systems.
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+			return true;
+		}
+		return writerLock != null;
+	}
+
+	/**
+	 * Gives up writing the storage file and closes the lock file.
+	 */
+	public synchronized void release() {
+		try {
+			if (writerLock != null) {
+				writerLock.release();
+			}
+			if (channel != null) {
+				channel.close();
+			}
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+		}
+		writerLock = null;
+		channel = null;
+	}
+
+	/**
+	 * Locks the data region, waiting until no other process holds a conflicting lock.
+	 * The returned lock has to be released by unlock().
+	 *
+	 * @param shared true to read the storage file, false to change it
+	 * @return lock, or null if locks are not supported
+	 */
+	public FileLock lock(boolean shared) {
+		while (true) {
+			try {
+				return getChannel().lock(DATA_REGION, 1, shared);
+			} catch (OverlappingFileLockException e) {
+				try {
+					Thread.sleep(RETRY_DELAY);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					return null;
+				}
+			} catch (IOException e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Releases the given lock of the data region.
+	 *
+	 * @param lock returned by lock(), may be null
+	 */
+	public static void unlock(FileLock lock) {
+		if (lock == null) {
+			return;
+		}
+		try {
+			lock.release();
+		} catch (IOException e) {
+			System.out.println(Global.MESSAGE_EXCEPTION_IO);
+		}
+	}
+
+	private synchronized FileChannel getChannel() throws IOException {
+		if (channel == null || !channel.isOpen()) {
+			channel = new RandomAccessFile(_fileName, "rw").getChannel();
+		}
+		return channel;
+	}
+}
@@ -0,0 +1,142 @@
+package com.taskcommander;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Observable;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+//@author A0112828H
+/**
+ * Watches the storage file for changes made by other programs or processes,
+ * e.g. scripts editing the file or a second TaskCommander on a shared volume.
+ *
+ * Runs on a background thread, which reads the changed file through
+ * Storage.readChangedFile(), so only changed lines are decoded. Notifies
+ * observers with the StorageChange, which Data then applies. Changes made
+ * by the Storage itself are ignored.
+ *
+ * If the Storage is read-only, the journal is watched as well, and observers
+ * are notified with JOURNAL_APPENDED when the writing process appended to it.
+ */
+public class StorageWatcher extends Observable implements Runnable {
+
+	private static final Logger logger = Logger.getLogger(StorageWatcher.class.getName());
+
+	/**
+	 * Events observers are notified with besides a StorageChange
+	 */
+	public enum Event {
+		JOURNAL_APPENDED
+	}
+
+	private Storage storage;
+	private WatchService watchService;
+	private Path file;
+	private Path journal;
+
+	// Whether the storage file and the journal changed since last read
+	private boolean _isFileChanged;
+	private boolean _isJournalChanged;
+
+	/**
+	 * Returns a StorageWatcher watching the file of the given Storage.
+	 *
+	 * @param storage
+	 */
+	public StorageWatcher(Storage storage) {
+		this.storage = storage;
+	}
+
+	/**
+	 * Starts watching on a background thread.
+	 *
+	 * @return true if successful, false if the file system cannot be watched
+	 */
+	public boolean start() {
+		file = Paths.get(Global.FILENAME).toAbsolutePath();
+		journal = Paths.get(Global.JOURNAL_FILENAME).toAbsolutePath().getFileName();
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Unable to watch the storage file", e);
+			return false;
+		}
+		Thread thread = new Thread(this, "StorageWatcher");
+		thread.setDaemon(true);
+		thread.start();
+		return true;
+	}
+
+	/**
+	 * Stops watching.
+	 */
+	public void stop() {
+		try {
+			if (watchService != null) {
+				watchService.close();
+			}
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Unable to stop watching the storage file", e);
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				_isFileChanged = false;
+				_isJournalChanged = false;
+				pollFileEvents(key);
+				// Waits until the writer is done, as a file is often written in several steps.
+				while ((key = watchService.poll(Global.WATCH_DELAY, TimeUnit.MILLISECONDS)) != null) {
+					pollFileEvents(key);
+				}
+				boolean isJournalChanged = _isJournalChanged && storage.isReadOnly();
+				if (_isFileChanged) {
+					StorageChange change = storage.readChangedFile();
+					if (change != null) {
+						logger.log(Level.INFO, "Storage file changed: " + change.getAddedTasks().size()
+								+ " tasks added, " + change.getRemovedTasks().size() + " removed");
+						setChanged();
+						notifyObservers(change);
+					}
+					// A rewritten file comes with a new journal.
+					isJournalChanged |= storage.isReadOnly();
+				}
+				if (isJournalChanged) {
+					setChanged();
+					notifyObservers(Event.JOURNAL_APPENDED);
+				}
+			}
+		} catch (InterruptedException e) {
+			return;
+		} catch (ClosedWatchServiceException e) {
+			return;
+		}
+	}
+
+	// Records if the given key has events of the storage file or journal, and resets it.
+	private void pollFileEvents(WatchKey key) {
+		for (WatchEvent<?> event : key.pollEvents()) {
+			Object context = event.context();
+			if (context instanceof Path && file.getFileName().equals(context)) {
+				_isFileChanged = true;
+			} else if (context instanceof Path && journal.equals(context)) {
+				_isJournalChanged = true;
+			}
+		}
+		key.reset();
+	}
+}
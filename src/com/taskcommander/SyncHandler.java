@@ -84,6 +84,7 @@ public class SyncHandler extends Observable {
 			push();
 			try {
 				pull();
+				TaskCommander.getStorageBackend().flush();
 				resetSyncState(SyncState.DONE);
 			} catch (Exception e) {
 				logger.log(Level.WARNING, Global.MESSAGE_SYNC_FAILED, e);
@@ -135,14 +136,19 @@ public class SyncHandler extends Observable {
 		//Handle Added Cases
 		for (Task t : tasks) {
 			if (!t.isSynced()) {
-				if (t.getId() == null) {
-					String result = con.addTask(t);
+				//@author A0112828H
+				// Displayed tasks may share the task, so a pushed copy replaces it.
+				Task pushedTask = Data.copyOf(t);
+				if (pushedTask.getId() == null) {
+					String result = con.addTask(pushedTask);
 					if (result != null) {
-						t.setId(result);
+						pushedTask.setId(result);
 					}
-				} else if (t.isEdited()) {
-					con.updateTask(t);
+				} else if (pushedTask.isEdited()) {
+					con.updateTask(pushedTask);
 				}
+				TaskCommander.data.replaceTask(t, pushedTask);
+				//@author A0109194A
 			}
 			updateTasksComplete(tasksComplete+1);
 		}
@@ -204,12 +210,11 @@ public class SyncHandler extends Observable {
 		ArrayList<Task> tasks = TaskCommander.data.getAllTasks();
 		List<com.google.api.services.tasks.model.Task> googleTasks = con.getAllGoogleTasks(true);
 		List<Event> googleEvents = con.getAllGoogleEvents(true);
-		ArrayList<String> taskIds = TaskCommander.data.getAllIds();
 		logger.log(Level.INFO, "PULL: Retrieved All Tasks");
 
 		startSyncState(SyncState.PULL, getTotalTasks(tasksToSync, tasks, googleTasks, googleEvents));
 
-		pullAddedCases(googleTasks, googleEvents, taskIds);
+		pullAddedCases(googleTasks, googleEvents);
 		pullUpdatedCases(tasksToSync);
 		pullDeletedCases(googleTasks, googleEvents);
 
@@ -221,12 +226,11 @@ public class SyncHandler extends Observable {
 	 * added since last sync, and adds them locally.
 	 * @param googleTasks
 	 * @param googleEvents
-	 * @param taskIds
 	 */
 	private void pullAddedCases(List<com.google.api.services.tasks.model.Task> googleTasks,
-			List<Event> googleEvents, ArrayList<String> taskIds) {
-		pullAddedCasesForTasks(googleTasks, taskIds);
-		pullAddedCasesForCalendar(googleEvents, taskIds);
+			List<Event> googleEvents) {
+		pullAddedCasesForTasks(googleTasks);
+		pullAddedCasesForCalendar(googleEvents);
 		logger.log(Level.INFO, "PULL: Handled Added Tasks");
 	}
 
@@ -234,14 +238,13 @@ public class SyncHandler extends Observable {
 	 * Pulls new tasks from Google Calendar service that have been
 	 * added since last sync, and adds them locally.
 	 * @param googleEvents
-	 * @param taskIds
 	 */
-	private void pullAddedCasesForCalendar(List<Event> googleEvents,
-			ArrayList<String> taskIds) {
+	private void pullAddedCasesForCalendar(List<Event> googleEvents) {
 		if (googleEvents != null) {
 			//For Events
 			for (Event event: googleEvents) {
-				if (!taskIds.contains(event.getId()) && !event.getStatus().equals(STATUS_CANCELLED)) {
+				if (TaskCommander.data.getIndexOfId(event.getId()) == -1
+						&& !event.getStatus().equals(STATUS_CANCELLED)) {
 					TaskCommander.data.addTask(con.toTask(event));
 				}
 				updateTasksComplete(tasksComplete+1);
@@ -253,14 +256,13 @@ public class SyncHandler extends Observable {
 	 * Pulls new tasks from Google Tasks service that have been
 	 * added since last sync, and adds them locally.
 	 * @param googleTasks
-	 * @param taskIds
 	 */
 	private void pullAddedCasesForTasks(
-			List<com.google.api.services.tasks.model.Task> googleTasks,
-			ArrayList<String> taskIds) {
+			List<com.google.api.services.tasks.model.Task> googleTasks) {
 		if (googleTasks != null) {
 			for (com.google.api.services.tasks.model.Task task : googleTasks) {
-				if (!taskIds.contains(task.getId()) && task.getDeleted() == null && !task.getTitle().equals("")) {
+				if (TaskCommander.data.getIndexOfId(task.getId()) == -1
+						&& task.getDeleted() == null && !task.getTitle().equals("")) {
 					TaskCommander.data.addTask(con.toTask(task));
 				}
 				updateTasksComplete(tasksComplete+1);
@@ -275,14 +277,12 @@ public class SyncHandler extends Observable {
 	 */
 	private void pullUpdatedCases(ArrayList<Task> tasksToSync) {
 		ArrayList<Task> tasks;
-		ArrayList<String> taskIds;
 		if (tasksToSync != null) {
 			logger.log(Level.INFO, "PULL: Starting Updated Cases");
 			//Updated cases
 			tasks = TaskCommander.data.getAllTasks();
-			taskIds = TaskCommander.data.getAllIds();
 			for (Task t: tasksToSync) {
-				int index = taskIds.indexOf(t.getId());
+				int index = TaskCommander.data.getIndexOfId(t.getId());
 				if (index == -1) {
 					continue;
 				}
@@ -325,15 +325,10 @@ public class SyncHandler extends Observable {
 	 */
 	private void pullDeletedCasesForTasks(
 			List<com.google.api.services.tasks.model.Task> googleTasks) {
-		ArrayList<String> taskIds;
 		if (googleTasks != null) {
-			taskIds = TaskCommander.data.getAllIds();
 			for (com.google.api.services.tasks.model.Task t : googleTasks) {
 				if (t.getDeleted() != null) {
-					int index = -1;
-					if (!taskIds.isEmpty()) {
-						index = taskIds.indexOf(t.getId());
-					}
+					int index = TaskCommander.data.getIndexOfId(t.getId());
 					if (index == -1) {
 						continue;
 					} else {
@@ -352,13 +347,11 @@ public class SyncHandler extends Observable {
 	 * @param googleEvents
 	 */
 	private void pullDeletedCasesForCalendar(List<Event> googleEvents) {
-		ArrayList<String> taskIds;
 		if (googleEvents != null) {
-			taskIds = TaskCommander.data.getAllIds();
 			//Deleted Case For Events
 			for (Event event : googleEvents) {
 				if (event.getStatus().equals(STATUS_CANCELLED)) {
-					int index = taskIds.indexOf(event.getId());
+					int index = TaskCommander.data.getIndexOfId(event.getId());
 					if (index == -1) {
 						continue;
 					} else {
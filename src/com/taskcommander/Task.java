@@ -1,4 +1,6 @@
 package com.taskcommander;
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.google.gson.annotations.SerializedName;
 import com.google.api.client.util.DateTime;
 
@@ -17,6 +19,12 @@ public abstract class Task {
     private boolean _done;
     private boolean _edited;
     private DateTime _updated;
+    // Set when the task changes, so Storage knows to encode it again
+    private transient boolean _dirty = true;
+    // Identifies the task and its copies within this session, not stored
+    private transient long _localId = nextLocalId.getAndIncrement();
+
+    private static final AtomicLong nextLocalId = new AtomicLong();
 
     /**
      * Possible task types
@@ -81,6 +89,25 @@ public abstract class Task {
         return _updated;
     }
 
+    /**
+     * Returns the local ID of the task, which copies of the task share.
+     * Unlike the Google ID, every task has one, but it is not stored.
+     * 
+     * @return Local ID.
+     */
+    public long getLocalId() {
+        return _localId;
+    }
+
+    /**
+     * Returns true if the task has changed since Storage last encoded it.
+     * 
+     * @return If task is dirty.
+     */
+    public boolean isDirty() {
+        return _dirty;
+    }
+
     /**
      * Returns true if task has a google id and has not been edited since last
      * sync
@@ -93,38 +120,65 @@ public abstract class Task {
 
     public void setType(TaskType taskType) {
         _taskType = taskType;
+        _dirty = true;
     }
 
     public void setName(String name) {
         _name = name;
+        _dirty = true;
     }
 
     public void setId(String id) {
         _id = id;
+        _dirty = true;
     }
 
     public void setDone(boolean done) {
         _done = done;
+        _dirty = true;
     }
 
     public void setEdited(boolean edited) {
         this._edited = edited;
+        _dirty = true;
     }
 
     public void setUpdated(DateTime updated) {
         _updated = updated;
+        _dirty = true;
     }
 
     public void markDone() {
         _done = true;
+        _dirty = true;
     }
 
     public void markOpen() {
         _done = false;
+        _dirty = true;
     }
 
     public void markSynced() {
         _edited = false;
+        _dirty = true;
+    }
+
+    // Makes this task a copy of the given task, sharing its local ID.
+    void copyLocalId(Task otherTask) {
+        _localId = otherTask._localId;
+    }
+
+    // Gives this task the given local ID, e.g. the one it had before it was paged out.
+    void setLocalId(long localId) {
+        _localId = localId;
+    }
+
+    void markDirty() {
+        _dirty = true;
+    }
+
+    void markClean() {
+        _dirty = false;
     }
 
     //@author A0128620M
@@ -1,57 +1,226 @@
 package com.taskcommander;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Locale;
 
-import com.google.gson.*;
+import com.google.api.client.util.DateTime;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 //@author A0112828H
 /**
  * Adapter class for serializing and deserializing JSON objects into
- * Task objects using GSON. 
- * 
+ * Task objects using GSON.
+ *
  * Creates Task subclass objects based on the enum TaskType's string values.
- * 
- * Code adapted from: http://ovaraksin.blogspot.com.es/2011/05/json-with-gson-and-abstract-classes.html
+ * Reads and writes the fields of each task type directly from and to the
+ * JSON stream, in the same format GSON uses for the Task classes by reflection,
+ * so existing storage files stay readable. Tasks written in the older format
+ * wrapped under "properties" can be read as well.
+ *
+ * Holds its own date formats, so an instance must not be shared between threads.
  */
 
-public class TaskAdapter implements JsonSerializer<Task>, JsonDeserializer<Task> {
+public class TaskAdapter extends TypeAdapter<Task> {
+	private static final String FIELD_TYPE = "taskType";
+	private static final String FIELD_NAME = "_name";
+	private static final String FIELD_ID = "_id";
+	private static final String FIELD_DONE = "_done";
+	private static final String FIELD_EDITED = "_edited";
+	private static final String FIELD_UPDATED = "_updated";
+	private static final String FIELD_DATE = "_date";
+	private static final String FIELD_START_DATE = "_startDate";
+	private static final String FIELD_END_DATE = "_endDate";
+	private static final String FIELD_PROPERTIES = "properties";
+
+	private static final String FIELD_UPDATED_VALUE = "value";
+	private static final String FIELD_UPDATED_DATE_ONLY = "dateOnly";
+	private static final String FIELD_UPDATED_TIME_ZONE_SHIFT = "tzShift";
+
+	// Same date formats as used by GSON for java.util.Date
+	private final DateFormat enUsFormat = DateFormat.getDateTimeInstance(
+			DateFormat.DEFAULT, DateFormat.DEFAULT, Locale.US);
+	private final DateFormat localFormat = DateFormat.getDateTimeInstance(
+			DateFormat.DEFAULT, DateFormat.DEFAULT);
+
 	@Override
-	public JsonElement serialize(Task src, Type typeOfSrc, JsonSerializationContext context) {
-		JsonObject result = new JsonObject();
-		switch (src.getType()) {
-		case FLOATING:
-			result.add("properties", context.serialize(src, FloatingTask.class));
-			break;
+	public void write(JsonWriter out, Task src) throws IOException {
+		if (src == null) {
+			out.nullValue();
+			return;
+		}
+		out.beginObject();
+		out.name(FIELD_TYPE).value(Integer.toString(src.getType().ordinal()));
+		out.name(FIELD_NAME).value(src.getName());
+		if (src.getId() != null) {
+			out.name(FIELD_ID).value(src.getId());
+		}
+		out.name(FIELD_DONE).value(src.isDone());
+		out.name(FIELD_EDITED).value(src.isEdited());
+		if (src.getUpdated() != null) {
+			writeDateTime(out.name(FIELD_UPDATED), src.getUpdated());
+		}
 
+		switch (src.getType()) {
 		case TIMED:
-			result.add("properties", context.serialize(src, TimedTask.class));
+			TimedTask timedTask = (TimedTask) src;
+			writeDate(out.name(FIELD_START_DATE), timedTask.getStartDate());
+			writeDate(out.name(FIELD_END_DATE), timedTask.getEndDate());
+			writeDate(out.name(FIELD_DATE), timedTask.getDate());
 			break;
 
 		case DEADLINE:
-			result.add("properties", context.serialize(src, DeadlineTask.class));
+			DeadlineTask deadlineTask = (DeadlineTask) src;
+			writeDate(out.name(FIELD_END_DATE), deadlineTask.getEndDate());
+			writeDate(out.name(FIELD_DATE), deadlineTask.getDate());
+			break;
+
+		default:
 			break;
 		}
-		System.out.println("ser" + result.toString());
-		return result;
+		out.endObject();
 	}
 
+	/**
+	 * Returns the task read from the JSON stream, or null if the task type,
+	 * name or a date required by the task type is missing.
+	 */
 	@Override
-	public Task deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context)
-			throws JsonParseException {
-		JsonObject jsonObject = json.getAsJsonObject();
-		int type = Integer.parseInt(jsonObject.get("taskType").getAsString());
-		switch (type) {
-		case 0: //FloatingTask
-			return context.deserialize(jsonObject, FloatingTask.class);
+	public Task read(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
 
-		case 1: //TimedTask
-			return context.deserialize(jsonObject, TimedTask.class);
+		String type = null;
+		String name = null;
+		String id = null;
+		boolean isDone = false;
+		boolean isEdited = false;
+		DateTime updated = null;
+		Date date = null;
+		Date startDate = null;
+		Date endDate = null;
+		Task properties = null;
 
-		case 2: //DeadlineTask
-			return context.deserialize(jsonObject, DeadlineTask.class);
+		in.beginObject();
+		while (in.hasNext()) {
+			String field = in.nextName();
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+			} else if (field.equals(FIELD_TYPE)) {
+				type = in.nextString();
+			} else if (field.equals(FIELD_NAME)) {
+				name = in.nextString();
+			} else if (field.equals(FIELD_ID)) {
+				id = in.nextString();
+			} else if (field.equals(FIELD_DONE)) {
+				isDone = in.nextBoolean();
+			} else if (field.equals(FIELD_EDITED)) {
+				isEdited = in.nextBoolean();
+			} else if (field.equals(FIELD_UPDATED)) {
+				updated = readDateTime(in);
+			} else if (field.equals(FIELD_DATE)) {
+				date = readDate(in);
+			} else if (field.equals(FIELD_START_DATE)) {
+				startDate = readDate(in);
+			} else if (field.equals(FIELD_END_DATE)) {
+				endDate = readDate(in);
+			} else if (field.equals(FIELD_PROPERTIES)) {
+				properties = read(in);
+			} else {
+				in.skipValue();
+			}
+		}
+		in.endObject();
 
-		default:
+		if (properties != null) {
+			return properties;
+		}
+		if (type == null || name == null) {
+			return null;
+		}
+
+		Task task;
+		if (type.equals("0")) { //FloatingTask
+			task = new FloatingTask(name);
+		} else if (type.equals("1")) { //TimedTask
+			if (startDate == null) {
+				startDate = date;
+			}
+			if (startDate == null || endDate == null) {
+				return null;
+			}
+			task = new TimedTask(name, startDate, endDate);
+		} else if (type.equals("2")) { //DeadlineTask
+			if (endDate == null) {
+				endDate = date;
+			}
+			if (endDate == null) {
+				return null;
+			}
+			task = new DeadlineTask(name, endDate);
+		} else {
 			return null;
 		}
+		task.setId(id);
+		task.setDone(isDone);
+		task.setEdited(isEdited);
+		task.setUpdated(updated);
+		return task;
+	}
+
+	private void writeDate(JsonWriter out, Date date) throws IOException {
+		out.value(enUsFormat.format(date));
+	}
+
+	private Date readDate(JsonReader in) throws IOException {
+		String date = in.nextString();
+		try {
+			return localFormat.parse(date);
+		} catch (ParseException e) {
+			// Falls back to the US format, in which dates are written.
+		}
+		try {
+			return enUsFormat.parse(date);
+		} catch (ParseException e) {
+			throw new JsonParseException(date, e);
+		}
+	}
+
+	private void writeDateTime(JsonWriter out, DateTime dateTime) throws IOException {
+		out.beginObject();
+		out.name(FIELD_UPDATED_VALUE).value(dateTime.getValue());
+		out.name(FIELD_UPDATED_DATE_ONLY).value(dateTime.isDateOnly());
+		out.name(FIELD_UPDATED_TIME_ZONE_SHIFT).value(dateTime.getTimeZoneShift());
+		out.endObject();
+	}
+
+	private DateTime readDateTime(JsonReader in) throws IOException {
+		long value = 0;
+		boolean isDateOnly = false;
+		int timeZoneShift = 0;
+
+		in.beginObject();
+		while (in.hasNext()) {
+			String field = in.nextName();
+			if (field.equals(FIELD_UPDATED_VALUE)) {
+				value = in.nextLong();
+			} else if (field.equals(FIELD_UPDATED_DATE_ONLY)) {
+				isDateOnly = in.nextBoolean();
+			} else if (field.equals(FIELD_UPDATED_TIME_ZONE_SHIFT)) {
+				timeZoneShift = in.nextInt();
+			} else {
+				in.skipValue();
+			}
+		}
+		in.endObject();
+		return new DateTime(isDateOnly, value, timeZoneShift);
 	}
 }
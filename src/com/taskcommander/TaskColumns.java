@@ -0,0 +1,471 @@
+package com.taskcommander;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import com.google.api.client.util.DateTime;
+
+//@author A0112828H
+/**
+ * Tasks kept in columns of primitive values instead of task objects. Each
+ * task is a row: its type, dates and update time are kept in arrays, its
+ * status in bit sets, and its name and Google ID in arenas of UTF-8 bytes,
+ * where each row ends at the offset kept for it. A row takes about 50 bytes
+ * besides its name and ID, a fraction of a task object with its dates.
+ *
+ * Display restrictions are checked by scanning the columns in order, and
+ * task objects are only created for the rows read. Each row keeps the local
+ * ID of its task, so the task objects created for a row are copies of the
+ * task added, and rows are found by local ID through a hash index. Removed
+ * rows are marked as removed first, and their space is reclaimed once they
+ * make up half of the rows.
+ */
+public class TaskColumns {
+
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+	private static final Task.TaskType[] TYPES = Task.TaskType.values();
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int _rows;
+	private int _removedRows;
+
+	private byte[] types = new byte[INITIAL_CAPACITY];
+	// Start date of a timed task or end date of a deadline task, 0 for a floating task
+	private long[] startDates = new long[INITIAL_CAPACITY];
+	// End date of a timed or deadline task, 0 for a floating task
+	private long[] endDates = new long[INITIAL_CAPACITY];
+	private long[] updatedValues = new long[INITIAL_CAPACITY];
+	private int[] updatedTimeZoneShifts = new int[INITIAL_CAPACITY];
+	private long[] localIds = new long[INITIAL_CAPACITY];
+
+	private BitSet done = new BitSet();
+	private BitSet edited = new BitSet();
+	private BitSet hasId = new BitSet();
+	private BitSet hasUpdated = new BitSet();
+	private BitSet isUpdatedDateOnly = new BitSet();
+	private BitSet removed = new BitSet();
+
+	// Names and IDs of the rows, each ending at the offset kept for its row
+	private byte[] names = new byte[INITIAL_CAPACITY * 16];
+	private int[] nameEnds = new int[INITIAL_CAPACITY];
+	private byte[] ids = new byte[INITIAL_CAPACITY * 16];
+	private int[] idEnds = new int[INITIAL_CAPACITY];
+
+	// Rows not removed by the local ID and by the Google ID of their task
+	private HashMap<Long, Integer> rowsByLocalId = new HashMap<Long, Integer>();
+	private HashMap<String, Integer> rowsById = new HashMap<String, Integer>();
+
+	/**
+	 * Returns the number of rows not removed.
+	 */
+	public int size() {
+		return _rows - _removedRows;
+	}
+
+	/**
+	 * Returns the number of rows including the removed ones not reclaimed yet.
+	 * Rows are numbered from 0 in the order they were added, and numbered
+	 * again in that order when the removed rows are reclaimed.
+	 */
+	public int getRowCount() {
+		return _rows;
+	}
+
+	/**
+	 * Adds the given task as a new row.
+	 *
+	 * @param task
+	 * @return row of the task
+	 */
+	public int add(Task task) {
+		ensureCapacity(_rows + 1);
+		int row = _rows;
+		types[row] = (byte) task.getType().ordinal();
+		localIds[row] = task.getLocalId();
+		rowsByLocalId.put(task.getLocalId(), row);
+		startDates[row] = getStartDate(task);
+		endDates[row] = getEndDate(task);
+		done.set(row, task.isDone());
+		edited.set(row, task.isEdited());
+		if (task.getUpdated() != null) {
+			hasUpdated.set(row);
+			updatedValues[row] = task.getUpdated().getValue();
+			updatedTimeZoneShifts[row] = task.getUpdated().getTimeZoneShift();
+			isUpdatedDateOnly.set(row, task.getUpdated().isDateOnly());
+		} else {
+			hasUpdated.clear(row);
+			isUpdatedDateOnly.clear(row);
+		}
+
+		names = append(names, nameEnds, row, task.getName());
+		hasId.set(row, task.getId() != null);
+		ids = append(ids, idEnds, row, task.getId() == null ? "" : task.getId());
+		if (task.getId() != null) {
+			rowsById.put(task.getId(), row);
+		}
+		_rows++;
+		return row;
+	}
+
+	/**
+	 * Returns a new task object of the given row, sharing the local ID of the
+	 * task added.
+	 *
+	 * @param row
+	 * @return task
+	 */
+	public Task get(int row) {
+		String name = getString(names, nameEnds, row);
+		Task task;
+		switch (TYPES[types[row]]) {
+		case DEADLINE:
+			task = new DeadlineTask(name, new Date(endDates[row]));
+			break;
+
+		case TIMED:
+			task = new TimedTask(name, new Date(startDates[row]), new Date(endDates[row]));
+			break;
+
+		default:
+			task = new FloatingTask(name);
+			break;
+		}
+		task.setLocalId(localIds[row]);
+		task.setId(hasId.get(row) ? getString(ids, idEnds, row) : null);
+		task.setDone(done.get(row));
+		task.setEdited(edited.get(row));
+		if (hasUpdated.get(row)) {
+			task.setUpdated(new DateTime(isUpdatedDateOnly.get(row), updatedValues[row],
+					updatedTimeZoneShifts[row]));
+		}
+		return task;
+	}
+
+	/**
+	 * Marks the given row as removed. Reclaims the removed rows once they make
+	 * up half of the rows, which numbers the rows again.
+	 *
+	 * @param row
+	 */
+	public void remove(int row) {
+		if (removed.get(row)) {
+			return;
+		}
+		removed.set(row);
+		_removedRows++;
+		Integer indexedRow = rowsByLocalId.get(localIds[row]);
+		if (indexedRow != null && indexedRow == row) {
+			rowsByLocalId.remove(localIds[row]);
+		}
+		if (hasId.get(row)) {
+			String id = getString(ids, idEnds, row);
+			indexedRow = rowsById.get(id);
+			if (indexedRow != null && indexedRow == row) {
+				rowsById.remove(id);
+			}
+		}
+		if (_removedRows >= INITIAL_CAPACITY && _removedRows * 2 >= _rows) {
+			compact();
+		}
+	}
+
+	/**
+	 * Returns the local ID of the task of the given row.
+	 */
+	public long getLocalId(int row) {
+		return localIds[row];
+	}
+
+	/**
+	 * Returns the start date of the timed task or the end date of the deadline
+	 * task of the given row in milliseconds, or 0 for a floating task.
+	 */
+	public long getStartDate(int row) {
+		return startDates[row];
+	}
+
+	/**
+	 * Returns the end date of the timed or deadline task of the given row in
+	 * milliseconds, or 0 for a floating task.
+	 */
+	public long getEndDate(int row) {
+		return endDates[row];
+	}
+
+	/**
+	 * Returns the rows not removed.
+	 *
+	 * @return bitmap of the rows
+	 */
+	public BitSet getRows() {
+		BitSet rows = new BitSet(_rows);
+		rows.set(0, _rows);
+		rows.andNot(removed);
+		return rows;
+	}
+
+	/**
+	 * Returns the rows of the tasks matching the restrictions of the given
+	 * query, as Data.getTasks(TaskQuery) applies them.
+	 *
+	 * @param query
+	 * @return bitmap of the rows
+	 */
+	public BitSet getRowsMatching(TaskQuery query) {
+		BitSet rows = getRows();
+		if (query.isStatusRestricted() && query.areDoneTasksDisplayed()) {
+			rows.and(done);
+		} else if (query.isStatusRestricted()) {
+			rows.andNot(done);
+		}
+		if (query.isTaskTypeRestricted() || query.isDateRestricted()) {
+			retainTypesAndDates(rows, query);
+		}
+		if (query.isSearchedWordRestricted()) {
+			retainNamesContaining(rows, query.getSearchedWords());
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the rows of the timed tasks overlapping the given period.
+	 *
+	 * @param startDate start of the period, or null for no limit
+	 * @param endDate end of the period, or null for no limit
+	 * @return bitmap of the rows
+	 */
+	public BitSet getRowsOverlapping(Date startDate, Date endDate) {
+		long start = startDate == null ? Long.MIN_VALUE : startDate.getTime();
+		long end = endDate == null ? Long.MAX_VALUE : endDate.getTime();
+		byte timed = (byte) Task.TaskType.TIMED.ordinal();
+		BitSet rows = new BitSet(_rows);
+		for (int row = 0; row < _rows; row++) {
+			if (types[row] == timed && endDates[row] >= start && startDates[row] <= end) {
+				rows.set(row);
+			}
+		}
+		rows.andNot(removed);
+		return rows;
+	}
+
+	/**
+	 * Returns the row not removed holding the given task or a copy of it,
+	 * found by its local ID.
+	 *
+	 * @param task
+	 * @return row, or -1 if there is no such row
+	 */
+	public int indexOf(Task task) {
+		return indexOfLocalId(task.getLocalId());
+	}
+
+	/**
+	 * Returns the row not removed holding the task of the given local ID.
+	 *
+	 * @param localId
+	 * @return row, or -1 if there is no such row
+	 */
+	public int indexOfLocalId(long localId) {
+		Integer row = rowsByLocalId.get(localId);
+		return row == null ? -1 : row;
+	}
+
+	/**
+	 * Returns the row not removed holding the task of the given Google ID.
+	 *
+	 * @param id
+	 * @return row, or -1 if there is no such row
+	 */
+	public int indexOfId(String id) {
+		Integer row = rowsById.get(id);
+		return row == null ? -1 : row;
+	}
+
+	// Clears the rows not matching the type and date restrictions of the query.
+	private void retainTypesAndDates(BitSet rows, TaskQuery query) {
+		boolean[] isTypeDisplayed = new boolean[TYPES.length];
+		isTypeDisplayed[Task.TaskType.FLOATING.ordinal()] = !query.isDateRestricted()
+				&& (!query.isTaskTypeRestricted() || query.areFloatingTasksDisplayed());
+		isTypeDisplayed[Task.TaskType.DEADLINE.ordinal()] = !query.isTaskTypeRestricted()
+				|| query.areDeadlineTasksDisplayed();
+		isTypeDisplayed[Task.TaskType.TIMED.ordinal()] = !query.isTaskTypeRestricted()
+				|| query.areTimedTasksDisplayed();
+		long start = Long.MIN_VALUE;
+		long end = Long.MAX_VALUE;
+		if (query.isDateRestricted()) {
+			start = query.getStartDate() == null ? start : query.getStartDate().getTime();
+			end = query.getEndDate().getTime();
+		}
+
+		for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+			if (!isTypeDisplayed[types[row]] || (query.isDateRestricted()
+					&& (startDates[row] < start || endDates[row] > end))) {
+				rows.clear(row);
+			}
+		}
+	}
+
+	// Clears the rows whose names do not contain all of the given words. As UTF-8
+	// encodes no character as part of another, a name contains a word exactly if
+	// its bytes contain the bytes of the word.
+	private void retainNamesContaining(BitSet rows, List<String> searchedWords) {
+		byte[][] words = new byte[searchedWords.size()][];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = searchedWords.get(i).getBytes(CHARSET);
+		}
+		for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+			for (byte[] word : words) {
+				if (!contains(names, getStart(nameEnds, row), nameEnds[row], word)) {
+					rows.clear(row);
+					break;
+				}
+			}
+		}
+	}
+
+	// Moves the rows not removed to the front in their order, along with their names
+	// and IDs, and shrinks the columns to twice the rows left.
+	private void compact() {
+		int keptRows = 0;
+		int nameStart = 0;
+		int idStart = 0;
+		int nameEnd = 0;
+		int idEnd = 0;
+		for (int row = 0; row < _rows; row++) {
+			int oldNameEnd = nameEnds[row];
+			int oldIdEnd = idEnds[row];
+			if (!removed.get(row)) {
+				System.arraycopy(names, nameStart, names, nameEnd, oldNameEnd - nameStart);
+				nameEnd += oldNameEnd - nameStart;
+				System.arraycopy(ids, idStart, ids, idEnd, oldIdEnd - idStart);
+				idEnd += oldIdEnd - idStart;
+				moveRow(row, keptRows);
+				nameEnds[keptRows] = nameEnd;
+				idEnds[keptRows] = idEnd;
+				keptRows++;
+			}
+			nameStart = oldNameEnd;
+			idStart = oldIdEnd;
+		}
+		for (BitSet bits : new BitSet[] { done, edited, hasId, hasUpdated, isUpdatedDateOnly }) {
+			bits.clear(keptRows, _rows);
+		}
+		removed.clear();
+		_rows = keptRows;
+		_removedRows = 0;
+
+		resize(Math.max(keptRows * 2, INITIAL_CAPACITY));
+		names = Arrays.copyOf(names, Math.max(nameEnd * 2, INITIAL_CAPACITY * 16));
+		ids = Arrays.copyOf(ids, Math.max(idEnd * 2, INITIAL_CAPACITY * 16));
+		rowsByLocalId.clear();
+		rowsById.clear();
+		for (int row = 0; row < _rows; row++) {
+			rowsByLocalId.put(localIds[row], row);
+			if (hasId.get(row)) {
+				rowsById.put(getString(ids, idEnds, row), row);
+			}
+		}
+	}
+
+	// Copies the values of the given row to the given earlier row.
+	private void moveRow(int row, int newRow) {
+		types[newRow] = types[row];
+		startDates[newRow] = startDates[row];
+		endDates[newRow] = endDates[row];
+		updatedValues[newRow] = updatedValues[row];
+		updatedTimeZoneShifts[newRow] = updatedTimeZoneShifts[row];
+		localIds[newRow] = localIds[row];
+		for (BitSet bits : new BitSet[] { done, edited, hasId, hasUpdated, isUpdatedDateOnly }) {
+			bits.set(newRow, bits.get(row));
+		}
+	}
+
+	// Grows the columns to hold at least the given number of rows.
+	private void ensureCapacity(int rows) {
+		if (rows <= types.length) {
+			return;
+		}
+		resize(Math.max(rows, types.length * 2));
+	}
+
+	private void resize(int capacity) {
+		types = Arrays.copyOf(types, capacity);
+		startDates = Arrays.copyOf(startDates, capacity);
+		endDates = Arrays.copyOf(endDates, capacity);
+		updatedValues = Arrays.copyOf(updatedValues, capacity);
+		updatedTimeZoneShifts = Arrays.copyOf(updatedTimeZoneShifts, capacity);
+		localIds = Arrays.copyOf(localIds, capacity);
+		nameEnds = Arrays.copyOf(nameEnds, capacity);
+		idEnds = Arrays.copyOf(idEnds, capacity);
+	}
+
+	// Appends the given string to the given arena as the value of the given row.
+	// Returns the arena, which is replaced by a larger one if full.
+	private static byte[] append(byte[] arena, int[] ends, int row, String string) {
+		byte[] bytes = string.getBytes(CHARSET);
+		int start = getStart(ends, row);
+		if (start + bytes.length > arena.length) {
+			arena = Arrays.copyOf(arena, Math.max(start + bytes.length, arena.length * 2));
+		}
+		System.arraycopy(bytes, 0, arena, start, bytes.length);
+		ends[row] = start + bytes.length;
+		return arena;
+	}
+
+	private static String getString(byte[] arena, int[] ends, int row) {
+		int start = getStart(ends, row);
+		return new String(arena, start, ends[row] - start, CHARSET);
+	}
+
+	private static int getStart(int[] ends, int row) {
+		return row == 0 ? 0 : ends[row - 1];
+	}
+
+	// Checks if the bytes of the given arena between start and end contain the given word.
+	private static boolean contains(byte[] arena, int start, int end, byte[] word) {
+		for (int i = start; i <= end - word.length; i++) {
+			int j = 0;
+			while (j < word.length && arena[i + j] == word[j]) {
+				j++;
+			}
+			if (j == word.length) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Returns the start date of a timed task or the end date of a deadline task
+	// in milliseconds, or 0 for a floating task.
+	private static long getStartDate(Task task) {
+		switch (task.getType()) {
+		case DEADLINE:
+			return ((DeadlineTask) task).getEndDate().getTime();
+
+		case TIMED:
+			return ((TimedTask) task).getStartDate().getTime();
+
+		default:
+			return 0;
+		}
+	}
+
+	// Returns the end date of a timed or deadline task in milliseconds, or 0 for
+	// a floating task.
+	private static long getEndDate(Task task) {
+		switch (task.getType()) {
+		case DEADLINE:
+			return ((DeadlineTask) task).getEndDate().getTime();
+
+		case TIMED:
+			return ((TimedTask) task).getEndDate().getTime();
+
+		default:
+			return 0;
+		}
+	}
+}
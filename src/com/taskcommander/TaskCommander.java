@@ -5,6 +5,7 @@ public class TaskCommander {
 	public static Controller controller = Controller.getInstance();
 	public static Parser parser = Parser.getInstance();
 	public static Storage storage = new Storage(); 
+	public static KeyValueStorage keyValueStorage = new KeyValueStorage();
 	public static Data data = Data.getInstance(); // temporary memory containing a list of task objects
 	public static SyncHandler syncHandler;
 	public static UI ui = UI.getInstance();
@@ -17,6 +18,19 @@ public class TaskCommander {
 		ui.open();
 	}
 	
+	/**
+	 * Returns the storage backend chosen by Global.STORAGE_BACKEND.
+	 */
+	public static StorageBackend getStorageBackend() {
+		switch (Global.STORAGE_BACKEND) {
+		case KEY_VALUE:
+			return keyValueStorage;
+
+		default:
+			return storage;
+		}
+	}
+
 	/*
 	 * Note: only call this when the sync command is used as 
 	 * user should not be asked to login until they execute 
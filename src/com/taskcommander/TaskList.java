@@ -0,0 +1,666 @@
+package com.taskcommander;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+//@author A0112828H
+/**
+ * Tasks list of Data, which keeps hash indexes from the local ID and the
+ * Google ID of every task to its position, so tasks are found without
+ * going through the list.
+ *
+ * It also keeps bitmaps of the positions of the tasks of each type and of
+ * the done tasks, so display restrictions of type and status are applied
+ * without going through the tasks.
+ *
+ * Tasks of the list are never changed in place. A changed task is a copy
+ * set in place of the task, see Data.replaceTask(Task, Task), so the
+ * indexes only follow the changes of the list itself. Adding, setting and
+ * removing single tasks update the indexes, moving the positions of the
+ * tasks after them along with the list. Other changes leave them to be
+ * rebuilt when next used.
+ *
+ * The list also keeps the floating tasks sorted by name and the dated tasks
+ * sorted by date, as they are displayed, so they need not be sorted for
+ * every display. Tasks of equal name or date keep the order they were
+ * added in. Adding, setting and removing single tasks update the sorted
+ * tasks. Other changes leave them to be sorted again when next used.
+ * Along with them, the timed tasks are kept in an
+ * IntervalTree to find those overlapping a period, and the tasks are
+ * indexed by the words of their names to find those a search may match.
+ * The words in turn are indexed by their trigrams, the sequences of three
+ * characters they contain, so words containing a searched word are found
+ * without going through all words.
+ */
+public class TaskList extends ArrayList<Task> {
+	private static final long serialVersionUID = 1L;
+
+	// Positions of the tasks by local ID and tasks by Google ID
+	private HashMap<Long, Integer> positions = new HashMap<Long, Integer>();
+	private HashMap<String, Task> tasksById = new HashMap<String, Task>();
+
+	// Positions of the tasks by type and of the done tasks
+	private EnumMap<Task.TaskType, BitSet> positionsByType =
+			new EnumMap<Task.TaskType, BitSet>(Task.TaskType.class);
+	private BitSet donePositions = new BitSet();
+
+	// Number of changes of the list when the indexes were built, -1 if not built
+	private int _indexedModCount = -1;
+
+	// Floating tasks by name and dated tasks by date, and the number of changes of the
+	// list when they were sorted, -1 if not sorted
+	private TreeMap<String, ArrayList<FloatingTask>> floatingTasks =
+			new TreeMap<String, ArrayList<FloatingTask>>();
+	private TreeMap<Date, ArrayList<DatedTask>> datedTasks = new TreeMap<Date, ArrayList<DatedTask>>();
+	private IntervalTree timedTasks = new IntervalTree();
+	private HashMap<String, Set<Task>> tasksByWord = new HashMap<String, Set<Task>>();
+	private HashMap<String, HashSet<String>> wordsByTrigram = new HashMap<String, HashSet<String>>();
+	private int _viewModCount = -1;
+
+	// Version of the tasks, and the number of changes of the list it was last increased for
+	private long _version;
+	private int _versionModCount;
+
+	public TaskList() {
+		createBitmaps();
+	}
+
+	/**
+	 * Returns a TaskList holding the given tasks in their order.
+	 *
+	 * @param tasks
+	 */
+	public TaskList(Collection<Task> tasks) {
+		super(tasks);
+		createBitmaps();
+	}
+
+	/**
+	 * Returns the position of the given task, or of a copy of it, found by its local ID.
+	 *
+	 * @param task
+	 * @return index, or -1 if not found
+	 */
+	public int indexOfLocalId(Task task) {
+		if (task == null) {
+			return -1;
+		}
+		updateIndexes();
+		Integer position = positions.get(task.getLocalId());
+		return position == null ? -1 : position;
+	}
+
+	/**
+	 * Returns the position of the task with the given Google ID.
+	 *
+	 * @param id
+	 * @return index, or -1 if not found
+	 */
+	public int indexOfId(String id) {
+		if (id == null) {
+			return -1;
+		}
+		updateIndexes();
+		Task task = tasksById.get(id);
+		if (task == null) {
+			return -1;
+		}
+		Integer position = positions.get(task.getLocalId());
+		return position == null ? -1 : position;
+	}
+
+	/**
+	 * Checks if a task with the given Google ID is in the list.
+	 *
+	 * @param id
+	 */
+	public boolean containsId(String id) {
+		return indexOfId(id) != -1;
+	}
+
+	/**
+	 * Returns the positions of the tasks satisfying the given TaskType and
+	 * Status restrictions.
+	 *
+	 * @param isTaskTypeRestricted
+	 * @param areFloatingTasksDisplayed
+	 * @param areDeadlineTasksDisplayed
+	 * @param areTimedTasksDisplayed
+	 * @param isStatusRestricted
+	 * @param areDoneTasksDisplayed
+	 * @return bitmap of the positions
+	 */
+	public BitSet getPositionsMatching(boolean isTaskTypeRestricted,
+			boolean areFloatingTasksDisplayed, boolean areDeadlineTasksDisplayed,
+			boolean areTimedTasksDisplayed, boolean isStatusRestricted,
+			boolean areDoneTasksDisplayed) {
+		updateIndexes();
+		BitSet matchingPositions = new BitSet(size());
+		if (!isTaskTypeRestricted) {
+			matchingPositions.set(0, size());
+		} else {
+			if (areFloatingTasksDisplayed) {
+				matchingPositions.or(positionsByType.get(Task.TaskType.FLOATING));
+			}
+			if (areDeadlineTasksDisplayed) {
+				matchingPositions.or(positionsByType.get(Task.TaskType.DEADLINE));
+			}
+			if (areTimedTasksDisplayed) {
+				matchingPositions.or(positionsByType.get(Task.TaskType.TIMED));
+			}
+		}
+		if (isStatusRestricted && areDoneTasksDisplayed) {
+			matchingPositions.and(donePositions);
+		} else if (isStatusRestricted) {
+			matchingPositions.andNot(donePositions);
+		}
+		return matchingPositions;
+	}
+
+	/**
+	 * Returns the version of the tasks, which is increased by every change of
+	 * the list, including setting tasks.
+	 */
+	public long getVersion() {
+		if (_versionModCount != modCount) {
+			_version++;
+			_versionModCount = modCount;
+		}
+		return _version;
+	}
+
+	/**
+	 * Returns the floating tasks sorted by name, followed by the dated tasks sorted by date.
+	 */
+	public ArrayList<Task> getSortedTasks() {
+		updateViews();
+		// Tasks are added by index, as addAll or an iterator would allocate
+		// for every bucket.
+		ArrayList<Task> sortedTasks = new ArrayList<Task>(size());
+		for (ArrayList<FloatingTask> tasks : floatingTasks.values()) {
+			for (int i = 0; i < tasks.size(); i++) {
+				sortedTasks.add(tasks.get(i));
+			}
+		}
+		for (ArrayList<DatedTask> tasks : datedTasks.values()) {
+			for (int i = 0; i < tasks.size(); i++) {
+				sortedTasks.add(tasks.get(i));
+			}
+		}
+		return sortedTasks;
+	}
+
+	/**
+	 * Returns the dated tasks whose date lies within the given dates, sorted by date.
+	 *
+	 * @param startDate earliest date, or null for no limit
+	 * @param endDate latest date
+	 */
+	public ArrayList<Task> getSortedTasks(Date startDate, Date endDate) {
+		updateViews();
+		NavigableMap<Date, ArrayList<DatedTask>> range;
+		if (startDate == null) {
+			range = datedTasks.headMap(endDate, true);
+		} else if (startDate.after(endDate)) {
+			return new ArrayList<Task>();
+		} else {
+			range = datedTasks.subMap(startDate, true, endDate, true);
+		}
+		ArrayList<Task> sortedTasks = new ArrayList<Task>();
+		for (ArrayList<DatedTask> tasks : range.values()) {
+			for (int i = 0; i < tasks.size(); i++) {
+				sortedTasks.add(tasks.get(i));
+			}
+		}
+		return sortedTasks;
+	}
+
+	/**
+	 * Returns the timed tasks overlapping the given period, sorted by start date.
+	 *
+	 * @param startDate start of the period, or null for no limit
+	 * @param endDate end of the period, or null for no limit
+	 */
+	public ArrayList<TimedTask> getOverlappingTasks(Date startDate, Date endDate) {
+		updateViews();
+		return timedTasks.getOverlappingTasks(startDate, endDate);
+	}
+
+	/**
+	 * Returns the tasks whose names may contain all the given words or phrases,
+	 * found through the words of the task names. Every task whose name contains
+	 * them is returned, but not every task returned does.
+	 *
+	 * @param searchedWords
+	 * @return tasks in the order of the list, or null if no word can be looked up
+	 */
+	public ArrayList<Task> getTasksContaining(List<String> searchedWords) {
+		updateViews();
+		Set<Task> candidates = null;
+		for (String searchedWord : searchedWords) {
+			// A name containing the searched word contains each of its words within one of
+			// its own words, so the tasks found for the rarest word are kept.
+			for (String word : splitWords(searchedWord)) {
+				Set<Task> tasks = Collections.newSetFromMap(new IdentityHashMap<Task, Boolean>());
+				for (String containingWord : getWordsContaining(word)) {
+					tasks.addAll(tasksByWord.get(containingWord));
+				}
+				if (candidates == null || tasks.size() < candidates.size()) {
+					candidates = tasks;
+				}
+			}
+		}
+		if (candidates == null) {
+			return null;
+		}
+		ArrayList<Task> sortedCandidates = new ArrayList<Task>(candidates);
+		Collections.sort(sortedCandidates, new Comparator<Task>() {
+			@Override
+			public int compare(Task task, Task otherTask) {
+				return Integer.compare(indexOfLocalId(task), indexOfLocalId(otherTask));
+			}
+		});
+		return sortedCandidates;
+	}
+
+	@Override
+	public boolean add(Task task) {
+		boolean isIndexed = _indexedModCount == modCount;
+		boolean isSorted = _viewModCount == modCount;
+		super.add(task);
+		if (isIndexed) {
+			index(task, size() - 1);
+			_indexedModCount = modCount;
+		}
+		if (isSorted) {
+			addToViews(task);
+			_viewModCount = modCount;
+		}
+		return true;
+	}
+
+	@Override
+	public void add(int index, Task task) {
+		boolean isIndexed = _indexedModCount == modCount;
+		boolean isSorted = _viewModCount == modCount;
+		super.add(index, task);
+		if (isIndexed) {
+			for (int i = size() - 1; i > index; i--) {
+				Task movedTask = get(i);
+				if (movedTask != null) {
+					Integer position = positions.get(movedTask.getLocalId());
+					if (position != null && position == i - 1) {
+						positions.put(movedTask.getLocalId(), i);
+					}
+				}
+			}
+			for (BitSet typePositions : positionsByType.values()) {
+				insertBit(typePositions, index);
+			}
+			insertBit(donePositions, index);
+			index(task, index);
+			_indexedModCount = modCount;
+		}
+		if (isSorted) {
+			addToViews(task);
+			_viewModCount = modCount;
+		}
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Task> tasks) {
+		boolean isSorted = _viewModCount == modCount;
+		boolean isChanged = super.addAll(tasks);
+		if (isSorted) {
+			for (Task task : tasks) {
+				addToViews(task);
+			}
+			_viewModCount = modCount;
+		}
+		return isChanged;
+	}
+
+	@Override
+	public Task remove(int index) {
+		boolean isIndexed = _indexedModCount == modCount;
+		boolean isSorted = _viewModCount == modCount;
+		Task task = super.remove(index);
+		if (isIndexed) {
+			unindex(task, index);
+			// Moves the later positions up. A copy of the removed task, or another task
+			// of its Google ID, takes its place in the hash indexes.
+			for (int i = index; i < size(); i++) {
+				Task movedTask = get(i);
+				if (movedTask == null) {
+					continue;
+				}
+				Integer position = positions.get(movedTask.getLocalId());
+				if (position == null || position == i + 1) {
+					positions.put(movedTask.getLocalId(), i);
+				}
+				if (movedTask.getId() != null && !tasksById.containsKey(movedTask.getId())) {
+					tasksById.put(movedTask.getId(), movedTask);
+				}
+			}
+			for (BitSet typePositions : positionsByType.values()) {
+				removeBit(typePositions, index);
+			}
+			removeBit(donePositions, index);
+			_indexedModCount = modCount;
+		}
+		if (isSorted && removeFromViews(task)) {
+			_viewModCount = modCount;
+		}
+		return task;
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		floatingTasks.clear();
+		datedTasks.clear();
+		timedTasks.clear();
+		tasksByWord.clear();
+		wordsByTrigram.clear();
+		_viewModCount = modCount;
+	}
+
+	@Override
+	public Task set(int index, Task task) {
+		_version++;
+		boolean isSorted = _viewModCount == modCount;
+		Task oldTask = super.set(index, task);
+		if (isSorted) {
+			// set() does not count as a change, so a failed removal, e.g. of a task in the
+			// list twice, has to undo the sorting.
+			if (removeFromViews(oldTask)) {
+				addToViews(task);
+			} else {
+				_viewModCount = -1;
+			}
+		}
+		if (_indexedModCount == modCount) {
+			unindex(oldTask, index);
+			for (BitSet typePositions : positionsByType.values()) {
+				typePositions.clear(index);
+			}
+			donePositions.clear(index);
+			index(task, index);
+		}
+		return oldTask;
+	}
+
+	// Sorts the tasks again if the list changed in a way they were not updated for.
+	private void updateViews() {
+		if (_viewModCount == modCount) {
+			return;
+		}
+		floatingTasks.clear();
+		datedTasks.clear();
+		timedTasks.clear();
+		tasksByWord.clear();
+		wordsByTrigram.clear();
+		for (Task task : this) {
+			addToViews(task);
+		}
+		_viewModCount = modCount;
+	}
+
+	private void addToViews(Task task) {
+		if (task != null) {
+			indexWords(task);
+		}
+		if (task instanceof FloatingTask) {
+			FloatingTask floatingTask = (FloatingTask) task;
+			ArrayList<FloatingTask> tasks = floatingTasks.get(floatingTask.getName());
+			if (tasks == null) {
+				tasks = new ArrayList<FloatingTask>(1);
+				floatingTasks.put(floatingTask.getName(), tasks);
+			}
+			tasks.add(floatingTask);
+		} else if (task instanceof DatedTask) {
+			DatedTask datedTask = (DatedTask) task;
+			ArrayList<DatedTask> tasks = datedTasks.get(datedTask.getDate());
+			if (tasks == null) {
+				tasks = new ArrayList<DatedTask>(1);
+				datedTasks.put(datedTask.getDate(), tasks);
+			}
+			tasks.add(datedTask);
+			if (task instanceof TimedTask) {
+				timedTasks.add((TimedTask) task);
+			}
+		}
+	}
+
+	// Removes the given task from the sorted tasks. Returns false if it was not found.
+	private boolean removeFromViews(Task task) {
+		if (task != null && !unindexWords(task)) {
+			return false;
+		}
+		if (task instanceof FloatingTask) {
+			return removeFrom(floatingTasks, ((FloatingTask) task).getName(), task);
+		} else if (task instanceof DatedTask) {
+			if (task instanceof TimedTask) {
+				timedTasks.remove((TimedTask) task);
+			}
+			return removeFrom(datedTasks, ((DatedTask) task).getDate(), task);
+		}
+		return true;
+	}
+
+	// Returns the indexed words containing the given word.
+	private ArrayList<String> getWordsContaining(String searchedWord) {
+		Collection<String> candidates = tasksByWord.keySet();
+		if (searchedWord.length() >= 3) {
+			// Only words having all trigrams of the searched word can contain it.
+			HashSet<String> words = null;
+			for (String trigram : splitTrigrams(searchedWord)) {
+				HashSet<String> trigramWords = wordsByTrigram.get(trigram);
+				if (trigramWords == null) {
+					return new ArrayList<String>();
+				}
+				if (words == null || trigramWords.size() < words.size()) {
+					words = trigramWords;
+				}
+			}
+			candidates = words;
+		}
+		ArrayList<String> words = new ArrayList<String>();
+		for (String word : candidates) {
+			if (word.contains(searchedWord)) {
+				words.add(word);
+			}
+		}
+		return words;
+	}
+
+	private void indexWords(Task task) {
+		for (String word : splitWords(task.getName())) {
+			Set<Task> tasks = tasksByWord.get(word);
+			if (tasks == null) {
+				tasks = Collections.newSetFromMap(new IdentityHashMap<Task, Boolean>(2));
+				tasksByWord.put(word, tasks);
+				indexTrigrams(word);
+			}
+			tasks.add(task);
+		}
+	}
+
+	// Removes the given task from the word index. Returns false if it was not found.
+	private boolean unindexWords(Task task) {
+		for (String word : splitWords(task.getName())) {
+			Set<Task> tasks = tasksByWord.get(word);
+			if (tasks == null || !tasks.remove(task)) {
+				return false;
+			}
+			if (tasks.isEmpty()) {
+				tasksByWord.remove(word);
+				unindexTrigrams(word);
+			}
+		}
+		return true;
+	}
+
+	private void indexTrigrams(String word) {
+		for (String trigram : splitTrigrams(word)) {
+			HashSet<String> words = wordsByTrigram.get(trigram);
+			if (words == null) {
+				words = new HashSet<String>(2);
+				wordsByTrigram.put(trigram, words);
+			}
+			words.add(word);
+		}
+	}
+
+	private void unindexTrigrams(String word) {
+		for (String trigram : splitTrigrams(word)) {
+			HashSet<String> words = wordsByTrigram.get(trigram);
+			if (words != null) {
+				words.remove(word);
+				if (words.isEmpty()) {
+					wordsByTrigram.remove(trigram);
+				}
+			}
+		}
+	}
+
+	// Returns the distinct sequences of three characters of the given word.
+	private static HashSet<String> splitTrigrams(String word) {
+		HashSet<String> trigrams = new HashSet<String>();
+		for (int i = 0; i + 3 <= word.length(); i++) {
+			trigrams.add(word.substring(i, i + 3));
+		}
+		return trigrams;
+	}
+
+	// Returns the distinct words of the given name, separated by whitespace.
+	private static HashSet<String> splitWords(String name) {
+		HashSet<String> words = new HashSet<String>();
+		if (name != null) {
+			for (String word : name.split("\\s+")) {
+				if (!word.isEmpty()) {
+					words.add(word);
+				}
+			}
+		}
+		return words;
+	}
+
+	private static <K, T extends Task> boolean removeFrom(Map<K, ArrayList<T>> sortedTasks,
+			K key, Task task) {
+		ArrayList<T> tasks = sortedTasks.get(key);
+		if (tasks == null) {
+			return false;
+		}
+		for (int i = 0; i < tasks.size(); i++) {
+			if (tasks.get(i) == task) {
+				tasks.remove(i);
+				if (tasks.isEmpty()) {
+					sortedTasks.remove(key);
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Rebuilds the indexes if the list changed in a way they were not updated for.
+	private void updateIndexes() {
+		if (_indexedModCount == modCount) {
+			return;
+		}
+		positions.clear();
+		tasksById.clear();
+		for (BitSet typePositions : positionsByType.values()) {
+			typePositions.clear();
+		}
+		donePositions.clear();
+		for (int i = 0; i < size(); i++) {
+			index(get(i), i);
+		}
+		_indexedModCount = modCount;
+	}
+
+	// Indexes the given task at the given position, unless an earlier copy is indexed.
+	private void index(Task task, int position) {
+		if (task == null) {
+			return;
+		}
+		Integer indexedPosition = positions.get(task.getLocalId());
+		if (indexedPosition == null || indexedPosition > position) {
+			positions.put(task.getLocalId(), position);
+		}
+		if (task.getId() != null) {
+			Task indexedTask = tasksById.get(task.getId());
+			if (indexedTask == null || positions.get(indexedTask.getLocalId()) == null
+					|| positions.get(indexedTask.getLocalId()) > position) {
+				tasksById.put(task.getId(), task);
+			}
+		}
+		if (task.getType() != null) {
+			positionsByType.get(task.getType()).set(position);
+		}
+		if (task.isDone()) {
+			donePositions.set(position);
+		}
+	}
+
+	// Removes the given task, which was at the given position, from the hash indexes.
+	private void unindex(Task task, int position) {
+		if (task == null) {
+			return;
+		}
+		Integer indexedPosition = positions.get(task.getLocalId());
+		if (indexedPosition != null && indexedPosition == position) {
+			positions.remove(task.getLocalId());
+		}
+		if (task.getId() != null && tasksById.get(task.getId()) == task) {
+			tasksById.remove(task.getId());
+		}
+	}
+
+	// Removes the given bit, moving the later bits down by one.
+	private static void removeBit(BitSet bits, int index) {
+		int length = bits.length();
+		if (index >= length) {
+			return;
+		}
+		BitSet laterBits = bits.get(index + 1, length);
+		bits.clear(index, length);
+		for (int i = laterBits.nextSetBit(0); i >= 0; i = laterBits.nextSetBit(i + 1)) {
+			bits.set(index + i);
+		}
+	}
+
+	// Inserts a cleared bit at the given index, moving the later bits up by one.
+	private static void insertBit(BitSet bits, int index) {
+		int length = bits.length();
+		if (index >= length) {
+			return;
+		}
+		BitSet laterBits = bits.get(index, length);
+		bits.clear(index, length);
+		for (int i = laterBits.nextSetBit(0); i >= 0; i = laterBits.nextSetBit(i + 1)) {
+			bits.set(index + 1 + i);
+		}
+	}
+
+	private void createBitmaps() {
+		for (Task.TaskType type : Task.TaskType.values()) {
+			positionsByType.put(type, new BitSet());
+		}
+	}
+}
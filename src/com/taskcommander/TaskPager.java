@@ -0,0 +1,254 @@
+package com.taskcommander;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+
+//@author A0112828H
+/**
+ * Keeps tasks that were evicted from memory.
+ *
+ * The paged tasks are kept in TaskColumns rather than as task objects, so
+ * display restrictions are checked by scanning the columns, and only the
+ * tasks displayed are created again. The columns stay in memory, but take a
+ * fraction of the memory of the task objects, so Global.MEMORY_BUDGET limits
+ * the task objects in memory rather than the memory used. The storage file
+ * keeps the paged tasks along with the tasks in memory, so they are loaded
+ * into memory again in the next session.
+ *
+ * The stored tasks list, as held by the storage file and its journal, keeps
+ * paged tasks where they were, and the tasks in memory keep its order. The
+ * pager keeps the index of every paged task in the stored tasks list, so
+ * journal records of the tasks in memory are given the indexes of the stored
+ * tasks list, and the storage file is not rewritten for paging.
+ */
+public class TaskPager {
+
+	private TaskColumns columns = new TaskColumns();
+
+	// Indexes of the paged tasks in the stored tasks list in ascending order, and
+	// the local IDs of the paged tasks in the same order
+	private int[] storedIndexes = new int[0];
+	private long[] localIds = new long[0];
+
+	/**
+	 * Returns the number of paged tasks.
+	 */
+	public int size() {
+		return columns.size();
+	}
+
+	/**
+	 * Returns the rows of the paged tasks matching the restrictions of the
+	 * given query. See TaskColumns.getRowsMatching(TaskQuery).
+	 *
+	 * @param query
+	 * @return bitmap of the rows
+	 */
+	public BitSet getRowsMatching(TaskQuery query) {
+		return columns.getRowsMatching(query);
+	}
+
+	/**
+	 * Returns the rows of the paged timed tasks overlapping the given period.
+	 *
+	 * @param startDate start of the period, or null for no limit
+	 * @param endDate end of the period, or null for no limit
+	 * @return bitmap of the rows
+	 */
+	public BitSet getRowsOverlapping(Date startDate, Date endDate) {
+		return columns.getRowsOverlapping(startDate, endDate);
+	}
+
+	/**
+	 * Returns the row of the paged task the given task is, or is a copy of.
+	 *
+	 * @param task
+	 * @return row, or -1 if the task is not paged
+	 */
+	public int indexOf(Task task) {
+		return columns.indexOf(task);
+	}
+
+	/**
+	 * Returns the row of the paged task with the given Google ID.
+	 *
+	 * @param id
+	 * @return row, or -1 if no such task is paged
+	 */
+	public int indexOfId(String id) {
+		return columns.indexOfId(id);
+	}
+
+	/**
+	 * Returns the index in the stored tasks list of the task at the given
+	 * index of the tasks in memory.
+	 *
+	 * @param index
+	 * @return index in the stored tasks list
+	 */
+	public int getStoredIndex(int index) {
+		// Before the paged task at storedIndexes[i], storedIndexes[i] - i tasks in memory
+		// are stored, which never decreases with i. The tasks list thus stores the task
+		// after as many paged tasks as there are with at most index tasks in memory before.
+		int low = 0;
+		int high = storedIndexes.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (storedIndexes[middle] - middle <= index) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return index + low;
+	}
+
+	/**
+	 * Moves the paged tasks after the given index of the stored tasks list one
+	 * up, as the task in memory at that index was removed from it.
+	 *
+	 * @param storedIndex
+	 */
+	public void removeStoredIndex(int storedIndex) {
+		for (int i = storedIndexes.length - 1; i >= 0 && storedIndexes[i] > storedIndex; i--) {
+			storedIndexes[i]--;
+		}
+	}
+
+	/**
+	 * Keeps the given tasks in the columns. The caller removes them from memory.
+	 *
+	 * @param tasks
+	 * @param taskStoredIndexes index of each task in the stored tasks list
+	 */
+	public void pageOut(List<Task> tasks, int[] taskStoredIndexes) {
+		int pagedCount = storedIndexes.length;
+		long[] entries = new long[pagedCount + tasks.size()];
+		for (int i = 0; i < pagedCount; i++) {
+			entries[i] = ((long) storedIndexes[i] << 32) | i;
+		}
+		for (int i = 0; i < tasks.size(); i++) {
+			columns.add(tasks.get(i));
+			entries[pagedCount + i] = ((long) taskStoredIndexes[i] << 32) | (pagedCount + i);
+		}
+		// Sorts the paged tasks by their index in the stored tasks list.
+		Arrays.sort(entries);
+		int[] newStoredIndexes = new int[entries.length];
+		long[] newLocalIds = new long[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			int entry = (int) entries[i];
+			newStoredIndexes[i] = (int) (entries[i] >>> 32);
+			newLocalIds[i] = entry < pagedCount ? localIds[entry]
+					: tasks.get(entry - pagedCount).getLocalId();
+		}
+		storedIndexes = newStoredIndexes;
+		localIds = newLocalIds;
+	}
+
+	/**
+	 * Returns the paged task of the given row without paging it in.
+	 *
+	 * @param row
+	 * @return task
+	 */
+	public Task read(int row) {
+		return columns.get(row);
+	}
+
+	/**
+	 * Returns the index in the stored tasks list of the paged task of the given row.
+	 *
+	 * @param row
+	 * @return index in the stored tasks list
+	 */
+	public int getStoredIndexOf(int row) {
+		return storedIndexes[indexOfEntry(row)];
+	}
+
+	/**
+	 * Returns the paged task of the given row and removes it from the columns.
+	 * The caller adds it back to the end of the tasks in memory, and moves it
+	 * to the end of the stored tasks list as well.
+	 *
+	 * @param row
+	 * @return task
+	 */
+	public Task pageIn(int row) {
+		Task task = read(row);
+		int entry = indexOfEntry(row);
+		int storedIndex = storedIndexes[entry];
+		int[] newStoredIndexes = new int[storedIndexes.length - 1];
+		long[] newLocalIds = new long[localIds.length - 1];
+		System.arraycopy(storedIndexes, 0, newStoredIndexes, 0, entry);
+		System.arraycopy(localIds, 0, newLocalIds, 0, entry);
+		System.arraycopy(storedIndexes, entry + 1, newStoredIndexes, entry,
+				newStoredIndexes.length - entry);
+		System.arraycopy(localIds, entry + 1, newLocalIds, entry, newLocalIds.length - entry);
+		storedIndexes = newStoredIndexes;
+		localIds = newLocalIds;
+		removeStoredIndex(storedIndex);
+		columns.remove(row);
+		return task;
+	}
+
+	/**
+	 * Returns the stored tasks list: the given tasks in memory with the paged
+	 * tasks at their indexes in between.
+	 *
+	 * @param tasks tasks in memory
+	 * @return stored tasks
+	 */
+	public ArrayList<Task> merge(List<Task> tasks) {
+		ArrayList<Task> storedTasks = new ArrayList<Task>(tasks.size() + storedIndexes.length);
+		int index = 0;
+		for (int i = 0; i < storedIndexes.length; i++) {
+			while (storedTasks.size() < storedIndexes[i]) {
+				storedTasks.add(tasks.get(index++));
+			}
+			storedTasks.add(read(columns.indexOfLocalId(localIds[i])));
+		}
+		while (index < tasks.size()) {
+			storedTasks.add(tasks.get(index++));
+		}
+		return storedTasks;
+	}
+
+	/**
+	 * Returns all paged tasks without paging them in, in the order they were
+	 * paged out.
+	 *
+	 * @return paged tasks
+	 */
+	public ArrayList<Task> readAll() {
+		BitSet rows = columns.getRows();
+		ArrayList<Task> tasks = new ArrayList<Task>(rows.cardinality());
+		for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+			tasks.add(read(row));
+		}
+		return tasks;
+	}
+
+	/**
+	 * Removes all paged tasks. Used once they have been added back to memory,
+	 * or are loaded from the storage file again.
+	 */
+	public void clear() {
+		columns = new TaskColumns();
+		storedIndexes = new int[0];
+		localIds = new long[0];
+	}
+
+	// Returns the position of the paged task of the given row in storedIndexes.
+	private int indexOfEntry(int row) {
+		long localId = columns.getLocalId(row);
+		for (int i = 0; i < localIds.length; i++) {
+			if (localIds[i] == localId) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Row " + row + " is not paged");
+	}
+}
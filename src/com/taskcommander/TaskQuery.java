@@ -0,0 +1,234 @@
+package com.taskcommander;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+//@author A0112828H
+/**
+ * Restrictions of the tasks to be displayed, built by the Controller from
+ * its display settings and answered by Data.getTasks(TaskQuery).
+ *
+ * A TaskQuery cannot be changed. Each restrict method returns a new query
+ * with the given restriction added to those of this query. Two queries with
+ * the same restrictions are equal.
+ */
+public class TaskQuery {
+
+	/**
+	 * Query without restrictions, matching all tasks
+	 */
+	public static final TaskQuery ALL = new TaskQuery();
+
+	private boolean _isDateRestricted;
+	private Date _startDate;
+	private Date _endDate;
+
+	private boolean _isTaskTypeRestricted;
+	private boolean _areFloatingTasksDisplayed;
+	private boolean _areDeadlineTasksDisplayed;
+	private boolean _areTimedTasksDisplayed;
+
+	private boolean _isStatusRestricted;
+	private boolean _areDoneTasksDisplayed;
+
+	private List<String> _searchedWords;
+
+	private TaskQuery() {
+	}
+
+	/**
+	 * Returns a query restricted to the dated tasks within the given dates:
+	 * deadline tasks due and timed tasks taking place between them.
+	 *
+	 * @param startDate earliest date, or null for no limit
+	 * @param endDate latest date
+	 * @return restricted query
+	 */
+	public TaskQuery restrictDates(Date startDate, Date endDate) {
+		if (endDate == null) {
+			throw new IllegalArgumentException(Global.MESSAGE_ILLEGAL_ARGUMENTS);
+		}
+		TaskQuery query = copy();
+		query._isDateRestricted = true;
+		query._startDate = startDate == null ? null : new Date(startDate.getTime());
+		query._endDate = new Date(endDate.getTime());
+		return query;
+	}
+
+	/**
+	 * Returns a query restricted to the tasks of the given types.
+	 *
+	 * @param areFloatingTasksDisplayed
+	 * @param areDeadlineTasksDisplayed
+	 * @param areTimedTasksDisplayed
+	 * @return restricted query
+	 */
+	public TaskQuery restrictTypes(boolean areFloatingTasksDisplayed,
+			boolean areDeadlineTasksDisplayed, boolean areTimedTasksDisplayed) {
+		TaskQuery query = copy();
+		query._isTaskTypeRestricted = true;
+		query._areFloatingTasksDisplayed = areFloatingTasksDisplayed;
+		query._areDeadlineTasksDisplayed = areDeadlineTasksDisplayed;
+		query._areTimedTasksDisplayed = areTimedTasksDisplayed;
+		return query;
+	}
+
+	/**
+	 * Returns a query restricted to the done or to the open tasks.
+	 *
+	 * @param areDoneTasksDisplayed true for the done tasks, false for the open ones
+	 * @return restricted query
+	 */
+	public TaskQuery restrictStatus(boolean areDoneTasksDisplayed) {
+		TaskQuery query = copy();
+		query._isStatusRestricted = true;
+		query._areDoneTasksDisplayed = areDoneTasksDisplayed;
+		return query;
+	}
+
+	/**
+	 * Returns a query restricted to the tasks whose names contain all the given
+	 * words or phrases.
+	 *
+	 * @param searchedWords
+	 * @return restricted query
+	 */
+	public TaskQuery restrictWords(List<String> searchedWords) {
+		if (searchedWords == null) {
+			throw new IllegalArgumentException(Global.MESSAGE_ILLEGAL_ARGUMENTS);
+		}
+		TaskQuery query = copy();
+		query._searchedWords = Collections.unmodifiableList(new ArrayList<String>(searchedWords));
+		return query;
+	}
+
+	public boolean isRestricted() {
+		return _isDateRestricted || _isTaskTypeRestricted || _isStatusRestricted
+				|| isSearchedWordRestricted();
+	}
+
+	public boolean isDateRestricted() {
+		return _isDateRestricted;
+	}
+
+	public Date getStartDate() {
+		return _startDate == null ? null : new Date(_startDate.getTime());
+	}
+
+	public Date getEndDate() {
+		return _endDate == null ? null : new Date(_endDate.getTime());
+	}
+
+	public boolean isTaskTypeRestricted() {
+		return _isTaskTypeRestricted;
+	}
+
+	public boolean areFloatingTasksDisplayed() {
+		return _areFloatingTasksDisplayed;
+	}
+
+	public boolean areDeadlineTasksDisplayed() {
+		return _areDeadlineTasksDisplayed;
+	}
+
+	public boolean areTimedTasksDisplayed() {
+		return _areTimedTasksDisplayed;
+	}
+
+	public boolean isStatusRestricted() {
+		return _isStatusRestricted;
+	}
+
+	public boolean areDoneTasksDisplayed() {
+		return _areDoneTasksDisplayed;
+	}
+
+	public boolean isSearchedWordRestricted() {
+		return _searchedWords != null;
+	}
+
+	/**
+	 * Returns the searched words and phrases, which cannot be changed, or null
+	 * if not restricted.
+	 */
+	public List<String> getSearchedWords() {
+		return _searchedWords;
+	}
+
+	/**
+	 * Checks if the given object is an equal query.
+	 *
+	 * @param otherObject
+	 * @return true if so, false if not
+	 */
+	@Override
+	public boolean equals(Object otherObject) {
+		if (this == otherObject) {
+			return true;
+		}
+		if (!(otherObject instanceof TaskQuery)) {
+			return false;
+		}
+		TaskQuery otherQuery = (TaskQuery) otherObject;
+		return _isDateRestricted == otherQuery._isDateRestricted
+				&& equals(_startDate, otherQuery._startDate)
+				&& equals(_endDate, otherQuery._endDate)
+				&& _isTaskTypeRestricted == otherQuery._isTaskTypeRestricted
+				&& _areFloatingTasksDisplayed == otherQuery._areFloatingTasksDisplayed
+				&& _areDeadlineTasksDisplayed == otherQuery._areDeadlineTasksDisplayed
+				&& _areTimedTasksDisplayed == otherQuery._areTimedTasksDisplayed
+				&& _isStatusRestricted == otherQuery._isStatusRestricted
+				&& _areDoneTasksDisplayed == otherQuery._areDoneTasksDisplayed
+				&& equals(_searchedWords, otherQuery._searchedWords);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(new Object[] { _isDateRestricted, _startDate,
+				_endDate, _isTaskTypeRestricted, _areFloatingTasksDisplayed,
+				_areDeadlineTasksDisplayed, _areTimedTasksDisplayed, _isStatusRestricted,
+				_areDoneTasksDisplayed, _searchedWords });
+	}
+
+	@Override
+	public String toString() {
+		ArrayList<String> restrictions = new ArrayList<String>();
+		if (_isDateRestricted) {
+			restrictions.add("dates " + _startDate + " to " + _endDate);
+		}
+		if (_isTaskTypeRestricted) {
+			restrictions.add("types" + (_areFloatingTasksDisplayed ? " floating" : "")
+					+ (_areDeadlineTasksDisplayed ? " deadline" : "")
+					+ (_areTimedTasksDisplayed ? " timed" : ""));
+		}
+		if (_isStatusRestricted) {
+			restrictions.add(_areDoneTasksDisplayed ? "done" : "open");
+		}
+		if (_searchedWords != null) {
+			restrictions.add("words " + _searchedWords);
+		}
+		return restrictions.isEmpty() ? "all tasks" : restrictions.toString();
+	}
+
+	private TaskQuery copy() {
+		TaskQuery query = new TaskQuery();
+		query._isDateRestricted = _isDateRestricted;
+		query._startDate = _startDate;
+		query._endDate = _endDate;
+		query._isTaskTypeRestricted = _isTaskTypeRestricted;
+		query._areFloatingTasksDisplayed = _areFloatingTasksDisplayed;
+		query._areDeadlineTasksDisplayed = _areDeadlineTasksDisplayed;
+		query._areTimedTasksDisplayed = _areTimedTasksDisplayed;
+		query._isStatusRestricted = _isStatusRestricted;
+		query._areDoneTasksDisplayed = _areDoneTasksDisplayed;
+		query._searchedWords = _searchedWords;
+		return query;
+	}
+
+	private static boolean equals(Object object, Object otherObject) {
+		return object == null ? otherObject == null : object.equals(otherObject);
+	}
+}
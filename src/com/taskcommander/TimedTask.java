@@ -51,6 +51,8 @@ public class TimedTask extends DatedTask {
 		this.setId(otherTimedTask.getId());
 		this.setDone(otherTimedTask.isDone());
 		this.setEdited(otherTimedTask.isEdited());
+		this.setUpdated(otherTimedTask.getUpdated());
+		this.copyLocalId(otherTimedTask);
 	}
 
 	//@author A0112828H
@@ -69,6 +71,7 @@ public class TimedTask extends DatedTask {
 
 	public void setEndDate(Date endDate) {
 		_endDate = endDate;
+		markDirty();
 	}
 
 	//@author A0109194A
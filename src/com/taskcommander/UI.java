@@ -96,6 +96,9 @@ public class UI extends Observable implements Observer {
 	private final Composite browserWindow = new Composite(tabFolder, SWT.FILL & (~SWT.RESIZE));
 	private final Table table = new Table(mainWindow, SWT.BORDER | SWT.MULTI | SWT.V_SCROLL);
 
+	// Watches the storage file for changes made by other programs
+	private StorageWatcher storageWatcher;
+
 	// System colours for use to colour UI elements
 	private final Color red = display.getSystemColor(SWT.COLOR_RED);
 	private final Color darkGreen = display.getSystemColor(SWT.COLOR_DARK_GREEN);
@@ -166,9 +169,30 @@ public class UI extends Observable implements Observer {
 		createMainTab();
 		createHelpTab();
 		maintainShellSize();
+		startWatchingStorage();
+		showRestoredMessage();
 		runUntilWindowClosed();
 	}
 
+	//@author A0112828H
+	// Tells the user if the last good copy of the storage file was loaded instead.
+	private void showRestoredMessage() {
+		String message = TaskCommander.storage.takeRestoredMessage();
+		if (message != null) {
+			updateDisplay(message);
+		}
+	}
+
+	// Starts watching the storage file, so changes by other programs are displayed.
+	private void startWatchingStorage() {
+		if (!Global.watching) {
+			return;
+		}
+		storageWatcher = new StorageWatcher(TaskCommander.storage);
+		storageWatcher.addObserver(this);
+		storageWatcher.start();
+	}
+
 	// Shell setup
 	private void setupShell() {
 		shell.setLayout(new FillLayout());
@@ -422,6 +446,10 @@ public class UI extends Observable implements Observer {
 				display.sleep();
 			}
 		}
+		if (storageWatcher != null) {
+			storageWatcher.stop();
+		}
+		TaskCommander.data.prepareForExit();
 		disposeElements();
 	}
 
@@ -625,10 +653,32 @@ public class UI extends Observable implements Observer {
 	 * Updates the sync progress output with the given String.
 	 * 
 	 * For use with the sync method in the Google Integration component.
+	 * Applies changes of the storage file and journal read by the StorageWatcher on the UI thread.
 	 */
 	@Override
 	public void update(Observable arg0, Object arg1) {
-		if (arg1 instanceof String) {
+		if (arg1 instanceof StorageChange && !display.isDisposed()) {
+			final StorageChange change = (StorageChange) arg1;
+			display.asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					String feedback = TaskCommander.data.applyStorageChange(change);
+					if (feedback != null && !shell.isDisposed()) {
+						updateDisplay(feedback);
+					}
+				}
+			});
+		} else if (arg1 == StorageWatcher.Event.JOURNAL_APPENDED && !display.isDisposed()) {
+			display.asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					String feedback = TaskCommander.data.applyJournalTail();
+					if (feedback != null && !shell.isDisposed()) {
+						updateDisplay(feedback);
+					}
+				}
+			});
+		} else if (arg1 instanceof String) {
 			final String m = (String) arg1;
 			display.asyncExec(new Runnable() {
 				@Override